@@ -0,0 +1,63 @@
+package com.calendarfx.scheduler;
+
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.SplittableRandom;
+import java.util.UUID;
+
+/**
+ * Deterministic calendars shared by the benchmarks: {@link #entries} entries spread evenly over
+ * {@link #calendars} calendars, one or two hour slots during working hours of a two year range.
+ */
+@State(Scope.Benchmark)
+public class BenchmarkDataset {
+
+    private static final LocalDateTime FIRST_DAY = LocalDateTime.of(2025, 1, 6, 0, 0);
+    private static final int DAYS = 730;
+    private static final String[] TITLES = {"Morning shift", "Late shift", "Meeting", "Training", "On call"};
+    private static final String[] LOCATIONS = {"Office", "Warehouse", "Remote", null};
+
+    @Param({"10", "1000", "100000", "1000000"})
+    public int entries;
+
+    @Param({"1", "10", "100", "1000"})
+    public int calendars;
+
+    public List<GreatCalendar> greatCalendars;
+    public List<GreatCalendar.GreatEntry> allEntries;
+
+    @Setup(Level.Trial)
+    public void generate() {
+        greatCalendars = generate(entries, calendars, 42);
+        allEntries = new ArrayList<>(entries);
+        greatCalendars.forEach(calendar -> allEntries.addAll(calendar.getEntries()));
+    }
+
+    public static List<GreatCalendar> generate(int entries, int calendars, long seed) {
+        SplittableRandom random = new SplittableRandom(seed);
+        List<GreatCalendar> result = new ArrayList<>(calendars);
+        for (int c = 0; c < calendars; c++) {
+            int count = entries / calendars + (c < entries % calendars ? 1 : 0);
+            List<GreatCalendar.GreatEntry> calendarEntries = new ArrayList<>(count);
+            for (int i = 0; i < count; i++) {
+                LocalDateTime start = FIRST_DAY.plusDays(random.nextInt(DAYS)).plusHours(7 + random.nextInt(10));
+                calendarEntries.add(new GreatCalendar.GreatEntry(
+                        new UUID(random.nextLong(), random.nextLong()).toString(),
+                        TITLES[random.nextInt(TITLES.length)],
+                        start,
+                        start.plusHours(1 + random.nextInt(2)),
+                        random.nextInt(20) == 0,
+                        LOCATIONS[random.nextInt(LOCATIONS.length)]));
+            }
+            result.add(new GreatCalendar("Employee " + c, calendarEntries));
+        }
+        return result;
+    }
+}
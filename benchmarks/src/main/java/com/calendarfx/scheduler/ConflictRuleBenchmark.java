@@ -0,0 +1,63 @@
+package com.calendarfx.scheduler;
+
+import org.openjdk.jmh.annotations.*;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Compiling {@link ConflictRule} sets and checking every calendar of the dataset against them.
+ */
+@BenchmarkMode({Mode.Throughput, Mode.SampleTime})
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(value = 1, jvmArgsAppend = "-Xmx8g")
+@State(Scope.Benchmark)
+public class ConflictRuleBenchmark {
+
+    private static final String[] JOBS = {"nurse", "driver", "cook", "cashier"};
+    private static final String[] SHIFTS = {"nineToFive", "nineToSix", "eightToFour", "eightToFive"};
+
+    @Param({"1", "10", "100", "1000"})
+    public int rules;
+
+    private List<ConflictRule> ruleSet;
+    private List<Employee> employees;
+    private ConflictRuleEngine engine;
+
+    @Setup(Level.Trial)
+    public void prepare(BenchmarkDataset dataset) {
+        ConflictRule.FieldType[] fields = ConflictRule.FieldType.values();
+        ConflictRule.Operator[] operators = ConflictRule.Operator.values();
+        ruleSet = new ArrayList<>(rules);
+        for (int i = 0; i < rules; i++) {
+            ConflictRule.FieldType field = fields[i % fields.length];
+            ConflictRule.Operator operator = operators[(i / fields.length) % operators.length];
+            String value = switch (field) {
+                case NAME -> "Employee " + i;
+                case WORKING_HOURS -> String.valueOf(10 + i % 40);
+                case PREFERRED_SHIFT -> SHIFTS[i % SHIFTS.length];
+                case JOB -> JOBS[i % JOBS.length];
+            };
+            ruleSet.add(new ConflictRule(field, operator, value, true));
+        }
+        employees = new ArrayList<>(dataset.greatCalendars.size());
+        for (int i = 0; i < dataset.greatCalendars.size(); i++) {
+            employees.add(new Employee(dataset.greatCalendars.get(i).getName(), 20 + i % 45,
+                    JOBS[i % JOBS.length], null, 40, SHIFTS[i % SHIFTS.length]));
+        }
+        engine = new ConflictRuleEngine(ruleSet);
+    }
+
+    @Benchmark
+    public ConflictRuleEngine compile() {
+        return new ConflictRuleEngine(ruleSet);
+    }
+
+    @Benchmark
+    public List<ConflictRuleEngine.Conflict> check(BenchmarkDataset dataset) {
+        return engine.check(employees, dataset.greatCalendars);
+    }
+}
@@ -0,0 +1,65 @@
+package com.calendarfx.scheduler;
+
+import org.openjdk.jmh.annotations.*;
+import org.openjdk.jmh.infra.Blackhole;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.Comparator;
+import java.util.concurrent.TimeUnit;
+import java.util.stream.Stream;
+
+/**
+ * Saving and loading through {@link PersistenceManager}, in the JSON snapshot and the columnar format.
+ * Every fork writes to its own data directory below {@code target}, never to the user's data.
+ */
+@BenchmarkMode({Mode.Throughput, Mode.SampleTime})
+@OutputTimeUnit(TimeUnit.SECONDS)
+@Warmup(iterations = 2, time = 5)
+@Measurement(iterations = 5, time = 5)
+@Fork(value = 1, jvmArgsAppend = {"-Xmx8g", "-Dcalendar.dataDir=target/benchmark-data"})
+@State(Scope.Benchmark)
+public class PersistenceBenchmark {
+
+    private PersistenceManager persistenceManager;
+
+    @Setup(Level.Trial)
+    public void prepare(BenchmarkDataset dataset) {
+        persistenceManager = new PersistenceManager(PersistenceManager.StorageMode.SINGLE_FILE);
+        persistenceManager.saveCalendars(dataset.greatCalendars);
+        persistenceManager.saveColumnar(dataset.greatCalendars);
+    }
+
+    @TearDown(Level.Trial)
+    public void cleanUp() throws IOException {
+        Path directory = Path.of(System.getProperty(PersistenceManager.DATA_DIR_PROPERTY));
+        try (Stream<Path> files = Files.walk(directory)) {
+            files.sorted(Comparator.reverseOrder()).forEach(file -> file.toFile().delete());
+        }
+    }
+
+    @Benchmark
+    public void saveJson(BenchmarkDataset dataset) {
+        persistenceManager.saveCalendars(dataset.greatCalendars);
+    }
+
+    @Benchmark
+    public void loadJson(Blackhole blackhole) {
+        persistenceManager.loadCalendars(blackhole::consume);
+    }
+
+    @Benchmark
+    public void saveColumnar(BenchmarkDataset dataset) {
+        persistenceManager.saveColumnar(dataset.greatCalendars);
+    }
+
+    @Benchmark
+    public void loadColumnar(Blackhole blackhole) {
+        try (ColumnarEntryStore store = persistenceManager.openColumnar()) {
+            blackhole.consume(store.readAll());
+        } catch (IOException e) {
+            throw new RuntimeException(e);
+        }
+    }
+}
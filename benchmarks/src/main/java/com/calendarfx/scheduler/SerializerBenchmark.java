@@ -0,0 +1,62 @@
+package com.calendarfx.scheduler;
+
+import com.calendarfx.model.Calendar;
+import com.calendarfx.model.Entry;
+import org.openjdk.jmh.annotations.*;
+import org.openjdk.jmh.infra.Blackhole;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Conversions between the persisted model and CalendarFX. Every invocation converts the whole dataset.
+ */
+@BenchmarkMode({Mode.Throughput, Mode.SampleTime})
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(value = 1, jvmArgsAppend = "-Xmx8g")
+@State(Scope.Benchmark)
+public class SerializerBenchmark {
+
+    private final GreatCalendarSerializer serializer = new GreatCalendarSerializer();
+    private List<Entry<?>> fxEntries;
+    private List<Calendar> fxCalendars;
+
+    @Setup(Level.Trial)
+    public void convert(BenchmarkDataset dataset) {
+        fxEntries = new ArrayList<>(dataset.allEntries.size());
+        dataset.allEntries.forEach(entry -> fxEntries.add(serializer.toEntry(entry)));
+        fxCalendars = new ArrayList<>(dataset.greatCalendars.size());
+        dataset.greatCalendars.forEach(calendar -> fxCalendars.add(serializer.toCalendar(calendar)));
+    }
+
+    @Benchmark
+    public void toEntry(BenchmarkDataset dataset, Blackhole blackhole) {
+        for (GreatCalendar.GreatEntry entry : dataset.allEntries) {
+            blackhole.consume(serializer.toEntry(entry));
+        }
+    }
+
+    @Benchmark
+    public void fromEntry(Blackhole blackhole) {
+        for (Entry<?> entry : fxEntries) {
+            blackhole.consume(serializer.fromEntry(entry));
+        }
+    }
+
+    @Benchmark
+    public void toCalendar(BenchmarkDataset dataset, Blackhole blackhole) {
+        for (GreatCalendar calendar : dataset.greatCalendars) {
+            blackhole.consume(serializer.toCalendar(calendar));
+        }
+    }
+
+    @Benchmark
+    public void fromCalendar(Blackhole blackhole) {
+        for (Calendar calendar : fxCalendars) {
+            blackhole.consume(serializer.fromCalendar(calendar));
+        }
+    }
+}
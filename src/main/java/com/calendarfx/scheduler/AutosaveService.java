@@ -0,0 +1,119 @@
+package com.calendarfx.scheduler;
+
+import java.io.Closeable;
+import java.time.Duration;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.ScheduledFuture;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Coalesces bursts of save requests and runs them on a background thread once changes have been
+ * quiet for a while. Requests share a key per kind of data; a newer request replaces the pending one
+ * and postpones it, but never beyond the maximum delay after the first unsaved change.
+ */
+public class AutosaveService implements Closeable {
+
+    public static final String DELAY_PROPERTY = "calendar.autosaveDelayMs";
+    public static final long DEFAULT_DELAY_MS = 5_000;
+    private static final long MAX_DELAY_FACTOR = 12;
+
+    private final long quietMillis;
+    private final long maxDelayMillis;
+    private final ScheduledExecutorService scheduler = Executors.newSingleThreadScheduledExecutor(r -> {
+        Thread thread = new Thread(r, "autosave");
+        thread.setDaemon(true);
+        return thread;
+    });
+    private final Map<String, Pending> pending = new LinkedHashMap<>();
+    private boolean closed;
+
+    public AutosaveService(Duration quietPeriod, Duration maxDelay) {
+        this.quietMillis = quietPeriod.toMillis();
+        this.maxDelayMillis = Math.max(quietMillis, maxDelay.toMillis());
+    }
+
+    public static AutosaveService configured() {
+        long delay = Long.getLong(DELAY_PROPERTY, DEFAULT_DELAY_MS);
+        return new AutosaveService(Duration.ofMillis(delay), Duration.ofMillis(delay * MAX_DELAY_FACTOR));
+    }
+
+    // Never blocks on I/O, so it is safe to call from the FX thread
+    public synchronized void request(String key, Runnable save) {
+        if (closed) {
+            return;
+        }
+        long now = System.currentTimeMillis();
+        Pending current = pending.get(key);
+        long firstChange = current == null ? now : current.firstChange;
+        if (current != null) {
+            current.future.cancel(false);
+        }
+        long delay = Math.max(0, Math.min(quietMillis, firstChange + maxDelayMillis - now));
+        Pending next = new Pending(save, firstChange);
+        next.future = scheduler.schedule(() -> run(key, next), delay, TimeUnit.MILLISECONDS);
+        pending.put(key, next);
+    }
+
+    // Runs every pending save now and waits for them
+    public void flush() {
+        ScheduledFuture<?> last;
+        synchronized (this) {
+            for (Map.Entry<String, Pending> entry : pending.entrySet()) {
+                Pending waiting = entry.getValue();
+                if (waiting.future.cancel(false)) {
+                    String key = entry.getKey();
+                    waiting.future = scheduler.schedule(() -> run(key, waiting), 0, TimeUnit.MILLISECONDS);
+                }
+            }
+            // The scheduler is single threaded, so a marker queued last completes after every pending save
+            last = scheduler.schedule(() -> { }, 0, TimeUnit.MILLISECONDS);
+        }
+        try {
+            last.get();
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        } catch (ExecutionException e) {
+            System.out.println("Autosave flush failed: " + e.getMessage());
+        }
+    }
+
+    @Override
+    public void close() {
+        if (!scheduler.isShutdown()) {
+            flush();
+        }
+        synchronized (this) {
+            closed = true;
+        }
+        scheduler.shutdown();
+    }
+
+    private void run(String key, Pending save) {
+        synchronized (this) {
+            if (pending.get(key) != save) {
+                return;
+            }
+            pending.remove(key);
+        }
+        try {
+            save.action.run();
+        } catch (RuntimeException e) {
+            System.out.println("Autosave of " + key + " failed: " + e.getMessage());
+        }
+    }
+
+    private static final class Pending {
+        private final Runnable action;
+        private final long firstChange;
+        private ScheduledFuture<?> future;
+
+        private Pending(Runnable action, long firstChange) {
+            this.action = action;
+            this.firstChange = firstChange;
+        }
+    }
+}
@@ -0,0 +1,202 @@
+package com.calendarfx.scheduler;
+
+import java.time.LocalDate;
+import java.time.LocalDateTime;
+import java.time.ZoneOffset;
+
+/**
+ * Busy/free state of one calendar as a {@code long[]} bitset of {@link #SLOT_MINUTES} minute slots,
+ * starting at midnight of {@link #getOrigin()}. A slot is busy when any entry overlaps part of it;
+ * full day entries block their whole days. Range checks work on whole words.
+ */
+public class AvailabilityBitset {
+
+    public static final int SLOT_MINUTES = 15;
+    public static final int SLOTS_PER_DAY = 24 * 60 / SLOT_MINUTES;
+    private static final long SLOT_SECONDS = SLOT_MINUTES * 60L;
+
+    private final LocalDateTime origin;
+    private final long originSecond;
+    private final int slots;
+    private final long[] words;
+
+    public AvailabilityBitset(LocalDate from, int days) {
+        this.origin = from.atStartOfDay();
+        this.originSecond = origin.toEpochSecond(ZoneOffset.UTC);
+        this.slots = days * SLOTS_PER_DAY;
+        this.words = new long[(slots + Long.SIZE - 1) / Long.SIZE];
+    }
+
+    public LocalDateTime getOrigin() {
+        return origin;
+    }
+
+    public LocalDateTime getEnd() {
+        return origin.plusMinutes((long) slots * SLOT_MINUTES);
+    }
+
+    public int getSlots() {
+        return slots;
+    }
+
+    public boolean covers(LocalDateTime from, LocalDateTime to) {
+        return !from.isBefore(origin) && !to.isAfter(getEnd());
+    }
+
+    // ---------------------------------------------------------
+    // 1. UPDATES
+    // ---------------------------------------------------------
+
+    public synchronized void add(GreatCalendar.GreatEntry entry) {
+        if (entry.getStart() == null || entry.getEnd() == null) {
+            return;
+        }
+        LocalDateTime start = entry.getStart();
+        LocalDateTime end = entry.getEnd();
+        if (entry.isFullDay()) {
+            start = start.toLocalDate().atStartOfDay();
+            end = end.toLocalDate().plusDays(1).atStartOfDay();
+        }
+        int from = clamp(slotFloor(start));
+        int to = clamp(Math.max(slotCeil(end), slotFloor(start) + 1));
+        setRange(words, from, to);
+    }
+
+    // Clears the slots touched by [from, to) and sets them again from the entries still in the calendar
+    public synchronized void rebuild(LocalDateTime from, LocalDateTime to, GreatCalendar calendar) {
+        int first = clamp(slotFloor(from));
+        int last = clamp(Math.max(slotCeil(to), slotFloor(from) + 1));
+        if (first >= last) {
+            return;
+        }
+        clearRange(words, first, last);
+        calendar.forEachOverlapping(slotTime(first).minusDays(1), slotTime(last).plusDays(1), entry -> {
+            if (entry.isFullDay() || (entry.getStart().isBefore(slotTime(last)) && entry.getEnd().isAfter(slotTime(first)))) {
+                add(entry);
+            }
+        });
+    }
+
+    // ---------------------------------------------------------
+    // 2. QUERIES
+    // ---------------------------------------------------------
+
+    public synchronized boolean isBusy(LocalDateTime time) {
+        int slot = slotFloor(time);
+        return slot >= 0 && slot < slots && (words[slot >>> 6] & (1L << slot)) != 0;
+    }
+
+    public synchronized boolean isFree(LocalDateTime from, LocalDateTime to) {
+        return !anySet(words, clamp(slotFloor(from)), clamp(slotCeil(to)));
+    }
+
+    // ORs the busy bits of the slots starting at from (slot aligned) into target, bit 0 being from's slot
+    public synchronized void orInto(LocalDateTime from, long[] target, int count) {
+        int base = slotFloor(from);
+        for (int i = 0; i * Long.SIZE < count; i++) {
+            long bits = wordAt(base + i * Long.SIZE);
+            int remaining = count - i * Long.SIZE;
+            if (remaining < Long.SIZE) {
+                bits &= (1L << remaining) - 1;
+            }
+            target[i] |= bits;
+        }
+    }
+
+    // 64 slots starting at an arbitrary bit index; slots outside the horizon read as free
+    private long wordAt(int bit) {
+        if (bit >= slots || bit <= -Long.SIZE) {
+            return 0;
+        }
+        if (bit < 0) {
+            return words[0] << -bit;
+        }
+        int index = bit >>> 6;
+        int offset = bit & 63;
+        long low = words[index] >>> offset;
+        if (offset == 0 || index + 1 >= words.length) {
+            return low;
+        }
+        return low | (words[index + 1] << (Long.SIZE - offset));
+    }
+
+    public int slotFloor(LocalDateTime time) {
+        return (int) Math.floorDiv(time.toEpochSecond(ZoneOffset.UTC) - originSecond, SLOT_SECONDS);
+    }
+
+    public int slotCeil(LocalDateTime time) {
+        return (int) -Math.floorDiv(originSecond - time.toEpochSecond(ZoneOffset.UTC), SLOT_SECONDS);
+    }
+
+    public LocalDateTime slotTime(int slot) {
+        return origin.plusMinutes((long) slot * SLOT_MINUTES);
+    }
+
+    private int clamp(int slot) {
+        return Math.max(0, Math.min(slots, slot));
+    }
+
+    // ---------------------------------------------------------
+    // 3. WORD OPERATIONS
+    // ---------------------------------------------------------
+
+    static void setRange(long[] words, int from, int to) {
+        if (from >= to) {
+            return;
+        }
+        int first = from >>> 6;
+        int last = (to - 1) >>> 6;
+        long firstMask = -1L << from;
+        long lastMask = -1L >>> -to;
+        if (first == last) {
+            words[first] |= firstMask & lastMask;
+            return;
+        }
+        words[first] |= firstMask;
+        for (int i = first + 1; i < last; i++) {
+            words[i] = -1L;
+        }
+        words[last] |= lastMask;
+    }
+
+    static void clearRange(long[] words, int from, int to) {
+        if (from >= to) {
+            return;
+        }
+        int first = from >>> 6;
+        int last = (to - 1) >>> 6;
+        long firstMask = -1L << from;
+        long lastMask = -1L >>> -to;
+        if (first == last) {
+            words[first] &= ~(firstMask & lastMask);
+            return;
+        }
+        words[first] &= ~firstMask;
+        for (int i = first + 1; i < last; i++) {
+            words[i] = 0;
+        }
+        words[last] &= ~lastMask;
+    }
+
+    static boolean anySet(long[] words, int from, int to) {
+        if (from >= to) {
+            return false;
+        }
+        int first = from >>> 6;
+        int last = (to - 1) >>> 6;
+        long firstMask = -1L << from;
+        long lastMask = -1L >>> -to;
+        if (first == last) {
+            return (words[first] & firstMask & lastMask) != 0;
+        }
+        if ((words[first] & firstMask) != 0 || (words[last] & lastMask) != 0) {
+            return true;
+        }
+        for (int i = first + 1; i < last; i++) {
+            if (words[i] != 0) {
+                return true;
+            }
+        }
+        return false;
+    }
+}
@@ -0,0 +1,124 @@
+package com.calendarfx.scheduler;
+
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.List;
+
+/**
+ * Availability queries across several calendars, combining their {@link AvailabilityBitset}s word by
+ * word. All ranges are widened to whole {@link AvailabilityBitset#SLOT_MINUTES} minute slots.
+ */
+public class AvailabilityMatrix {
+
+    private final List<GreatCalendar> calendars;
+
+    public AvailabilityMatrix(Collection<GreatCalendar> calendars) {
+        this.calendars = List.copyOf(calendars);
+    }
+
+    public List<GreatCalendar> getCalendars() {
+        return calendars;
+    }
+
+    // A name none of the calendars carries is not free
+    public boolean isFree(String calendarName, LocalDateTime from, LocalDateTime to) {
+        boolean found = false;
+        for (GreatCalendar calendar : calendars) {
+            if (calendar.getName().equals(calendarName)) {
+                if (!calendar.isFree(from, to)) {
+                    return false;
+                }
+                found = true;
+            }
+        }
+        return found;
+    }
+
+    public int busyCount(LocalDateTime time) {
+        LocalDateTime next = time.plusMinutes(AvailabilityBitset.SLOT_MINUTES);
+        int busy = 0;
+        for (GreatCalendar calendar : calendars) {
+            if (calendar.availability(time, next).isBusy(time)) {
+                busy++;
+            }
+        }
+        return busy;
+    }
+
+    public List<GreatCalendar> freeCalendars(LocalDateTime from, LocalDateTime to) {
+        List<GreatCalendar> free = new ArrayList<>();
+        for (GreatCalendar calendar : calendars) {
+            if (calendar.isFree(from, to)) {
+                free.add(calendar);
+            }
+        }
+        return free;
+    }
+
+    // Slots of [from, to) in which at least one calendar is busy, bit 0 being the slot containing from
+    public long[] busyUnion(LocalDateTime from, LocalDateTime to) {
+        int count = slotCount(from, to);
+        long[] union = new long[(count + Long.SIZE - 1) / Long.SIZE];
+        for (GreatCalendar calendar : calendars) {
+            calendar.availability(from, to).orInto(from, union, count);
+        }
+        return union;
+    }
+
+    // Number of busy calendars per slot of [from, to)
+    public int[] busyCounts(LocalDateTime from, LocalDateTime to) {
+        int count = slotCount(from, to);
+        int[] counts = new int[count];
+        long[] bits = new long[(count + Long.SIZE - 1) / Long.SIZE];
+        for (GreatCalendar calendar : calendars) {
+            Arrays.fill(bits, 0);
+            calendar.availability(from, to).orInto(from, bits, count);
+            for (int w = 0; w < bits.length; w++) {
+                long word = bits[w];
+                while (word != 0) {
+                    counts[w * Long.SIZE + Long.numberOfTrailingZeros(word)]++;
+                    word &= word - 1;
+                }
+            }
+        }
+        return counts;
+    }
+
+    // Number of calendars busy somewhere in the window of width slots starting at each slot of [from, to)
+    public int[] blockedCounts(LocalDateTime from, LocalDateTime to, int width) {
+        int count = slotCount(from, to);
+        int span = count + width - 1;
+        int[] counts = new int[count];
+        long[] bits = new long[(span + Long.SIZE - 1) / Long.SIZE];
+        LocalDateTime end = from.plusMinutes((long) span * AvailabilityBitset.SLOT_MINUTES);
+        for (GreatCalendar calendar : calendars) {
+            Arrays.fill(bits, 0);
+            calendar.availability(from, end).orInto(from, bits, span);
+            // Walking backwards, a window is blocked when the nearest busy slot at or after its start lies inside it
+            int nextBusy = Integer.MAX_VALUE;
+            for (int slot = span - 1; slot >= 0; slot--) {
+                if ((bits[slot >>> 6] & (1L << slot)) != 0) {
+                    nextBusy = slot;
+                }
+                if (slot < count && nextBusy - slot < width) {
+                    counts[slot]++;
+                }
+            }
+        }
+        return counts;
+    }
+
+    // Moves every calendar's availability horizon over [from, to) up front, so later queries inside it never rebuild
+    public void cover(LocalDateTime from, LocalDateTime to) {
+        for (GreatCalendar calendar : calendars) {
+            calendar.availability(from, to);
+        }
+    }
+
+    public static int slotCount(LocalDateTime from, LocalDateTime to) {
+        AvailabilityBitset reference = new AvailabilityBitset(from.toLocalDate(), 0);
+        return Math.max(0, reference.slotCeil(to) - reference.slotFloor(from));
+    }
+}
@@ -4,6 +4,7 @@ import com.calendarfx.model.Calendar;
 import com.calendarfx.model.Calendar.Style;
 import com.calendarfx.model.CalendarSource;
 import com.calendarfx.model.Entry;
+import com.calendarfx.model.LoadEvent;
 import com.calendarfx.view.CalendarView;
 import com.calendarfx.view.CalendarView.Page;
 import com.calendarfx.view.DayView;
@@ -13,52 +14,121 @@ import com.calendarfx.view.WeekView;
 import com.dlsc.formsfx.model.structure.*;
 import fr.brouillard.oss.cssfx.CSSFX;
 import javafx.application.Application;
+import javafx.application.Platform;
+import javafx.beans.binding.Bindings;
 import javafx.event.ActionEvent;
 import javafx.event.EventHandler;
 import javafx.geometry.Pos;
 import javafx.scene.Scene;
+import javafx.scene.control.Alert;
 import javafx.scene.control.Button;
+import javafx.scene.control.Label;
+import javafx.scene.control.TextArea;
+import javafx.scene.control.ProgressBar;
 import javafx.scene.control.Tooltip;
+import javafx.scene.input.KeyCode;
+import javafx.scene.input.KeyCodeCombination;
+import javafx.scene.input.KeyCombination;
 import javafx.scene.layout.BorderPane;
 import javafx.scene.layout.HBox;
+import javafx.stage.FileChooser;
 import javafx.stage.Stage;
 
+import java.io.File;
+import java.nio.file.Path;
+import java.time.LocalDate;
 import java.time.LocalTime;
+import java.time.YearMonth;
 import java.util.*;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.Semaphore;
 import java.util.concurrent.ThreadLocalRandom;
+import java.util.function.Consumer;
 
 public class CalendarApp extends Application {
 
     public static final String UNKNOWN = "Unknown";
-    public static final String NAME_LABEL = "Name";
     public static final String GREAT_BUTTON_STYLE = "-fx-background-color: green; -fx-text-fill: white; -fx-font-weight: bold; -fx-font-size: 20px;";
     private static final int ENTRY_CLICK_COUNT = 2;
     private static final int WIDTH = 1300;
     private static final int HEIGHT = 1000;
     private static final String TITLE = "Calendar";
     private static final int BUTTON_SPACING = 10;
+    private static final int MONTHS_AROUND_VIEW = 1;
+    // Imported entries reach the FX thread in batches, with only a few batches queued at a time
+    private static final int IMPORT_BATCH_SIZE = 2_000;
+    private static final int IMPORT_QUEUED_BATCHES = 4;
+    // Ctrl+Shift+M shows all metrics while running
+    private static final KeyCombination METRICS_SHORTCUT =
+            new KeyCodeCombination(KeyCode.M, KeyCombination.SHORTCUT_DOWN, KeyCombination.SHIFT_DOWN);
     private static List<GreatCalendar> cachedCalendars;
     private static PersistenceManager persistenceManager;
     private static EventHandler<ActionEvent> cachedHandler;
     private final List<String> preferredShift = Arrays.asList("nineToFive", "nineToSix", "eightToFour", "eightToFive");
-    private static final  Map<String, Object> personForms = new HashMap<>();
+    private final ConflictRuleProvider conflictRuleProvider =
+            new ConflictRuleProvider(preferredShift, WIDTH, HEIGHT, BUTTON_SPACING);
+    private static EmployeeRegistry employees;
+    private static final AutosaveService autosave = AutosaveService.configured();
     private static CalendarSource familyCalendarSource;
+    private static IncrementalConflictChecker conflictChecker;
+    private static JournalRecorder journalRecorder;
+    private static ViewportEntryMaterializer materializer;
+    private static CalendarStartupLoader startupLoader;
+    private static final List<JournalRecord> deferredRecords = new ArrayList<>();
+    private static final CalendarSnapshots snapshots = new CalendarSnapshots();
+    private static final EntrySearchIndex searchIndex = new EntrySearchIndex();
+    private final ProgressBar startupProgress = new ProgressBar();
+    private final FreeSlotFormProvider freeSlotFormProvider = new FreeSlotFormProvider(WIDTH / 2, HEIGHT / 3, BUTTON_SPACING);
 
     @Override
     public void start(Stage primaryStage) {
         CalendarView calendarView = setupCalendarView();
 
         familyCalendarSource = new CalendarSource("Family");
+        searchIndex.attach(familyCalendarSource);
 
         calendarView.getCalendarSources().setAll(familyCalendarSource);
         calendarView.setRequestedTime(LocalTime.now());
 
-        // Add cached calendars
-        if( cachedCalendars != null && !cachedCalendars.isEmpty()){
-            cachedCalendars.forEach(calendar -> {
-                Calendar newCalendar = createCalendar( calendar.getName(), calendar.entries );
-                familyCalendarSource.getCalendars().add(newCalendar);
-            });
+        if (ViewportEntryMaterializer.isEnabled()) {
+            materializer = new ViewportEntryMaterializer(persistenceManager.calendarSerializer,
+                    ViewportEntryMaterializer.configuredPrefetchDays(), CalendarApp::runUnrecorded);
+            calendarView.addEventHandler(LoadEvent.LOAD, evt -> materializer.onLoad(evt));
+        }
+
+        cachedCalendars = new ArrayList<>();
+        startupLoader = new CalendarStartupLoader(CalendarApp::loadStoredCalendars,
+                calendar -> {
+                    // Still on the loader thread, before the calendar can be edited
+                    snapshots.putCalendar(calendar);
+                    // In lazy mode only the entries around the displayed dates become CalendarFX entries
+                    return createCalendar(calendar.getName(), materializer == null ? calendar.entries : null);
+                },
+                CalendarApp::addLoadedCalendars);
+        startupProgress.progressProperty().bind(startupLoader.progressProperty());
+        startupProgress.visibleProperty().bind(startupLoader.runningProperty());
+        startupProgress.managedProperty().bind(startupLoader.runningProperty());
+
+        employees = persistenceManager.loadEmployees();
+        conflictChecker = new IncrementalConflictChecker(familyCalendarSource, employees::get);
+        if (materializer != null) {
+            // Weekly hours have to come from all entries, not the ones materialized around the viewport
+            materializer.addBackingListener(conflictChecker);
+            // Searches have to find entries far from the displayed dates too
+            searchIndex.attach(materializer);
+        }
+        journalRecorder = new JournalRecorder(familyCalendarSource,
+                persistenceManager.calendarSerializer, CalendarApp::recordChange);
+        startupLoader.runningProperty().addListener((obs, was, running) -> {
+            if (!running) {
+                deferredRecords.forEach(CalendarApp::recordChange);
+                deferredRecords.clear();
+                startSync();
+            }
+        });
+
+        if (persistenceManager.isSharded()) {
+            calendarView.dateProperty().addListener((obs, old, date) -> loadMonthsAround(date));
         }
 
         EmployeeFormProvider formProvider =
@@ -68,39 +138,68 @@ public class CalendarApp extends Application {
             Form form = formProvider.createForm();
             formProvider.showFormWindow(primaryStage, form, () -> {
 
-                List<? extends DataField<?, ?, ?>> dataFields = getDataFields(form);
-                dataFields.forEach(df -> personForms.put(df.getLabel(), df.getValue()));
-
-                String name = dataFields.stream()
-                        .filter(df -> NAME_LABEL.equals(df.getLabel()))
-                        .map(DataField::getValue)
-                        .map(Object::toString)
-                        .findFirst()
-                        .orElse(UNKNOWN);
-
-                Calendar calendar = createCalendar(name, List.of() );
-                familyCalendarSource.getCalendars().add(calendar);
-                GreatCalendar gc = persistenceManager.calendarSerializer.fromCalendar(calendar);
-                cachedCalendars.add(gc);
+                Employee employee = EmployeeFormProvider.toEmployee(form);
+                String name = employee.getName();
+                employees.put(employee);
+                autosave.request(Employee.class.getSimpleName(), () -> persistenceManager.saveEmployees(employees));
+
+                // Saving a known person updates their details instead of adding a second calendar
+                if (findCalendar(name) != null) {
+                    conflictChecker.refreshEmployee(name);
+                } else {
+                    addCalendar(name);
+                }
                 setupPrimaryStage(primaryStage, calendarView, null);
             });
         };
 
         setupPrimaryStage(primaryStage, calendarView, addPersonHandler);
+        startupLoader.start();
     }
 
-    private static List<? extends DataField<?, ?, ?>> getDataFields(Form form) {
-        List<? extends DataField<?, ?, ?>> dataFields = form.getFields().stream()
-                .map(f -> switch (f) {
-                    case DataField<?, ?, ?> dataField -> dataField;
-                    default -> null;
-                })
-                .filter(Objects::nonNull)
-                .toList();
-        return dataFields;
+    private static Calendar addCalendar(String name) {
+        Calendar calendar = createCalendar(name, List.of() );
+        familyCalendarSource.getCalendars().add(calendar);
+        GreatCalendar gc = persistenceManager.calendarSerializer.fromCalendar(calendar);
+        cachedCalendars.add(gc);
+        if (materializer != null) {
+            materializer.bind(calendar, gc);
+        }
+        return calendar;
+    }
+
+    private static Calendar findCalendar(String name) {
+        return familyCalendarSource.getCalendars().stream()
+                .filter(calendar -> name.equals(calendar.getName()))
+                .findFirst()
+                .orElse(null);
+    }
+
+    private static void loadStoredCalendars(Consumer<GreatCalendar> consumer) {
+        if (persistenceManager.isSharded()) {
+            LocalDate today = LocalDate.now();
+            persistenceManager.loadInformation(null,
+                    today.minusMonths(MONTHS_AROUND_VIEW), today.plusMonths(MONTHS_AROUND_VIEW)).forEach(consumer);
+        } else {
+            persistenceManager.loadCalendars(consumer);
+        }
+        // Still on the loader thread, so the first edit does not open the journal on the FX thread
+        persistenceManager.openJournal();
+    }
+
+    private static void addLoadedCalendars(List<CalendarStartupLoader.Loaded> batch) {
+        List<Calendar> calendars = batch.stream().map(CalendarStartupLoader.Loaded::calendar).toList();
+        batch.forEach(loaded -> cachedCalendars.add(loaded.source()));
+        // Stored calendars are not edits, so they must not be journaled again
+        runUnrecorded(() -> familyCalendarSource.getCalendars().addAll(calendars));
+        if (materializer != null) {
+            batch.forEach(loaded -> materializer.bind(loaded.calendar(), loaded.source()));
+        }
     }
 
     private void setupPrimaryStage(Stage primaryStage, CalendarView calendarView, EventHandler<ActionEvent> handler) {
+        SchedulerEvents.Render event = SchedulerEvents.render("setupPrimaryStage", null);
+        event.calendars = familyCalendarSource.getCalendars().size();
         Button addButton = new Button("+");
         if ( handler == null ) {
             handler = this.cachedHandler;
@@ -113,13 +212,47 @@ public class CalendarApp extends Application {
         BorderPane root = new BorderPane();
         root.setCenter(calendarView);
 
+        Button rulesButton = new Button("Rules");
+        rulesButton.setTooltip(new Tooltip("Edit conflict rules"));
+        rulesButton.setOnAction(e -> {
+            Stage rulesStage = new Stage();
+            conflictRuleProvider.showFormWindow(rulesStage, conflictRuleProvider.createForm(),
+                    () -> conflictChecker.setEngine(conflictRuleProvider.compileRules()));
+        });
+
+        Button freeSlotButton = new Button("Free slot");
+        freeSlotButton.setTooltip(new Tooltip("Find the earliest time enough people are free"));
+        freeSlotButton.setOnAction(e -> {
+            Stage freeSlotStage = new Stage();
+            freeSlotFormProvider.showFormWindow(freeSlotStage, freeSlotFormProvider.createForm(),
+                    () -> findFreeSlot(freeSlotFormProvider.createQuery()));
+        });
+
+        Button importButton = new Button("Import");
+        importButton.setTooltip(new Tooltip("Import shifts from an iCalendar (.ics) file"));
+        importButton.setOnAction(e -> {
+            FileChooser chooser = new FileChooser();
+            chooser.setTitle("Import shifts");
+            chooser.getExtensionFilters().add(
+                    new FileChooser.ExtensionFilter("iCalendar", "*" + IcsCalendarReader.EXTENSION));
+            File file = chooser.showOpenDialog(primaryStage);
+            if (file != null) {
+                importIcs(file.toPath());
+            }
+        });
+
+        Label conflictLabel = new Label();
+        conflictLabel.textProperty().bind(
+                Bindings.size(conflictChecker.getConflicts()).asString("Conflicts: %d"));
+
         HBox appButtons = new HBox(BUTTON_SPACING);
-        appButtons.getChildren().add(addButton);
+        appButtons.getChildren().addAll(addButton, rulesButton, freeSlotButton, importButton, conflictLabel, startupProgress);
         appButtons.setAlignment(Pos.TOP_CENTER);
         root.setTop(appButtons);
 
         Scene scene = new Scene(root);
         CSSFX.start(scene);
+        scene.getAccelerators().put(METRICS_SHORTCUT, CalendarApp::showMetrics);
 
         primaryStage.setTitle(TITLE);
         primaryStage.setScene(scene);
@@ -130,9 +263,23 @@ public class CalendarApp extends Application {
 
         //Store handler in cache
         this.cachedHandler = handler;
+        event.finish();
+    }
+
+    private static void showMetrics() {
+        String metrics = Metrics.snapshot();
+        System.out.print(metrics);
+        Alert alert = new Alert(Alert.AlertType.INFORMATION);
+        alert.setTitle("Metrics");
+        alert.setHeaderText("Counters and latencies since start");
+        TextArea text = new TextArea(metrics);
+        text.setEditable(false);
+        alert.getDialogPane().setContent(text);
+        alert.show();
     }
 
     private static CalendarView setupCalendarView() {
+        SchedulerEvents.Render event = SchedulerEvents.render("setupCalendarView", null);
         CalendarView calendarView = new CalendarView(Page.DAY, Page.WEEK, Page.MONTH );
         calendarView.showWeekPage();
         calendarView.setEnableTimeZoneSupport(false);
@@ -144,11 +291,15 @@ public class CalendarApp extends Application {
         detailedWeekView.setShowToday(true);
         detailedWeekView.setEarlyLateHoursStrategy(EarlyLateHoursStrategy.HIDE);
         WeekView weekView = detailedWeekView.getWeekView();
+        event.finish();
         return calendarView;
     }
 
     private static Calendar createCalendar(String name, List<GreatCalendar.GreatEntry> entries ) {
-        Calendar calendar = new Calendar(name);
+        SchedulerEvents.Render event = SchedulerEvents.render("createCalendar", name);
+        event.calendars = 1;
+        event.entries = entries == null ? 0 : entries.size();
+        Calendar calendar = new IndexedCalendar<>(name, searchIndex);
         calendar.setShortName(name.substring(0,1));
 
         if( entries != null && !entries.isEmpty() ) {
@@ -165,19 +316,303 @@ public class CalendarApp extends Application {
         Style randomStyle = (Style) Arrays.stream(Style.values()).toArray()[idx];
         calendar.setStyle(randomStyle);
 
+        event.finish();
         return calendar;
     }
 
+    private static void findFreeSlot(FreeSlotFinder.Query query) {
+        CompletableFuture.supplyAsync(() -> new FreeSlotFinder(snapshots.current().calendars()).findEarliest(query))
+                .thenAccept(slot -> Platform.runLater(() -> {
+                    Alert alert = new Alert(Alert.AlertType.INFORMATION);
+                    alert.setTitle("Free Slot Finder");
+                    if (slot.isPresent()) {
+                        alert.setHeaderText(slot.get().start() + " - " + slot.get().end());
+                        alert.setContentText("Free: " + String.join(", ", slot.get().freeCalendars()));
+                    } else {
+                        alert.setHeaderText("No free slot found");
+                        alert.setContentText("No window of " + query.length().toMinutes() + " minutes with "
+                                + query.minimumFree() + " free calendars between " + query.from() + " and " + query.to());
+                    }
+                    alert.show();
+                }));
+    }
+
+    // Parses on a background thread; the FX thread only adds one batch at a time, so the views stay responsive
+    private static void importIcs(Path file) {
+        Semaphore queued = new Semaphore(IMPORT_QUEUED_BATCHES);
+        Map<Calendar, Map<String, Entry<?>>> shownById = new HashMap<>();
+        CompletableFuture.supplyAsync(() -> {
+            Map<String, List<GreatCalendar.GreatEntry>> batch = new LinkedHashMap<>();
+            int[] counts = {0, 0};
+            persistenceManager.calendarSerializer.streamIcs(file, (name, entry) -> {
+                batch.computeIfAbsent(name, n -> new ArrayList<>()).add(entry);
+                counts[1]++;
+                if (++counts[0] == IMPORT_BATCH_SIZE) {
+                    handOverImported(new LinkedHashMap<>(batch), queued, shownById);
+                    batch.clear();
+                    counts[0] = 0;
+                }
+            });
+            handOverImported(batch, queued, shownById);
+            return counts[1];
+        }).whenComplete((count, error) -> Platform.runLater(() -> {
+            Alert alert = new Alert(error == null ? Alert.AlertType.INFORMATION : Alert.AlertType.ERROR);
+            alert.setTitle("Import");
+            alert.setHeaderText(error == null ? "Imported " + count + " entries" : "Import failed");
+            alert.setContentText(error == null ? file.toString() : error.getMessage());
+            alert.show();
+        }));
+    }
+
+    private static void handOverImported(Map<String, List<GreatCalendar.GreatEntry>> batch, Semaphore queued,
+                                         Map<Calendar, Map<String, Entry<?>>> shownById) {
+        if (batch.isEmpty()) {
+            return;
+        }
+        queued.acquireUninterruptibly();
+        Platform.runLater(() -> {
+            try {
+                batch.forEach((name, entries) -> addImported(name, entries, shownById));
+            } finally {
+                queued.release();
+            }
+        });
+    }
+
+    // Entries replace those with the same id, so importing an updated feed again does not duplicate shifts
+    private static void addImported(String name, List<GreatCalendar.GreatEntry> entries,
+                                    Map<Calendar, Map<String, Entry<?>>> shownById) {
+        Calendar existing = findCalendar(name);
+        // A new calendar is journaled by the recorder as it is added; its entries are journaled below
+        Calendar calendar = existing != null ? existing : addCalendar(name);
+        Map<String, Entry<?>> shown = shownById.computeIfAbsent(calendar, c -> {
+            Map<String, Entry<?>> byId = new HashMap<>();
+            ((List<?>) c.findEntries("")).forEach(found -> {
+                Entry<?> entry = (Entry<?>) found;
+                if (!entry.isRecurrence() && entry.getId() != null) {
+                    byId.put(entry.getId(), entry);
+                }
+            });
+            return byId;
+        });
+        Set<String> ids = new HashSet<>();
+        List<Entry<?>> replaced = new ArrayList<>();
+        entries.forEach(entry -> {
+            ids.add(entry.getId());
+            Entry<?> old = shown.remove(entry.getId());
+            if (old != null) {
+                replaced.add(old);
+            }
+        });
+        runUnrecorded(() -> {
+            calendar.removeEntries(replaced);
+            if (materializer != null) {
+                materializer.removeBacked(calendar, ids);
+                materializer.addBacked(calendar, entries);
+            } else {
+                List<Entry<?>> added = entries.stream()
+                        .<Entry<?>>map(persistenceManager.calendarSerializer::toEntry)
+                        .toList();
+                added.forEach(entry -> shown.put(entry.getId(), entry));
+                calendar.addEntries(added);
+            }
+        });
+        entries.forEach(entry -> recordChange(JournalRecord.entryCreated(name, entry)));
+    }
+
+    private static void loadMonthsAround(LocalDate date) {
+        YearMonth month = YearMonth.from(date);
+        Map<Calendar, String> calendars = new LinkedHashMap<>();
+        familyCalendarSource.getCalendars().forEach(calendar -> calendars.put(calendar, calendar.getName()));
+
+        CompletableFuture.runAsync(() -> calendars.forEach((calendar, name) -> {
+            List<GreatCalendar.GreatEntry> entries = persistenceManager.loadMonths(name,
+                    month.minusMonths(MONTHS_AROUND_VIEW), month.plusMonths(MONTHS_AROUND_VIEW));
+            if (entries.isEmpty()) {
+                return;
+            }
+            snapshots.putEntries(name, entries);
+            if (materializer != null) {
+                Platform.runLater(() -> materializer.addBacked(calendar, entries));
+                return;
+            }
+            List<Entry<?>> loaded = entries.stream()
+                    .<Entry<?>>map(persistenceManager.calendarSerializer::toEntry)
+                    .toList();
+            // Entries coming from disk are not edits, so they must not be journaled again
+            Platform.runLater(() -> runUnrecorded(() -> calendar.addEntries(loaded)));
+        }));
+    }
+
+    // Edits made while loading wait until the load has read the journal, so they are appended after it
+    private static void recordChange(JournalRecord record) {
+        if (startupLoader.runningProperty().get()) {
+            deferredRecords.add(record);
+        } else {
+            persistenceManager.recordChange(record);
+            snapshots.record(record);
+            autosave.request(GreatCalendar.class.getSimpleName(), persistenceManager::checkpoint);
+        }
+    }
+
+    // ---------------------------------------------------------
+    // Synchronization with other planners
+    // ---------------------------------------------------------
+
+    private static void startSync() {
+        if (!persistenceManager.isSyncConfigured()) {
+            return;
+        }
+        persistenceManager.startSync(new SyncClient.Listener() {
+            @Override
+            public void onRemoteChanges(List<JournalRecord> records, long revision) {
+                Platform.runLater(() -> {
+                    applyRemote(records);
+                    persistenceManager.remoteChangesApplied(revision);
+                });
+            }
+
+            @Override
+            public void onConflicts(List<JournalRecord> serverRecords) {
+                Platform.runLater(() -> {
+                    applyRemote(serverRecords);
+                    Alert alert = new Alert(Alert.AlertType.WARNING);
+                    alert.setTitle("Sync Conflict");
+                    alert.setHeaderText(serverRecords.size() + " of your changes conflicted with another planner");
+                    alert.setContentText("Kept the other planner's version of:\n" + String.join("\n",
+                            serverRecords.stream().map(CalendarApp::describe).toList()));
+                    alert.show();
+                });
+            }
+
+            @Override
+            public void onRejected(List<JournalRecord> records, String reason) {
+                Platform.runLater(() -> {
+                    Alert alert = new Alert(Alert.AlertType.WARNING);
+                    alert.setTitle("Sync Rejected");
+                    alert.setHeaderText(records.size() + " of your changes were refused by the sync server");
+                    alert.setContentText(reason + "\n\nOnly kept locally:\n" + String.join("\n",
+                            records.stream().map(CalendarApp::describe).toList()));
+                    alert.show();
+                });
+            }
+        });
+    }
+
+    // Remote records are already journaled, so applying them must not record them again. Entry records are
+    // collected per calendar, with the last one per id winning, and applied with one scan of each calendar,
+    // so a large delta does not cost a scan per record on the FX thread
+    private static void applyRemote(List<JournalRecord> records) {
+        records.forEach(snapshots::record);
+        Map<Calendar, Map<String, GreatCalendar.GreatEntry>> byId = new LinkedHashMap<>();
+        Map<Calendar, List<GreatCalendar.GreatEntry>> withoutId = new LinkedHashMap<>();
+        runUnrecorded(() -> {
+            records.forEach(record -> {
+                Calendar calendar = findCalendar(record.getCalendar());
+                switch (record.getOperation()) {
+                    case CALENDAR_CREATED -> {
+                        if (calendar == null) {
+                            addCalendar(record.getCalendar());
+                        }
+                    }
+                    case CALENDAR_DELETED -> {
+                        if (calendar != null) {
+                            byId.remove(calendar);
+                            withoutId.remove(calendar);
+                            familyCalendarSource.getCalendars().remove(calendar);
+                            cachedCalendars.removeIf(gc -> gc.getName().equals(record.getCalendar()));
+                            if (materializer != null) {
+                                materializer.unbind(calendar);
+                            }
+                        }
+                    }
+                    case ENTRY_CREATED, ENTRY_UPDATED -> {
+                        if (calendar == null) {
+                            calendar = addCalendar(record.getCalendar());
+                        }
+                        if (record.getEntryId() == null) {
+                            withoutId.computeIfAbsent(calendar, c -> new ArrayList<>()).add(record.getEntry());
+                        } else {
+                            byId.computeIfAbsent(calendar, c -> new LinkedHashMap<>()).put(record.getEntryId(), record.getEntry());
+                        }
+                    }
+                    case ENTRY_DELETED -> {
+                        if (calendar != null && record.getEntryId() != null) {
+                            // A null entry removes the id without replacing it
+                            byId.computeIfAbsent(calendar, c -> new LinkedHashMap<>()).put(record.getEntryId(), null);
+                        }
+                    }
+                }
+            });
+            byId.forEach(CalendarApp::replaceEntries);
+            withoutId.forEach((calendar, entries) -> addEntries(calendar, entries));
+        });
+        autosave.request(GreatCalendar.class.getSimpleName(), persistenceManager::checkpoint);
+    }
+
+    // Removes the entries with these ids and adds the non-null replacements
+    private static void replaceEntries(Calendar calendar, Map<String, GreatCalendar.GreatEntry> replacements) {
+        // Entries spanning several days are listed once per day
+        Set<Entry<?>> replaced = Collections.newSetFromMap(new IdentityHashMap<>());
+        ((List<?>) calendar.findEntries("")).forEach(found -> {
+            Entry<?> entry = (Entry<?>) found;
+            if (!entry.isRecurrence() && entry.getId() != null && replacements.containsKey(entry.getId())) {
+                replaced.add(entry);
+            }
+        });
+        calendar.removeEntries(new ArrayList<>(replaced));
+        if (materializer != null) {
+            materializer.removeBacked(calendar, replacements.keySet());
+        }
+        addEntries(calendar, replacements.values().stream().filter(Objects::nonNull).toList());
+    }
+
+    private static void addEntries(Calendar calendar, List<GreatCalendar.GreatEntry> entries) {
+        if (entries.isEmpty()) {
+            return;
+        }
+        if (materializer != null) {
+            materializer.addBacked(calendar, entries);
+        } else {
+            calendar.addEntries(entries.stream()
+                    .<Entry<?>>map(persistenceManager.calendarSerializer::toEntry)
+                    .toList());
+        }
+    }
+
+    private static String describe(JournalRecord record) {
+        GreatCalendar.GreatEntry entry = record.getEntry();
+        return record.getCalendar() + ": " + (entry == null
+                ? "deleted entry"
+                : entry.getTitle() + " " + entry.getStart() + " - " + entry.getEnd());
+    }
+
+    private static void runUnrecorded(Runnable action) {
+        if (journalRecorder == null) {
+            action.run();
+        } else {
+            journalRecorder.runUnrecorded(action);
+        }
+    }
+
     public static void main(String[] args) {
+        SchedulerEvents.registerPeriodic();
         persistenceManager = new PersistenceManager();
-        cachedCalendars = persistenceManager.loadInformation(GreatCalendar.class);
-
+        Integer syncPort = Integer.getInteger(PersistenceManager.SYNC_PORT_PROPERTY);
+        if (syncPort != null) {
+            persistenceManager.startSyncServer(syncPort);
+        }
+        // Calendars are loaded by the startup loader once the window is showing
         launch(args);
 
-        cachedCalendars = familyCalendarSource.getCalendars().stream()
-                .map(persistenceManager.calendarSerializer::fromCalendar)
-                .toList();
-
-        persistenceManager.saveInformation(cachedCalendars);
+        // Every change was journaled while editing, so exiting only needs to run pending autosaves and flush the journal
+        journalRecorder.dispose();
+        deferredRecords.forEach(persistenceManager::recordChange);
+        persistenceManager.closeSync();
+        autosave.close();
+        persistenceManager.closeJournal();
+        if (Boolean.getBoolean(Metrics.DUMP_PROPERTY)) {
+            Metrics.dump(System.out);
+        }
     }
 }
@@ -0,0 +1,287 @@
+package com.calendarfx.scheduler;
+
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.time.Duration;
+import java.time.LocalDate;
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.concurrent.CountDownLatch;
+
+/**
+ * Headless entry point for data tasks, e.g. nightly jobs on servers without a display. It works on the
+ * same data directory as {@link CalendarApp} through {@link PersistenceManager} but never starts the
+ * JavaFX toolkit. It must not run while the application has the same data directory open.
+ * Exit codes: 0 success, 1 conflicts found by validate, 2 usage or I/O errors.
+ */
+public class CalendarBatch {
+
+    public static final int OK = 0;
+    public static final int CONFLICTS_FOUND = 1;
+    public static final int FAILED = 2;
+    private static final String DEFAULT_SHIFT = "nineToFive";
+    private static final String USAGE = """
+            Usage: CalendarBatch <command> [arguments]
+              import <calendars.json|.gces|.ics> add or replace calendars by name
+              import-employees <employees.json> add or replace employees by name
+              export <file.json|.gces|.ics>     write all calendars, journal applied
+              validate <rules.json>             check all employees and calendars against the rules
+              report [from] [to]                hours and entries per calendar, from today for a week by default
+              roster <from> <to> [rules.json]   add generated shifts from..to for all employees, checked against the rules
+              serve [port]                      share this data directory with planners until stopped, port 8765 by default
+            Storage and data directory follow -Dcalendar.storage and -Dcalendar.dataDir.""";
+
+    private final PersistenceManager persistenceManager;
+
+    public CalendarBatch(PersistenceManager persistenceManager) {
+        this.persistenceManager = persistenceManager;
+    }
+
+    public static void main(String[] args) {
+        long started = System.nanoTime();
+        SchedulerEvents.registerPeriodic();
+        int status;
+        try {
+            status = new CalendarBatch(new PersistenceManager()).run(args);
+        } catch (RuntimeException e) {
+            System.out.println(e.getMessage());
+            status = FAILED;
+        }
+        if (Boolean.getBoolean(Metrics.DUMP_PROPERTY)) {
+            Metrics.dump(System.out);
+        }
+        System.out.println("Finished in " + Duration.ofNanos(System.nanoTime() - started).toMillis() + " ms");
+        System.exit(status);
+    }
+
+    public int run(String[] args) {
+        if (args.length == 0) {
+            System.out.println(USAGE);
+            return FAILED;
+        }
+        return switch (args[0]) {
+            case "import" -> args.length == 2 ? importCalendars(Path.of(args[1])) : usage();
+            case "import-employees" -> args.length == 2 ? importEmployees(Path.of(args[1])) : usage();
+            case "export" -> args.length == 2 ? export(Path.of(args[1])) : usage();
+            case "validate" -> args.length == 2 ? validate(Path.of(args[1])) : usage();
+            case "report" -> {
+                LocalDate from = args.length > 1 ? LocalDate.parse(args[1]) : LocalDate.now();
+                LocalDate to = args.length > 2 ? LocalDate.parse(args[2]) : from.plusDays(7);
+                yield args.length <= 3 ? report(from, to) : usage();
+            }
+            case "roster" -> args.length == 3 || args.length == 4
+                    ? roster(LocalDate.parse(args[1]), LocalDate.parse(args[2]), args.length == 4 ? Path.of(args[3]) : null)
+                    : usage();
+            case "serve" -> args.length <= 2
+                    ? serve(args.length == 2 ? Integer.parseInt(args[1]) : SyncServer.DEFAULT_PORT)
+                    : usage();
+            default -> usage();
+        };
+    }
+
+    private static int usage() {
+        System.out.println(USAGE);
+        return FAILED;
+    }
+
+    // ---------------------------------------------------------
+    // 1. IMPORT / EXPORT
+    // ---------------------------------------------------------
+
+    public int importCalendars(Path file) {
+        List<GreatCalendar> imported = readCalendars(file);
+        // Fold pending edits first so the journal is not replayed over the imported calendars later
+        persistenceManager.compactJournal();
+        if (persistenceManager.isSharded()) {
+            persistenceManager.saveSharded(imported);
+        } else {
+            Map<String, GreatCalendar> merged = new LinkedHashMap<>();
+            persistenceManager.loadCalendars(calendar -> merged.put(calendar.getName(), calendar));
+            imported.forEach(calendar -> merged.put(calendar.getName(), calendar));
+            persistenceManager.saveCalendars(merged.values());
+        }
+        System.out.println("Imported " + imported.size() + " calendars from " + file);
+        return OK;
+    }
+
+    public int importEmployees(Path file) {
+        EmployeeRegistry employees = persistenceManager.loadEmployees();
+        List<Employee> imported = persistenceManager.loadInformation(file, Employee.class);
+        imported.forEach(employees::put);
+        persistenceManager.saveEmployees(employees);
+        System.out.println("Imported " + imported.size() + " employees from " + file);
+        return OK;
+    }
+
+    public int export(Path file) {
+        List<GreatCalendar> calendars = loadAll();
+        if (isColumnar(file)) {
+            persistenceManager.calendarSerializer.toColumnarStore(calendars, file);
+            System.out.println("Saved " + calendars.size() + " " + GreatCalendar.class.getSimpleName() + " to " + file);
+        } else if (isIcs(file)) {
+            persistenceManager.calendarSerializer.toIcs(calendars, file);
+            System.out.println("Saved " + calendars.size() + " " + GreatCalendar.class.getSimpleName() + " to " + file);
+        } else {
+            persistenceManager.writeCalendars(calendars, file);
+        }
+        return OK;
+    }
+
+    private List<GreatCalendar> readCalendars(Path file) {
+        if (!Files.exists(file)) {
+            throw new RuntimeException("No such file " + file);
+        }
+        if (isColumnar(file)) {
+            return persistenceManager.calendarSerializer.fromColumnarStore(file);
+        }
+        List<GreatCalendar> calendars = new ArrayList<>();
+        if (isIcs(file)) {
+            persistenceManager.calendarSerializer.fromIcs(file, calendars::add);
+        } else {
+            persistenceManager.readCalendars(file, calendars::add);
+        }
+        return calendars;
+    }
+
+    private static boolean isColumnar(Path file) {
+        return file.getFileName().toString().endsWith(ColumnarEntryStore.EXTENSION);
+    }
+
+    private static boolean isIcs(Path file) {
+        return file.getFileName().toString().toLowerCase(Locale.ROOT).endsWith(IcsCalendarReader.EXTENSION);
+    }
+
+    private List<GreatCalendar> loadAll() {
+        List<GreatCalendar> calendars = new ArrayList<>();
+        persistenceManager.loadCalendars(calendars::add);
+        return calendars;
+    }
+
+    // Each calendar is packed and dropped as it is loaded, so checks over all of them stay small
+    private PackedEntryTable loadPacked() {
+        PackedEntryTable table = new PackedEntryTable();
+        persistenceManager.loadCalendars(table::add);
+        table.trimToSize();
+        return table;
+    }
+
+    // ---------------------------------------------------------
+    // 2. VALIDATION AND REPORTS
+    // ---------------------------------------------------------
+
+    public int validate(Path rulesFile) {
+        ConflictRuleEngine engine = new ConflictRuleEngine(persistenceManager.loadInformation(rulesFile, ConflictRule.class));
+        engine.getRejectedRules().forEach(rule -> System.out.println("Rejected rule: " + describe(rule)));
+        List<ConflictRuleEngine.Conflict> conflicts =
+                engine.check(persistenceManager.loadEmployees().getAll(), loadPacked());
+        conflicts.forEach(conflict -> System.out.println(String.join("\t",
+                conflict.calendar(),
+                describe(conflict.rule()),
+                conflict.week() == null ? "" : conflict.week().toString(),
+                String.valueOf(conflict.actual()))));
+        System.out.println(conflicts.size() + " conflicts for " + engine.getCompiledCount() + " rules");
+        return conflicts.isEmpty() ? OK : CONFLICTS_FOUND;
+    }
+
+    public int report(LocalDate from, LocalDate to) {
+        EmployeeRegistry employees = persistenceManager.loadEmployees();
+        LocalDateTime start = from.atStartOfDay();
+        LocalDateTime end = to.atStartOfDay();
+        System.out.println(String.join("\t", "calendar", "job", "preferredShift", "entries", "recurring", "hours"));
+        for (GreatCalendar calendar : loadAll()) {
+            List<GreatCalendar.GreatEntry> entries = calendar.findEntries(start, end);
+            long minutes = entries.stream()
+                    .mapToLong(entry -> Duration.between(
+                            entry.getStart().isBefore(start) ? start : entry.getStart(),
+                            entry.getEnd().isAfter(end) ? end : entry.getEnd()).toMinutes())
+                    .sum();
+            Employee employee = employees.get(calendar.getName());
+            System.out.println(String.join("\t",
+                    calendar.getName(),
+                    employee == null ? "" : String.valueOf(employee.getJob()),
+                    employee == null ? "" : String.valueOf(employee.getPreferredShift()),
+                    String.valueOf(entries.size()),
+                    String.valueOf(calendar.getRecurringEntries().size()),
+                    String.format("%.2f", minutes / 60.0)));
+        }
+        return OK;
+    }
+
+    // ---------------------------------------------------------
+    // 3. ROSTERS
+    // ---------------------------------------------------------
+
+    // Shifts are the employees' preferred ones; entries are journaled like edits, so the application picks them up
+    public int roster(LocalDate from, LocalDate to, Path rulesFile) {
+        List<Employee> employees = persistenceManager.loadEmployees().getAll();
+        if (employees.isEmpty()) {
+            System.out.println("No employees to build a roster for");
+            return FAILED;
+        }
+        ConflictRuleEngine engine = rulesFile == null
+                ? null
+                : new ConflictRuleEngine(persistenceManager.loadInformation(rulesFile, ConflictRule.class));
+        RosterGenerator.Roster roster = new RosterGenerator(rosterShifts(employees), engine).generate(employees, from, to);
+        int entries = 0;
+        for (GreatCalendar calendar : roster.calendars()) {
+            persistenceManager.recordChange(JournalRecord.calendarCreated(calendar.getName()));
+            for (GreatCalendar.GreatEntry entry : calendar.getEntries()) {
+                persistenceManager.recordChange(JournalRecord.entryCreated(calendar.getName(), entry));
+                entries++;
+            }
+        }
+        persistenceManager.closeJournal();
+        System.out.println("Added " + entries + " shifts for " + roster.calendars().size() + " employees: "
+                + roster.uncoveredShifts() + " uncovered, " + roster.ruleConflicts() + " rule conflicts, "
+                + roster.offPreferenceShifts() + " off preference, "
+                + String.format("%.2f", roster.hoursDeviation()) + " hours off target");
+        return OK;
+    }
+
+    private static List<RosterGenerator.Shift> rosterShifts(List<Employee> employees) {
+        Map<String, RosterGenerator.Shift> shifts = new LinkedHashMap<>();
+        for (Employee employee : employees) {
+            String name = employee.getPreferredShift();
+            if (name == null || shifts.containsKey(name)) {
+                continue;
+            }
+            try {
+                shifts.put(name, RosterGenerator.Shift.parse(name));
+            } catch (IllegalArgumentException e) {
+                System.out.println("Ignoring preferred shift " + name + " of " + employee.getName());
+            }
+        }
+        if (shifts.isEmpty()) {
+            shifts.put(DEFAULT_SHIFT, RosterGenerator.Shift.parse(DEFAULT_SHIFT));
+        }
+        return List.copyOf(shifts.values());
+    }
+
+    // ---------------------------------------------------------
+    // 4. SYNC SERVER
+    // ---------------------------------------------------------
+
+    // Blocks until the process is stopped, e.g. with Ctrl+C
+    public int serve(int port) {
+        persistenceManager.startSyncServer(port);
+        CountDownLatch stopped = new CountDownLatch(1);
+        Runtime.getRuntime().addShutdownHook(new Thread(() -> {
+            persistenceManager.closeSync();
+            stopped.countDown();
+        }));
+        try {
+            stopped.await();
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+        return OK;
+    }
+
+    private static String describe(ConflictRule rule) {
+        return rule.getField() + " " + rule.getOperator() + " " + rule.getValue();
+    }
+}
@@ -0,0 +1,269 @@
+package com.calendarfx.scheduler;
+
+import java.util.*;
+import java.util.function.BiConsumer;
+import java.util.function.Consumer;
+
+/**
+ * Immutable state of all calendars and their entries at one point in time, safe to hand to any thread.
+ * Each calendar keeps its entries in chunks picked by id hash. A change copies only the touched
+ * chunk and the calendar's chunk table; everything else is shared with the previous snapshot. The
+ * {@link GreatCalendar.GreatEntry}s are shared too and must not be modified.
+ */
+public final class CalendarSnapshot {
+
+    public static final CalendarSnapshot EMPTY = new CalendarSnapshot(Map.of(), 0);
+    // Chunks are split once they hold this many entries on average
+    private static final int CHUNK_SIZE = 512;
+
+    private final Map<String, Entries> calendars;
+    private final long version;
+
+    private CalendarSnapshot(Map<String, Entries> calendars, long version) {
+        this.calendars = calendars;
+        this.version = version;
+    }
+
+    // Grows with every change folded in, so consumers can tell whether anything changed since their last snapshot
+    public long version() {
+        return version;
+    }
+
+    public Set<String> calendarNames() {
+        return calendars.keySet();
+    }
+
+    public boolean hasCalendar(String name) {
+        return calendars.containsKey(name);
+    }
+
+    public int size() {
+        return calendars.values().stream().mapToInt(Entries::size).sum();
+    }
+
+    public List<GreatCalendar.GreatEntry> entries(String calendar) {
+        Entries entries = calendars.get(calendar);
+        if (entries == null) {
+            return List.of();
+        }
+        List<GreatCalendar.GreatEntry> list = new ArrayList<>(entries.size());
+        entries.forEach(list::add);
+        return list;
+    }
+
+    // Returns null when the calendar does not exist in this snapshot. A calendar is built once and shared by every
+    // snapshot in which it is unchanged, together with its indexes, so it must not be modified either
+    public GreatCalendar calendar(String name) {
+        Entries entries = calendars.get(name);
+        return entries == null ? null : entries.calendar(name);
+    }
+
+    public List<GreatCalendar> calendars() {
+        List<GreatCalendar> list = new ArrayList<>(calendars.size());
+        calendars.keySet().forEach(name -> list.add(calendar(name)));
+        return list;
+    }
+
+    public void forEachEntry(BiConsumer<String, GreatCalendar.GreatEntry> action) {
+        calendars.forEach((name, entries) -> entries.forEach(entry -> action.accept(name, entry)));
+    }
+
+    public Editor edit() {
+        return new Editor(this);
+    }
+
+    /**
+     * Collects changes for the next snapshot. Consecutive entry changes of a calendar are folded in together,
+     * so each touched chunk is copied once per {@link #build()} instead of once per change.
+     */
+    public static final class Editor {
+
+        private final Map<String, Entries> calendars;
+        private final Map<String, List<GreatCalendar.GreatEntry>> upserts = new LinkedHashMap<>();
+        private long version;
+
+        private Editor(CalendarSnapshot base) {
+            this.calendars = new LinkedHashMap<>(base.calendars);
+            this.version = base.version;
+        }
+
+        // Same semantics as JournalReplay: entry changes are upserts by id and create their calendar
+        public Editor apply(JournalRecord record) {
+            String name = record.getCalendar();
+            switch (record.getOperation()) {
+                case CALENDAR_CREATED -> {
+                    flush(name);
+                    calendars.putIfAbsent(name, Entries.EMPTY);
+                }
+                case CALENDAR_DELETED -> {
+                    upserts.remove(name);
+                    calendars.remove(name);
+                }
+                case ENTRY_CREATED, ENTRY_UPDATED ->
+                        upserts.computeIfAbsent(name, n -> new ArrayList<>()).add(record.getEntry());
+                case ENTRY_DELETED -> {
+                    flush(name);
+                    Entries entries = calendars.get(name);
+                    if (entries != null) {
+                        calendars.put(name, entries.remove(record.getEntryId()));
+                    }
+                }
+            }
+            version++;
+            return this;
+        }
+
+        // Replaces the calendar and all of its entries, e.g. when it was loaded
+        public Editor putCalendar(String name, Collection<GreatCalendar.GreatEntry> entries) {
+            upserts.remove(name);
+            calendars.put(name, Entries.EMPTY.putAll(entries));
+            version++;
+            return this;
+        }
+
+        public Editor putEntries(String name, Collection<GreatCalendar.GreatEntry> entries) {
+            upserts.computeIfAbsent(name, n -> new ArrayList<>()).addAll(entries);
+            version++;
+            return this;
+        }
+
+        public CalendarSnapshot build() {
+            new ArrayList<>(upserts.keySet()).forEach(this::flush);
+            return new CalendarSnapshot(Collections.unmodifiableMap(new LinkedHashMap<>(calendars)), version);
+        }
+
+        private void flush(String name) {
+            List<GreatCalendar.GreatEntry> pending = upserts.remove(name);
+            if (pending != null) {
+                calendars.put(name, calendars.getOrDefault(name, Entries.EMPTY).putAll(pending));
+            }
+        }
+    }
+
+    // ---------------------------------------------------------
+    // Chunked entries of one calendar
+    // ---------------------------------------------------------
+
+    private static final class Entries {
+
+        static final Entries EMPTY = new Entries(new GreatCalendar.GreatEntry[][]{new GreatCalendar.GreatEntry[0]}, 0);
+
+        // Never modified once the Entries are built
+        private final GreatCalendar.GreatEntry[][] chunks;
+        private final int size;
+        // The same Entries may back calendars of different names, e.g. EMPTY, so the name is checked on reuse
+        private volatile GreatCalendar built;
+
+        private Entries(GreatCalendar.GreatEntry[][] chunks, int size) {
+            this.chunks = chunks;
+            this.size = size;
+        }
+
+        int size() {
+            return size;
+        }
+
+        // Racing threads may both build it; either result is equivalent
+        GreatCalendar calendar(String name) {
+            GreatCalendar calendar = built;
+            if (calendar == null || !calendar.getName().equals(name)) {
+                List<GreatCalendar.GreatEntry> list = new ArrayList<>(size);
+                forEach(list::add);
+                calendar = new GreatCalendar(name, list);
+                built = calendar;
+            }
+            return calendar;
+        }
+
+        void forEach(Consumer<GreatCalendar.GreatEntry> action) {
+            for (GreatCalendar.GreatEntry[] chunk : chunks) {
+                for (GreatCalendar.GreatEntry entry : chunk) {
+                    action.accept(entry);
+                }
+            }
+        }
+
+        // Later entries replace earlier ones with the same id; entries without an id are always added
+        Entries putAll(Collection<GreatCalendar.GreatEntry> added) {
+            Entries base = size + added.size() > (long) chunks.length * CHUNK_SIZE
+                    ? rechunk(chunkCountFor(size + added.size()))
+                    : this;
+            GreatCalendar.GreatEntry[][] copy = base.chunks.clone();
+            Map<Integer, List<GreatCalendar.GreatEntry>> touched = new HashMap<>();
+            int newSize = base.size;
+            for (GreatCalendar.GreatEntry entry : added) {
+                List<GreatCalendar.GreatEntry> chunk = touched.computeIfAbsent(chunkOf(entry.getId(), copy.length),
+                        index -> new ArrayList<>(Arrays.asList(copy[index])));
+                int found = indexOf(chunk, entry.getId());
+                if (found >= 0) {
+                    chunk.set(found, entry);
+                } else {
+                    chunk.add(entry);
+                    newSize++;
+                }
+            }
+            touched.forEach((index, chunk) -> copy[index] = chunk.toArray(new GreatCalendar.GreatEntry[0]));
+            return new Entries(copy, newSize);
+        }
+
+        Entries remove(String id) {
+            if (id == null) {
+                return this;
+            }
+            int index = chunkOf(id, chunks.length);
+            GreatCalendar.GreatEntry[] chunk = chunks[index];
+            int found = indexOf(Arrays.asList(chunk), id);
+            if (found < 0) {
+                return this;
+            }
+            GreatCalendar.GreatEntry[] smaller = new GreatCalendar.GreatEntry[chunk.length - 1];
+            System.arraycopy(chunk, 0, smaller, 0, found);
+            System.arraycopy(chunk, found + 1, smaller, found, chunk.length - found - 1);
+            GreatCalendar.GreatEntry[][] copy = chunks.clone();
+            copy[index] = smaller;
+            return new Entries(copy, size - 1);
+        }
+
+        private Entries rechunk(int chunkCount) {
+            List<List<GreatCalendar.GreatEntry>> lists = new ArrayList<>(chunkCount);
+            for (int i = 0; i < chunkCount; i++) {
+                lists.add(new ArrayList<>());
+            }
+            forEach(entry -> lists.get(chunkOf(entry.getId(), chunkCount)).add(entry));
+            GreatCalendar.GreatEntry[][] rechunked = new GreatCalendar.GreatEntry[chunkCount][];
+            for (int i = 0; i < chunkCount; i++) {
+                rechunked[i] = lists.get(i).toArray(new GreatCalendar.GreatEntry[0]);
+            }
+            return new Entries(rechunked, size);
+        }
+
+        private static int chunkCountFor(int entries) {
+            int count = 1;
+            while ((long) count * CHUNK_SIZE < entries) {
+                count <<= 1;
+            }
+            return count;
+        }
+
+        // Chunk counts are powers of two; entries without an id share the first chunk
+        private static int chunkOf(String id, int chunkCount) {
+            if (id == null) {
+                return 0;
+            }
+            int hash = id.hashCode();
+            return (hash ^ (hash >>> 16)) & (chunkCount - 1);
+        }
+
+        private static int indexOf(List<GreatCalendar.GreatEntry> chunk, String id) {
+            if (id == null) {
+                return -1;
+            }
+            for (int i = 0; i < chunk.size(); i++) {
+                if (id.equals(chunk.get(i).getId())) {
+                    return i;
+                }
+            }
+            return -1;
+        }
+    }
+}
@@ -0,0 +1,73 @@
+package com.calendarfx.scheduler;
+
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.List;
+import java.util.function.Consumer;
+
+/**
+ * Keeps a {@link CalendarSnapshot} of the calendars as they are loaded and edited. Changes are queued
+ * by the threads making them and folded in when a snapshot is taken, so a burst of edits or an import
+ * costs one copy per touched chunk. Taking a snapshot never touches the CalendarFX model, so background
+ * work can take one while the user keeps editing. Entries are copied as they are queued, because
+ * the lazily materialized calendars reschedule their entries in place.
+ */
+public class CalendarSnapshots {
+
+    // Folded in without waiting for a snapshot once this many changes are queued, so the queue stays small
+    private static final int MAX_PENDING = 4_096;
+
+    private final List<Consumer<CalendarSnapshot.Editor>> pending = new ArrayList<>();
+    private CalendarSnapshot current = CalendarSnapshot.EMPTY;
+
+    public void record(JournalRecord record) {
+        GreatCalendar.GreatEntry entry = record.getEntry();
+        JournalRecord queued = entry == null ? record : new JournalRecord(record.getRevision(), record.getOperation(),
+                record.getCalendar(), record.getEntryId(), copyOf(entry), record.getOrigin());
+        enqueue(editor -> editor.apply(queued));
+    }
+
+    public void putCalendar(GreatCalendar calendar) {
+        List<GreatCalendar.GreatEntry> entries = copyOf(calendar.getEntries());
+        enqueue(editor -> editor.putCalendar(calendar.getName(), entries));
+    }
+
+    public void putEntries(String calendar, Collection<GreatCalendar.GreatEntry> entries) {
+        List<GreatCalendar.GreatEntry> copies = copyOf(entries);
+        enqueue(editor -> editor.putEntries(calendar, copies));
+    }
+
+    public synchronized CalendarSnapshot current() {
+        if (!pending.isEmpty()) {
+            long started = System.nanoTime();
+            CalendarSnapshot.Editor editor = current.edit();
+            pending.forEach(change -> change.accept(editor));
+            pending.clear();
+            current = editor.build();
+            Metrics.histogram("snapshot.fold").record(System.nanoTime() - started);
+        }
+        return current;
+    }
+
+    private void enqueue(Consumer<CalendarSnapshot.Editor> change) {
+        boolean full;
+        synchronized (this) {
+            pending.add(change);
+            full = pending.size() >= MAX_PENDING;
+        }
+        if (full) {
+            current();
+        }
+    }
+
+    private static List<GreatCalendar.GreatEntry> copyOf(Collection<GreatCalendar.GreatEntry> entries) {
+        List<GreatCalendar.GreatEntry> copies = new ArrayList<>(entries.size());
+        entries.forEach(entry -> copies.add(copyOf(entry)));
+        return copies;
+    }
+
+    private static GreatCalendar.GreatEntry copyOf(GreatCalendar.GreatEntry entry) {
+        return new GreatCalendar.GreatEntry(entry.getId(), entry.getTitle(), entry.getStart(), entry.getEnd(),
+                entry.isFullDay(), entry.getLocation(), entry.getRecurrenceRule());
+    }
+}
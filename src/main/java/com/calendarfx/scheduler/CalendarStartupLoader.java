@@ -0,0 +1,127 @@
+package com.calendarfx.scheduler;
+
+import com.calendarfx.model.Calendar;
+import javafx.application.Platform;
+import javafx.beans.property.ReadOnlyBooleanProperty;
+import javafx.beans.property.ReadOnlyBooleanWrapper;
+import javafx.beans.property.ReadOnlyDoubleProperty;
+import javafx.beans.property.ReadOnlyDoubleWrapper;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Queue;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.function.Consumer;
+import java.util.function.Function;
+
+/**
+ * Loads calendars after the window is shown: a background thread reads them, each one is converted
+ * into a CalendarFX {@link Calendar} on a virtual thread and finished calendars are handed to the
+ * FX thread in batches of at most {@link #BATCH_SIZE} per pulse.
+ */
+public class CalendarStartupLoader {
+
+    public static final int BATCH_SIZE = 16;
+
+    public record Loaded(GreatCalendar source, Calendar calendar) {
+    }
+
+    private final Consumer<Consumer<GreatCalendar>> producer;
+    private final Function<GreatCalendar, Calendar> converter;
+    private final Consumer<List<Loaded>> batchConsumer;
+    private final ExecutorService converters = Executors.newVirtualThreadPerTaskExecutor();
+    private final Queue<Loaded> ready = new ConcurrentLinkedQueue<>();
+    private final AtomicBoolean flushScheduled = new AtomicBoolean();
+    private final AtomicInteger pending = new AtomicInteger(1);
+    private final ReadOnlyDoubleWrapper progress = new ReadOnlyDoubleWrapper(-1);
+    private final ReadOnlyBooleanWrapper running = new ReadOnlyBooleanWrapper();
+    private volatile int total = -1;
+    private volatile int discovered;
+    private int added;
+    private long startedAt;
+
+    // producer streams the stored calendars, converter runs off the FX thread, batchConsumer on it
+    public CalendarStartupLoader(Consumer<Consumer<GreatCalendar>> producer,
+                                 Function<GreatCalendar, Calendar> converter,
+                                 Consumer<List<Loaded>> batchConsumer) {
+        this.producer = producer;
+        this.converter = converter;
+        this.batchConsumer = batchConsumer;
+    }
+
+    public ReadOnlyDoubleProperty progressProperty() {
+        return progress.getReadOnlyProperty();
+    }
+
+    public ReadOnlyBooleanProperty runningProperty() {
+        return running.getReadOnlyProperty();
+    }
+
+    public void start() {
+        running.set(true);
+        startedAt = System.nanoTime();
+        Thread.ofPlatform().name("calendar-loader").daemon().start(() -> {
+            try {
+                producer.accept(this::submit);
+            } catch (RuntimeException e) {
+                System.out.println("Failed to load calendars: " + e.getMessage());
+            } finally {
+                total = discovered;
+                completed();
+            }
+        });
+    }
+
+    private void submit(GreatCalendar calendar) {
+        discovered++;
+        pending.incrementAndGet();
+        converters.execute(() -> {
+            try {
+                ready.add(new Loaded(calendar, converter.apply(calendar)));
+            } catch (RuntimeException e) {
+                System.out.println("Failed to convert calendar " + calendar.getName() + ": " + e.getMessage());
+            } finally {
+                completed();
+            }
+        });
+    }
+
+    private void completed() {
+        pending.decrementAndGet();
+        scheduleFlush();
+    }
+
+    private void scheduleFlush() {
+        if (flushScheduled.compareAndSet(false, true)) {
+            Platform.runLater(this::flush);
+        }
+    }
+
+    private void flush() {
+        flushScheduled.set(false);
+        List<Loaded> batch = new ArrayList<>(BATCH_SIZE);
+        Loaded loaded;
+        while (batch.size() < BATCH_SIZE && (loaded = ready.poll()) != null) {
+            batch.add(loaded);
+        }
+        if (!batch.isEmpty()) {
+            batchConsumer.accept(batch);
+            added += batch.size();
+        }
+        int known = total;
+        progress.set(known < 0 ? -1 : known == 0 ? 1 : (double) added / known);
+        if (!ready.isEmpty()) {
+            // The rest goes into the next pulse so rendering keeps up while calendars arrive
+            scheduleFlush();
+        } else if (pending.get() == 0 && running.get()) {
+            running.set(false);
+            converters.shutdown();
+            System.out.println("Loaded " + added + " calendars in "
+                    + (System.nanoTime() - startedAt) / 1_000_000 + " ms");
+        }
+    }
+}
@@ -0,0 +1,213 @@
+package com.calendarfx.scheduler;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.databind.ObjectWriter;
+
+import java.io.BufferedReader;
+import java.io.ByteArrayOutputStream;
+import java.io.Closeable;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.function.Consumer;
+
+/**
+ * Append-only log of {@link JournalRecord}s stored as JSON lines. Appends are queued and written by a
+ * single thread that fsyncs once per batch, so bursts of edits share one disk flush.
+ */
+public class ChangeJournal implements Closeable {
+
+    public static final String SEALED_SUFFIX = ".sealed";
+    private static final int MAX_BATCH = 512;
+    private static final byte NEW_LINE = '\n';
+    private static final JournalRecord POISON = new JournalRecord(0, null, null, null, null);
+
+    private final ObjectWriter writer;
+    private final Path activeFile;
+    private final Path sealedFile;
+    private final BlockingQueue<JournalRecord> queue = new LinkedBlockingQueue<>();
+    private final Object channelLock = new Object();
+    private final Object processedLock = new Object();
+    private final Thread writerThread;
+    private FileChannel channel;
+    private long revision;
+    private long appended;
+    private long processed;
+    private long activeRecords;
+    private volatile boolean closed;
+
+    public ChangeJournal(ObjectMapper mapper, Path activeFile, long lastRevision) throws IOException {
+        this.writer = mapper.writerFor(JournalRecord.class);
+        this.activeFile = activeFile;
+        this.sealedFile = activeFile.resolveSibling(activeFile.getFileName() + SEALED_SUFFIX);
+        this.revision = lastRevision;
+        this.channel = open(activeFile);
+        DurableFiles.forceDirectory(activeFile.toAbsolutePath().getParent());
+        this.writerThread = new Thread(this::writeLoop, "change-journal");
+        this.writerThread.setDaemon(true);
+        this.writerThread.start();
+    }
+
+    public synchronized long append(JournalRecord record) {
+        if (closed) {
+            throw new IllegalStateException("Journal is closed");
+        }
+        record.setRevision(++revision);
+        appended++;
+        activeRecords++;
+        queue.add(record);
+        return record.getRevision();
+    }
+
+    public synchronized long getRevision() {
+        return revision;
+    }
+
+    public synchronized long getActiveRecords() {
+        return activeRecords;
+    }
+
+    public Path getSealedFile() {
+        return sealedFile;
+    }
+
+    // Blocks until every record appended so far has been written and forced to disk
+    public void flush() {
+        long target;
+        synchronized (this) {
+            target = appended;
+        }
+        synchronized (processedLock) {
+            while (processed < target && writerThread.isAlive()) {
+                try {
+                    processedLock.wait(100);
+                } catch (InterruptedException e) {
+                    Thread.currentThread().interrupt();
+                    return;
+                }
+            }
+        }
+    }
+
+    // Moves the active segment aside so it can be folded into a snapshot while new records keep arriving
+    public Path seal() throws IOException {
+        flush();
+        synchronized (channelLock) {
+            if (Files.exists(sealedFile)) {
+                throw new IOException("A sealed journal segment is still pending: " + sealedFile);
+            }
+            channel.force(true);
+            channel.close();
+            Files.move(activeFile, sealedFile, StandardCopyOption.ATOMIC_MOVE);
+            channel = open(activeFile);
+            // The rename and the new segment only survive a crash once their directory is forced
+            DurableFiles.forceDirectory(activeFile.toAbsolutePath().getParent());
+        }
+        synchronized (this) {
+            activeRecords = queue.size();
+        }
+        return sealedFile;
+    }
+
+    private void writeLoop() {
+        List<JournalRecord> batch = new ArrayList<>(MAX_BATCH);
+        ByteArrayOutputStream buffer = new ByteArrayOutputStream();
+        while (!closed || !queue.isEmpty()) {
+            try {
+                JournalRecord first = queue.take();
+                batch.add(first);
+                queue.drainTo(batch, MAX_BATCH - 1);
+                buffer.reset();
+                for (JournalRecord record : batch) {
+                    if (record != POISON) {
+                        writer.writeValue(buffer, record);
+                        buffer.write(NEW_LINE);
+                    }
+                }
+                synchronized (channelLock) {
+                    ByteBuffer bytes = ByteBuffer.wrap(buffer.toByteArray());
+                    while (bytes.hasRemaining()) {
+                        channel.write(bytes);
+                    }
+                    channel.force(false);
+                }
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+                return;
+            } catch (IOException e) {
+                System.out.println("Failed to write journal: " + e.getMessage());
+            }
+            // Failed batches are still counted so flush() callers are released; the failure is logged above
+            int handled = (int) batch.stream().filter(r -> r != POISON).count();
+            synchronized (processedLock) {
+                processed += handled;
+                processedLock.notifyAll();
+            }
+            batch.clear();
+        }
+    }
+
+    @Override
+    public void close() throws IOException {
+        synchronized (this) {
+            if (closed) {
+                return;
+            }
+            closed = true;
+            queue.add(POISON);
+        }
+        try {
+            writerThread.join();
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+        synchronized (channelLock) {
+            channel.close();
+        }
+    }
+
+    private static FileChannel open(Path file) throws IOException {
+        return FileChannel.open(file, StandardOpenOption.CREATE, StandardOpenOption.WRITE, StandardOpenOption.APPEND);
+    }
+
+    // ---------------------------------------------------------
+    // Replay
+    // ---------------------------------------------------------
+
+    // Reads the records of one segment; a torn last line left by a crash is skipped
+    public static long read(ObjectMapper mapper, Path file, Consumer<JournalRecord> consumer) {
+        if (!Files.exists(file)) {
+            return 0;
+        }
+        long lastRevision = 0;
+        try (BufferedReader reader = Files.newBufferedReader(file, StandardCharsets.UTF_8)) {
+            String line;
+            while ((line = reader.readLine()) != null) {
+                if (line.isBlank()) {
+                    continue;
+                }
+                JournalRecord record;
+                try {
+                    record = mapper.readValue(line, JournalRecord.class);
+                } catch (IOException e) {
+                    System.out.println("Skipping unreadable journal record in " + file + ": " + e.getMessage());
+                    continue;
+                }
+                lastRevision = Math.max(lastRevision, record.getRevision());
+                consumer.accept(record);
+            }
+        } catch (IOException e) {
+            throw new RuntimeException("Failed to read journal " + file, e);
+        }
+        return lastRevision;
+    }
+}
@@ -0,0 +1,291 @@
+package com.calendarfx.scheduler;
+
+import java.io.Closeable;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.IntBuffer;
+import java.nio.LongBuffer;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.time.LocalDateTime;
+import java.time.ZoneOffset;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.List;
+
+/**
+ * Read-only, memory-mapped columnar file of {@link GreatCalendar.GreatEntry}s. Start and end are
+ * epoch-second long columns, fullDay is a bitset and id/title/location/recurrence rule are codes
+ * into a shared string dictionary. Opening only maps the file; pages are read when a row is first touched.
+ */
+public class ColumnarEntryStore implements Closeable {
+
+    public static final String EXTENSION = ".gces";
+    private static final int MAGIC = 0x47434553;
+    private static final int VERSION = 2;
+    private static final int HEADER_SIZE = 104;
+    private static final int CALENDAR_RECORD_INTS = 3;
+    private static final long NO_TIME = Long.MIN_VALUE;
+
+    private final FileChannel channel;
+    private final int count;
+    private final int calendarCount;
+    private final LongBuffer starts;
+    private final LongBuffer ends;
+    private final IntBuffer ids;
+    private final IntBuffer titles;
+    private final IntBuffer locations;
+    private final IntBuffer recurrenceRules;
+    private final LongBuffer fullDays;
+    private final IntBuffer calendarTable;
+    private final IntBuffer dictionaryOffsets;
+    private final ByteBuffer dictionaryBytes;
+    private final int dictionarySize;
+    private String[] decoded;
+
+    private ColumnarEntryStore(FileChannel channel, MappedByteBuffer buffer) throws IOException {
+        this.channel = channel;
+        if (buffer.getInt(0) != MAGIC || buffer.getInt(4) != VERSION) {
+            throw new IOException("Not a columnar entry store");
+        }
+        count = buffer.getInt(8);
+        dictionarySize = buffer.getInt(12);
+        calendarCount = buffer.getInt(16);
+        starts = slice(buffer, buffer.getLong(24), (long) count * Long.BYTES).asLongBuffer();
+        ends = slice(buffer, buffer.getLong(32), (long) count * Long.BYTES).asLongBuffer();
+        ids = slice(buffer, buffer.getLong(40), (long) count * Integer.BYTES).asIntBuffer();
+        titles = slice(buffer, buffer.getLong(48), (long) count * Integer.BYTES).asIntBuffer();
+        locations = slice(buffer, buffer.getLong(56), (long) count * Integer.BYTES).asIntBuffer();
+        fullDays = slice(buffer, buffer.getLong(64), (long) bitsetWords(count) * Long.BYTES).asLongBuffer();
+        calendarTable = slice(buffer, buffer.getLong(72),
+                (long) calendarCount * CALENDAR_RECORD_INTS * Integer.BYTES).asIntBuffer();
+        dictionaryOffsets = slice(buffer, buffer.getLong(80), (long) (dictionarySize + 1) * Integer.BYTES).asIntBuffer();
+        long bytesOffset = buffer.getLong(88);
+        dictionaryBytes = slice(buffer, bytesOffset, buffer.capacity() - bytesOffset);
+        recurrenceRules = slice(buffer, buffer.getLong(96), (long) count * Integer.BYTES).asIntBuffer();
+    }
+
+    public static ColumnarEntryStore open(Path file) throws IOException {
+        FileChannel channel = FileChannel.open(file, StandardOpenOption.READ);
+        try {
+            MappedByteBuffer buffer = channel.map(FileChannel.MapMode.READ_ONLY, 0, channel.size());
+            return new ColumnarEntryStore(channel, buffer);
+        } catch (IOException | RuntimeException e) {
+            channel.close();
+            throw e;
+        }
+    }
+
+    // ---------------------------------------------------------
+    // 1. ROW ACCESS
+    // ---------------------------------------------------------
+
+    public int size() {
+        return count;
+    }
+
+    public int calendarCount() {
+        return calendarCount;
+    }
+
+    public String calendarName(int calendar) {
+        return string(calendarTable.get(calendar * CALENDAR_RECORD_INTS));
+    }
+
+    public int calendarFirstRow(int calendar) {
+        return calendarTable.get(calendar * CALENDAR_RECORD_INTS + 1);
+    }
+
+    public int calendarRowCount(int calendar) {
+        return calendarTable.get(calendar * CALENDAR_RECORD_INTS + 2);
+    }
+
+    public long startEpochSecond(int row) {
+        return starts.get(row);
+    }
+
+    public long endEpochSecond(int row) {
+        return ends.get(row);
+    }
+
+    public LocalDateTime start(int row) {
+        return toTime(starts.get(row));
+    }
+
+    public LocalDateTime end(int row) {
+        return toTime(ends.get(row));
+    }
+
+    public boolean isFullDay(int row) {
+        return (fullDays.get(row >>> 6) & (1L << row)) != 0;
+    }
+
+    public String id(int row) {
+        return string(ids.get(row));
+    }
+
+    public String title(int row) {
+        return string(titles.get(row));
+    }
+
+    public String location(int row) {
+        return string(locations.get(row));
+    }
+
+    public String recurrenceRule(int row) {
+        return string(recurrenceRules.get(row));
+    }
+
+    public GreatCalendar.GreatEntry entry(int row) {
+        return new GreatCalendar.GreatEntry(id(row), title(row), start(row), end(row), isFullDay(row), location(row),
+                recurrenceRule(row));
+    }
+
+    public GreatCalendar calendar(int calendar) {
+        int first = calendarFirstRow(calendar);
+        int rows = calendarRowCount(calendar);
+        List<GreatCalendar.GreatEntry> entries = new ArrayList<>(rows);
+        for (int row = first; row < first + rows; row++) {
+            entries.add(entry(row));
+        }
+        return new GreatCalendar(calendarName(calendar), entries);
+    }
+
+    public List<GreatCalendar> readAll() {
+        List<GreatCalendar> calendars = new ArrayList<>(calendarCount);
+        for (int calendar = 0; calendar < calendarCount; calendar++) {
+            calendars.add(calendar(calendar));
+        }
+        return calendars;
+    }
+
+    private String string(int code) {
+        if (code == StringDictionary.NULL_CODE) {
+            return null;
+        }
+        if (decoded == null) {
+            decoded = new String[dictionarySize];
+        }
+        String value = decoded[code];
+        if (value == null) {
+            int from = dictionaryOffsets.get(code);
+            int to = dictionaryOffsets.get(code + 1);
+            byte[] bytes = new byte[to - from];
+            dictionaryBytes.get(from, bytes);
+            value = new String(bytes, StandardCharsets.UTF_8);
+            decoded[code] = value;
+        }
+        return value;
+    }
+
+    @Override
+    public void close() throws IOException {
+        channel.close();
+    }
+
+    // ---------------------------------------------------------
+    // 2. WRITING
+    // ---------------------------------------------------------
+
+    public static void write(Path file, Collection<GreatCalendar> calendars) throws IOException {
+        int count = calendars.stream().mapToInt(c -> c.getEntries().size()).sum();
+        StringDictionary dictionary = new StringDictionary();
+        long[] startColumn = new long[count];
+        long[] endColumn = new long[count];
+        int[] idColumn = new int[count];
+        int[] titleColumn = new int[count];
+        int[] locationColumn = new int[count];
+        int[] recurrenceColumn = new int[count];
+        long[] fullDayColumn = new long[bitsetWords(count)];
+        int[] calendarColumn = new int[calendars.size() * CALENDAR_RECORD_INTS];
+
+        int row = 0;
+        int calendarIndex = 0;
+        for (GreatCalendar calendar : calendars) {
+            calendarColumn[calendarIndex * CALENDAR_RECORD_INTS] = dictionary.encode(calendar.getName());
+            calendarColumn[calendarIndex * CALENDAR_RECORD_INTS + 1] = row;
+            calendarColumn[calendarIndex * CALENDAR_RECORD_INTS + 2] = calendar.getEntries().size();
+            for (GreatCalendar.GreatEntry entry : calendar.getEntries()) {
+                startColumn[row] = toEpochSecond(entry.getStart());
+                endColumn[row] = toEpochSecond(entry.getEnd());
+                idColumn[row] = dictionary.encode(entry.getId());
+                titleColumn[row] = dictionary.encode(entry.getTitle());
+                locationColumn[row] = dictionary.encode(entry.getLocation());
+                recurrenceColumn[row] = dictionary.encode(entry.getRecurrenceRule());
+                if (entry.isFullDay()) {
+                    fullDayColumn[row >>> 6] |= 1L << row;
+                }
+                row++;
+            }
+            calendarIndex++;
+        }
+
+        int[] stringOffsets = new int[dictionary.size() + 1];
+        List<byte[]> encoded = new ArrayList<>(dictionary.size());
+        int totalBytes = 0;
+        for (int i = 0; i < dictionary.size(); i++) {
+            byte[] bytes = dictionary.decode(i).getBytes(StandardCharsets.UTF_8);
+            encoded.add(bytes);
+            stringOffsets[i] = totalBytes;
+            totalBytes += bytes.length;
+        }
+        stringOffsets[dictionary.size()] = totalBytes;
+
+        long startOffset = HEADER_SIZE;
+        long endOffset = startOffset + (long) count * Long.BYTES;
+        long idOffset = endOffset + (long) count * Long.BYTES;
+        long titleOffset = idOffset + (long) count * Integer.BYTES;
+        long locationOffset = titleOffset + (long) count * Integer.BYTES;
+        long fullDayOffset = locationOffset + (long) count * Integer.BYTES;
+        long recurrenceOffset = fullDayOffset + (long) fullDayColumn.length * Long.BYTES;
+        long calendarOffset = recurrenceOffset + (long) count * Integer.BYTES;
+        long dictionaryOffset = calendarOffset + (long) calendarColumn.length * Integer.BYTES;
+        long bytesOffset = dictionaryOffset + (long) stringOffsets.length * Integer.BYTES;
+        long size = bytesOffset + totalBytes;
+        if (size > Integer.MAX_VALUE) {
+            throw new IOException("Columnar store would exceed the 2 GB mapping limit: " + size + " bytes");
+        }
+
+        try (FileChannel channel = FileChannel.open(file, StandardOpenOption.CREATE, StandardOpenOption.READ,
+                StandardOpenOption.WRITE, StandardOpenOption.TRUNCATE_EXISTING)) {
+            MappedByteBuffer buffer = channel.map(FileChannel.MapMode.READ_WRITE, 0, size);
+            buffer.putInt(MAGIC).putInt(VERSION).putInt(count).putInt(dictionary.size())
+                    .putInt(calendars.size()).putInt(0)
+                    .putLong(startOffset).putLong(endOffset).putLong(idOffset).putLong(titleOffset)
+                    .putLong(locationOffset).putLong(fullDayOffset).putLong(calendarOffset)
+                    .putLong(dictionaryOffset).putLong(bytesOffset).putLong(recurrenceOffset);
+            buffer.position(HEADER_SIZE);
+            buffer.asLongBuffer().put(startColumn);
+            slice(buffer, endOffset, (long) count * Long.BYTES).asLongBuffer().put(endColumn);
+            slice(buffer, idOffset, (long) count * Integer.BYTES).asIntBuffer().put(idColumn);
+            slice(buffer, titleOffset, (long) count * Integer.BYTES).asIntBuffer().put(titleColumn);
+            slice(buffer, locationOffset, (long) count * Integer.BYTES).asIntBuffer().put(locationColumn);
+            slice(buffer, fullDayOffset, (long) fullDayColumn.length * Long.BYTES).asLongBuffer().put(fullDayColumn);
+            slice(buffer, recurrenceOffset, (long) count * Integer.BYTES).asIntBuffer().put(recurrenceColumn);
+            slice(buffer, calendarOffset, (long) calendarColumn.length * Integer.BYTES).asIntBuffer().put(calendarColumn);
+            slice(buffer, dictionaryOffset, (long) stringOffsets.length * Integer.BYTES).asIntBuffer().put(stringOffsets);
+            buffer.position((int) bytesOffset);
+            encoded.forEach(buffer::put);
+            buffer.force();
+        }
+    }
+
+    private static ByteBuffer slice(ByteBuffer buffer, long offset, long length) {
+        return buffer.slice((int) offset, (int) length);
+    }
+
+    private static int bitsetWords(int bits) {
+        return (bits + Long.SIZE - 1) / Long.SIZE;
+    }
+
+    private static long toEpochSecond(LocalDateTime time) {
+        return time == null ? NO_TIME : time.toEpochSecond(ZoneOffset.UTC);
+    }
+
+    private static LocalDateTime toTime(long epochSecond) {
+        return epochSecond == NO_TIME ? null : LocalDateTime.ofEpochSecond(epochSecond, 0, ZoneOffset.UTC);
+    }
+}
@@ -0,0 +1,320 @@
+package com.calendarfx.scheduler;
+
+import java.time.DayOfWeek;
+import java.time.Duration;
+import java.time.LocalDate;
+import java.time.LocalDateTime;
+import java.time.temporal.TemporalAdjusters;
+import java.util.*;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.Executor;
+import java.util.function.Consumer;
+import java.util.function.Supplier;
+import java.util.stream.Stream;
+
+/**
+ * Evaluates {@link ConflictRule}s against employees and their calendar entries.
+ * Active rules are compiled once into typed per-field indexes; a rule that matches
+ * an employee (or, for WORKING_HOURS, one of its scheduled weeks) is reported as a conflict.
+ * Recurring entries count in every week one of their occurrences starts in, up to
+ * {@link #RECURRENCE_HORIZON_WEEKS} weeks past the current one or the last week with other entries.
+ */
+public class ConflictRuleEngine {
+
+    public static final int PARALLEL_THRESHOLD = 64;
+    public static final int RECURRENCE_HORIZON_WEEKS = 52;
+    private static final double MINUTES_PER_HOUR = 60.0;
+    private static final long MINUTES_PER_DAY = 24 * 60;
+
+    public record Conflict(String calendar, ConflictRule rule, LocalDate week, String actual) {}
+
+    private final EnumMap<ConflictRule.FieldType, RuleIndex<String>> textIndexes =
+            new EnumMap<>(ConflictRule.FieldType.class);
+    private final RuleIndex<Double> hoursIndex = new RuleIndex<>();
+    private final List<ConflictRule> rejectedRules = new ArrayList<>();
+    private int compiledCount;
+
+    public ConflictRuleEngine(Collection<ConflictRule> rules) {
+        rules.stream()
+                .filter(ConflictRule::isActive)
+                .forEach(this::compile);
+    }
+
+    private void compile(ConflictRule rule) {
+        if (rule.getField() == null || rule.getOperator() == null || rule.getValue() == null) {
+            rejectedRules.add(rule);
+            return;
+        }
+        if (rule.getField() == ConflictRule.FieldType.WORKING_HOURS) {
+            try {
+                hoursIndex.add(rule, Double.parseDouble(rule.getValue().trim()));
+            } catch (NumberFormatException e) {
+                System.out.println("Ignoring rule with non numeric hours: " + rule.getValue());
+                rejectedRules.add(rule);
+                return;
+            }
+        } else {
+            textIndexes.computeIfAbsent(rule.getField(), f -> new RuleIndex<>())
+                    .add(rule, normalize(rule.getValue()));
+        }
+        compiledCount++;
+    }
+
+    public int getCompiledCount() {
+        return compiledCount;
+    }
+
+    public List<ConflictRule> getRejectedRules() {
+        return Collections.unmodifiableList(rejectedRules);
+    }
+
+    public boolean isEmpty() {
+        return compiledCount == 0;
+    }
+
+    // ---------------------------------------------------------
+    // 1. BATCH EVALUATION
+    // ---------------------------------------------------------
+
+    public List<Conflict> check(Collection<Employee> employees, Collection<GreatCalendar> calendars) {
+        Map<String, Supplier<SortedMap<LocalDate, Double>>> hoursByCalendar = new LinkedHashMap<>();
+        calendars.forEach(gc -> hoursByCalendar.put(gc.getName(), () -> weeklyHours(gc.getEntries())));
+        return check(employees, hoursByCalendar);
+    }
+
+    // Same checks over a packed table, whose weekly hours are summed from the columns directly
+    public List<Conflict> check(Collection<Employee> employees, PackedEntryTable table) {
+        Map<String, Supplier<SortedMap<LocalDate, Double>>> hoursByCalendar = new LinkedHashMap<>();
+        for (int calendar = 0; calendar < table.calendarCount(); calendar++) {
+            int index = calendar;
+            hoursByCalendar.put(table.calendarName(calendar), () -> weeklyHours(table, index));
+        }
+        return check(employees, hoursByCalendar);
+    }
+
+    private List<Conflict> check(Collection<Employee> employees,
+                                 Map<String, Supplier<SortedMap<LocalDate, Double>>> hoursByCalendar) {
+        if (isEmpty()) {
+            return List.of();
+        }
+        List<Subject> subjects = new ArrayList<>(employees.size() + hoursByCalendar.size());
+        Set<String> seen = new HashSet<>();
+        for (Employee employee : employees) {
+            Supplier<SortedMap<LocalDate, Double>> hours = hoursByCalendar.get(employee.getName());
+            subjects.add(new Subject(employee.getName(), employee, hours == null ? TreeMap::new : hours));
+            seen.add(employee.getName());
+        }
+        hoursByCalendar.forEach((name, hours) -> {
+            if (!seen.contains(name)) {
+                subjects.add(new Subject(name, null, hours));
+            }
+        });
+
+        Stream<Subject> stream = subjects.size() >= PARALLEL_THRESHOLD
+                ? subjects.parallelStream()
+                : subjects.stream();
+        return stream.flatMap(s -> evaluate(s).stream()).toList();
+    }
+
+    public CompletableFuture<List<Conflict>> checkAsync(Collection<Employee> employees,
+                                                        Collection<GreatCalendar> calendars,
+                                                        Executor executor) {
+        List<Employee> employeeCopy = List.copyOf(employees);
+        List<GreatCalendar> calendarCopy = List.copyOf(calendars);
+        return CompletableFuture.supplyAsync(() -> check(employeeCopy, calendarCopy), executor);
+    }
+
+    public List<Conflict> checkCalendar(String calendarName, Employee employee,
+                                        Collection<GreatCalendar.GreatEntry> entries) {
+        if (isEmpty()) {
+            return List.of();
+        }
+        return evaluate(new Subject(calendarName, employee, entries == null ? null : () -> weeklyHours(entries)));
+    }
+
+    private List<Conflict> evaluate(Subject subject) {
+        List<Conflict> conflicts = new ArrayList<>(checkAttributes(subject.calendar(), subject.employee()));
+        if (!hoursIndex.isEmpty() && subject.weeklyHours() != null) {
+            subject.weeklyHours().get().forEach((week, hours) ->
+                    conflicts.addAll(checkWeek(subject.calendar(), week, hours)));
+        }
+        return conflicts;
+    }
+
+    public List<Conflict> checkAttributes(String calendar, Employee employee) {
+        List<Conflict> conflicts = new ArrayList<>();
+        matchText(ConflictRule.FieldType.NAME, calendar, calendar, conflicts);
+        if (employee != null) {
+            matchText(ConflictRule.FieldType.JOB, employee.getJob(), calendar, conflicts);
+            matchText(ConflictRule.FieldType.PREFERRED_SHIFT, employee.getPreferredShift(), calendar, conflicts);
+        }
+        return conflicts;
+    }
+
+    public List<Conflict> checkWeek(String calendar, LocalDate week, double hours) {
+        if (hoursIndex.isEmpty()) {
+            return List.of();
+        }
+        List<Conflict> conflicts = new ArrayList<>();
+        hoursIndex.match(hours, rule -> conflicts.add(new Conflict(calendar, rule, week, String.valueOf(hours))));
+        return conflicts;
+    }
+
+    private void matchText(ConflictRule.FieldType field, String value, String calendar, List<Conflict> sink) {
+        RuleIndex<String> index = textIndexes.get(field);
+        if (index == null || value == null) {
+            return;
+        }
+        index.match(normalize(value), rule -> sink.add(new Conflict(calendar, rule, null, value)));
+    }
+
+    static SortedMap<LocalDate, Double> weeklyHours(Collection<GreatCalendar.GreatEntry> entries) {
+        SortedMap<LocalDate, Long> minutes = new TreeMap<>();
+        List<GreatCalendar.GreatEntry> recurring = new ArrayList<>();
+        for (GreatCalendar.GreatEntry entry : entries) {
+            if (entry.isFullDay() || entry.getStart() == null || entry.getEnd() == null) {
+                continue;
+            }
+            if (RecurrenceExpander.isRecurring(entry)) {
+                recurring.add(entry);
+            } else {
+                minutes.merge(weekOf(entry.getStart()), scheduledMinutes(entry.getStart(), entry.getEnd()), Long::sum);
+            }
+        }
+        addRecurringMinutes(recurring, minutes);
+        SortedMap<LocalDate, Double> hours = new TreeMap<>();
+        minutes.forEach((week, total) -> hours.put(week, toHours(total)));
+        return hours;
+    }
+
+    private static void addRecurringMinutes(List<GreatCalendar.GreatEntry> recurring, SortedMap<LocalDate, Long> minutes) {
+        if (recurring.isEmpty()) {
+            return;
+        }
+        LocalDate horizon = recurrenceHorizon(minutes.isEmpty() ? null : minutes.lastKey());
+        for (GreatCalendar.GreatEntry entry : recurring) {
+            occurrenceMinutes(entry, weekOf(entry.getStart()), horizon)
+                    .forEach((week, total) -> minutes.merge(week, total, Long::sum));
+        }
+    }
+
+    // The last week recurring entries are expanded to, given the last week with other entries
+    static LocalDate recurrenceHorizon(LocalDate lastWeek) {
+        LocalDate horizon = weekOf(LocalDateTime.now()).plusWeeks(RECURRENCE_HORIZON_WEEKS);
+        return lastWeek != null && lastWeek.isAfter(horizon) ? lastWeek : horizon;
+    }
+
+    // Minutes of the occurrences of entry starting in the weeks from firstWeek to lastWeek, by week
+    static SortedMap<LocalDate, Long> occurrenceMinutes(GreatCalendar.GreatEntry entry, LocalDate firstWeek, LocalDate lastWeek) {
+        SortedMap<LocalDate, Long> minutes = new TreeMap<>();
+        LocalDateTime from = firstWeek.atStartOfDay();
+        LocalDateTime to = lastWeek.plusWeeks(1).atStartOfDay();
+        GreatCalendar.RECURRENCES.forEachOccurrence(entry, from, to, occurrence -> {
+            if (!occurrence.getStart().isBefore(from)) {
+                minutes.merge(weekOf(occurrence.getStart()),
+                        scheduledMinutes(occurrence.getStart(), occurrence.getEnd()), Long::sum);
+            }
+        });
+        return minutes;
+    }
+
+    // Rows are sorted by week with a key holding the week's Monday as epoch day and the row below it
+    static SortedMap<LocalDate, Double> weeklyHours(PackedEntryTable table, int calendar) {
+        int first = table.calendarFirstRow(calendar);
+        long[] keys = new long[table.calendarRowCount(calendar)];
+        int count = 0;
+        PackedEntryTable.View view = table.view();
+        List<GreatCalendar.GreatEntry> recurring = new ArrayList<>();
+        for (int row = 0; row < keys.length; row++) {
+            view.moveTo(first + row);
+            if (view.isFullDay() || !view.hasStart() || !view.hasEnd()) {
+                continue;
+            }
+            if (view.isRecurring()) {
+                recurring.add(view.toEntry());
+            } else {
+                keys[count++] = (weekOfEpochMinute(view.startMinute()) << 32) | row;
+            }
+        }
+        Arrays.sort(keys, 0, count);
+        SortedMap<LocalDate, Long> minutes = new TreeMap<>();
+        int i = 0;
+        while (i < count) {
+            long week = keys[i] >> 32;
+            long total = 0;
+            for (; i < count && keys[i] >> 32 == week; i++) {
+                total += view.moveTo(first + (int) keys[i]).durationMinutes();
+            }
+            minutes.put(LocalDate.ofEpochDay(week), total);
+        }
+        addRecurringMinutes(recurring, minutes);
+        SortedMap<LocalDate, Double> hours = new TreeMap<>();
+        minutes.forEach((week, total) -> hours.put(week, toHours(total)));
+        return hours;
+    }
+
+    // Epoch day 0 is a Thursday, three days after the Monday of its week
+    static long weekOfEpochMinute(long epochMinute) {
+        long day = Math.floorDiv(epochMinute, MINUTES_PER_DAY);
+        return day - Math.floorMod(day + 3, 7);
+    }
+
+    static LocalDate weekOf(LocalDateTime start) {
+        return start.toLocalDate().with(TemporalAdjusters.previousOrSame(DayOfWeek.MONDAY));
+    }
+
+    static long scheduledMinutes(LocalDateTime start, LocalDateTime end) {
+        return Duration.between(start, end).toMinutes();
+    }
+
+    static double toHours(long minutes) {
+        return minutes / MINUTES_PER_HOUR;
+    }
+
+    private static String normalize(String value) {
+        return value.trim().toLowerCase(Locale.ROOT);
+    }
+
+    // Weekly hours are only summed when there are WORKING_HOURS rules
+    private record Subject(String calendar, Employee employee, Supplier<SortedMap<LocalDate, Double>> weeklyHours) {}
+
+    // ---------------------------------------------------------
+    // 2. COMPILED RULE INDEX
+    // ---------------------------------------------------------
+
+    private static final class RuleIndex<K extends Comparable<K>> {
+        private final Map<K, List<ConflictRule>> equals = new HashMap<>();
+        private final Map<K, List<ConflictRule>> notEquals = new HashMap<>();
+        // GREATER matches every threshold below the value, LESSER every threshold above it
+        private final NavigableMap<K, List<ConflictRule>> greater = new TreeMap<>();
+        private final NavigableMap<K, List<ConflictRule>> lesser = new TreeMap<>();
+
+        void add(ConflictRule rule, K key) {
+            Map<K, List<ConflictRule>> target = switch (rule.getOperator()) {
+                case EQUALS -> equals;
+                case NOT_EQUALS -> notEquals;
+                case GREATER -> greater;
+                case LESSER -> lesser;
+            };
+            target.computeIfAbsent(key, k -> new ArrayList<>()).add(rule);
+        }
+
+        boolean isEmpty() {
+            return equals.isEmpty() && notEquals.isEmpty() && greater.isEmpty() && lesser.isEmpty();
+        }
+
+        void match(K value, Consumer<ConflictRule> sink) {
+            List<ConflictRule> same = equals.get(value);
+            if (same != null) {
+                same.forEach(sink);
+            }
+            notEquals.forEach((key, rules) -> {
+                if (!key.equals(value)) {
+                    rules.forEach(sink);
+                }
+            });
+            greater.headMap(value, false).values().forEach(rules -> rules.forEach(sink));
+            lesser.tailMap(value, false).values().forEach(rules -> rules.forEach(sink));
+        }
+    }
+}
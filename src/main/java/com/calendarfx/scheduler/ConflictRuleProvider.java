@@ -265,4 +265,8 @@ public class ConflictRuleProvider implements FormProvider {
         return copy;
     }
 
+    public ConflictRuleEngine compileRules() {
+        return new ConflictRuleEngine(rules);
+    }
+
 }
\ No newline at end of file
@@ -0,0 +1,86 @@
+package com.calendarfx.scheduler;
+
+import java.io.FilterOutputStream;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.nio.ByteBuffer;
+import java.nio.channels.Channels;
+import java.nio.channels.FileChannel;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.StandardOpenOption;
+
+/**
+ * File replacement that survives a power loss: a temporary file is forced to disk before it is moved
+ * over its target, and the directory is forced after the move so the rename itself is durable. Only
+ * then may whatever the new file supersedes, e.g. a sealed journal segment, be deleted.
+ */
+final class DurableFiles {
+
+    static final String TMP = ".tmp";
+
+    private DurableFiles() {
+    }
+
+    // Replaces target with bytes, for small files that must never be read torn
+    static void write(Path target, byte[] bytes) throws IOException {
+        Path tmp = target.resolveSibling(target.getFileName() + TMP);
+        try (FileChannel channel = FileChannel.open(tmp, StandardOpenOption.CREATE, StandardOpenOption.WRITE,
+                StandardOpenOption.TRUNCATE_EXISTING)) {
+            ByteBuffer buffer = ByteBuffer.wrap(bytes);
+            while (buffer.hasRemaining()) {
+                channel.write(buffer);
+            }
+            channel.force(true);
+        }
+        move(tmp, target);
+    }
+
+    // Unbuffered output that forces the file to disk when it is closed; callers add their own buffering
+    static OutputStream newOutputStream(Path file) throws IOException {
+        FileChannel channel = FileChannel.open(file, StandardOpenOption.CREATE, StandardOpenOption.WRITE,
+                StandardOpenOption.TRUNCATE_EXISTING);
+        return new FilterOutputStream(Channels.newOutputStream(channel)) {
+            private boolean closed;
+
+            @Override
+            public void write(byte[] bytes, int offset, int length) throws IOException {
+                out.write(bytes, offset, length);
+            }
+
+            @Override
+            public void close() throws IOException {
+                if (closed) {
+                    return;
+                }
+                closed = true;
+                try {
+                    out.flush();
+                    channel.force(true);
+                } finally {
+                    out.close();
+                }
+            }
+        };
+    }
+
+    // Atomically moves a file that was already forced over target and makes the rename durable
+    static void move(Path tmp, Path target) throws IOException {
+        Files.move(tmp, target, StandardCopyOption.ATOMIC_MOVE, StandardCopyOption.REPLACE_EXISTING);
+        forceDirectory(target.toAbsolutePath().getParent());
+    }
+
+    // Directories can only be opened for reading; platforms that refuse to force them, e.g. Windows, are skipped
+    static void forceDirectory(Path directory) throws IOException {
+        FileChannel channel;
+        try {
+            channel = FileChannel.open(directory, StandardOpenOption.READ);
+        } catch (IOException | UnsupportedOperationException e) {
+            return;
+        }
+        try (channel) {
+            channel.force(true);
+        }
+    }
+}
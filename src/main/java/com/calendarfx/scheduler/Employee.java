@@ -0,0 +1,46 @@
+package com.calendarfx.scheduler;
+
+import com.fasterxml.jackson.annotation.JsonCreator;
+import com.fasterxml.jackson.annotation.JsonProperty;
+
+public class Employee {
+    private final String name;
+    private final int age;
+    private final String job;
+    private final String email;
+    private final int workingHours;
+    private final String preferredShift;
+
+    @JsonCreator
+    public Employee(@JsonProperty("name") String name,
+                    @JsonProperty("age") int age,
+                    @JsonProperty("job") String job,
+                    @JsonProperty("email") String email,
+                    @JsonProperty("workingHours") int workingHours,
+                    @JsonProperty("preferredShift") String preferredShift) {
+        this.name = name;
+        this.age = age;
+        this.job = job;
+        this.email = email;
+        this.workingHours = workingHours;
+        this.preferredShift = preferredShift;
+    }
+
+    @JsonProperty
+    public String getName() { return name; }
+
+    @JsonProperty
+    public int getAge() { return age; }
+
+    @JsonProperty
+    public String getJob() { return job; }
+
+    @JsonProperty
+    public String getEmail() { return email; }
+
+    @JsonProperty
+    public int getWorkingHours() { return workingHours; }
+
+    @JsonProperty
+    public String getPreferredShift() { return preferredShift; }
+}
@@ -1,9 +1,11 @@
 package com.calendarfx.scheduler;
 
+import com.dlsc.formsfx.model.structure.DataField;
 import com.dlsc.formsfx.model.structure.Field;
 import com.dlsc.formsfx.model.structure.Form;
 import com.dlsc.formsfx.model.structure.Group;
 import com.dlsc.formsfx.model.structure.Section;
+import com.dlsc.formsfx.model.structure.SingleSelectionField;
 import com.dlsc.formsfx.view.renderer.FormRenderer;
 import javafx.geometry.Pos;
 import javafx.scene.Scene;
@@ -12,7 +14,10 @@ import javafx.scene.layout.BorderPane;
 import javafx.scene.layout.HBox;
 import javafx.stage.Stage;
 
+import java.util.HashMap;
 import java.util.List;
+import java.util.Map;
+import java.util.Objects;
 
 import com.dlsc.formsfx.model.validators.IntegerRangeValidator;
 import com.dlsc.formsfx.model.validators.StringLengthValidator;
@@ -20,6 +25,13 @@ import com.dlsc.formsfx.view.util.ColSpan;
 
 public class EmployeeFormProvider implements FormProvider {
 
+    public static final String NAME_LABEL = "Name";
+    public static final String AGE_LABEL = "Age";
+    public static final String JOB_LABEL = "Job";
+    public static final String EMAIL_LABEL = "Email";
+    public static final String WORKING_HOURS_LABEL = "Working Hours";
+    public static final String PREFERRED_SHIFT_LABEL = "Preferred shift";
+
     private final List<String> preferredShift;
     private final int width;
     private final int height;
@@ -37,44 +49,62 @@ public class EmployeeFormProvider implements FormProvider {
         Form form = Form.of(
                 Group.of(
                         Field.ofStringType("name")
-                                .label("Name")
+                                .label(NAME_LABEL)
                                 .placeholder("Insert person name")
                                 .required("required_error_message")
                                 .validate(StringLengthValidator.atLeast(2, "name_error_message")),
                         Field.ofIntegerType(30)
-                                .label("Age")
+                                .label(AGE_LABEL)
                                 .format("format_error_message")
                                 .placeholder("Insert person age")
                                 .required("required_error_message")
                                 .span(ColSpan.HALF)
                                 .validate(IntegerRangeValidator.atLeast(1, "age_error_message")),
                         Field.ofStringType("Job")
-                                .label("Job")
+                                .label(JOB_LABEL)
                                 .placeholder("Insert person job")
                                 .required("required_error_message")
                                 .validate(StringLengthValidator.atLeast(2, "job_error_message")),
                         Field.ofStringType("email@")
-                                .label("Email")
+                                .label(EMAIL_LABEL)
                                 .placeholder("Insert person email")
                                 .required("required_error_message")
                                 .validate(StringLengthValidator.atLeast(2, "email_error_message"))
                 ),
                 Section.of(
                         Field.ofIntegerType(40)
-                                .label("Working Hours")
+                                .label(WORKING_HOURS_LABEL)
                                 .format("format_error_message")
                                 .placeholder("population_placeholder")
                                 .required("required_error_message")
                                 .span(ColSpan.HALF)
                                 .validate(IntegerRangeValidator.atLeast(1, "population_error_message")),
                         Field.ofSingleSelectionType(preferredShift)
-                                .label("Preferred shift")
+                                .label(PREFERRED_SHIFT_LABEL)
                                 .span(ColSpan.HALF)
                 ).title("Work hours Configuration")
         ).title("Form");
         return form;
     }
 
+    public static Employee toEmployee(Form form) {
+        Map<String, Object> values = new HashMap<>();
+        form.getFields().forEach(field -> {
+            switch (field) {
+                case DataField<?, ?, ?> dataField -> values.put(dataField.getLabel(), dataField.getValue());
+                case SingleSelectionField<?> selection -> values.put(selection.getLabel(), selection.getSelection());
+                default -> { }
+            }
+        });
+        return new Employee(
+                Objects.toString(values.get(NAME_LABEL), CalendarApp.UNKNOWN),
+                values.get(AGE_LABEL) instanceof Integer age ? age : 0,
+                Objects.toString(values.get(JOB_LABEL), null),
+                Objects.toString(values.get(EMAIL_LABEL), null),
+                values.get(WORKING_HOURS_LABEL) instanceof Integer hours ? hours : 0,
+                Objects.toString(values.get(PREFERRED_SHIFT_LABEL), null));
+    }
+
     @Override
     public void showFormWindow(Stage stage, Form form, Runnable onSave) {
         FormRenderer renderer = new FormRenderer(form);
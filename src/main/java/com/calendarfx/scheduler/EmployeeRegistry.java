@@ -0,0 +1,110 @@
+package com.calendarfx.scheduler;
+
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+
+/**
+ * Employees keyed by name, which is also the name of their calendar, with secondary indexes by job,
+ * by preferred shift and by both, so callers can fetch e.g. all nurses on eightToFour without scanning.
+ * Job lookups ignore case and surrounding blanks. Saving an employee with a known name replaces it.
+ */
+public class EmployeeRegistry {
+
+    private final Map<String, Employee> byName = new LinkedHashMap<>();
+    private final Map<String, Map<String, Employee>> byJob = new LinkedHashMap<>();
+    private final Map<String, Map<String, Employee>> byShift = new LinkedHashMap<>();
+    private final Map<String, Map<String, Employee>> byJobAndShift = new LinkedHashMap<>();
+
+    public EmployeeRegistry() {
+    }
+
+    public EmployeeRegistry(Collection<Employee> employees) {
+        employees.forEach(this::put);
+    }
+
+    // Returns the employee previously stored under the same name, if any
+    public synchronized Employee put(Employee employee) {
+        Employee previous = byName.put(employee.getName(), employee);
+        if (previous != null) {
+            unindex(previous);
+        }
+        index(byJob, jobKey(employee.getJob()), employee);
+        index(byShift, employee.getPreferredShift(), employee);
+        index(byJobAndShift, jobAndShiftKey(employee.getJob(), employee.getPreferredShift()), employee);
+        return previous;
+    }
+
+    public synchronized Employee remove(String name) {
+        Employee removed = byName.remove(name);
+        if (removed != null) {
+            unindex(removed);
+        }
+        return removed;
+    }
+
+    public synchronized Employee get(String name) {
+        return name == null ? null : byName.get(name);
+    }
+
+    public synchronized int size() {
+        return byName.size();
+    }
+
+    public synchronized List<Employee> getAll() {
+        return new ArrayList<>(byName.values());
+    }
+
+    public synchronized List<Employee> findByJob(String job) {
+        return copyOf(byJob.get(jobKey(job)));
+    }
+
+    public synchronized List<Employee> findByPreferredShift(String shift) {
+        return copyOf(byShift.get(shift));
+    }
+
+    public synchronized List<Employee> find(String job, String shift) {
+        return copyOf(byJobAndShift.get(jobAndShiftKey(job, shift)));
+    }
+
+    // ---------------------------------------------------------
+    // Indexes
+    // ---------------------------------------------------------
+
+    private void unindex(Employee employee) {
+        unindex(byJob, jobKey(employee.getJob()), employee);
+        unindex(byShift, employee.getPreferredShift(), employee);
+        unindex(byJobAndShift, jobAndShiftKey(employee.getJob(), employee.getPreferredShift()), employee);
+    }
+
+    private static void index(Map<String, Map<String, Employee>> index, String key, Employee employee) {
+        if (key != null) {
+            index.computeIfAbsent(key, k -> new LinkedHashMap<>()).put(employee.getName(), employee);
+        }
+    }
+
+    private static void unindex(Map<String, Map<String, Employee>> index, String key, Employee employee) {
+        if (key == null) {
+            return;
+        }
+        Map<String, Employee> bucket = index.get(key);
+        if (bucket != null && bucket.remove(employee.getName(), employee) && bucket.isEmpty()) {
+            index.remove(key);
+        }
+    }
+
+    private static List<Employee> copyOf(Map<String, Employee> bucket) {
+        return bucket == null ? List.of() : List.copyOf(bucket.values());
+    }
+
+    private static String jobKey(String job) {
+        return job == null ? null : job.trim().toLowerCase(Locale.ROOT);
+    }
+
+    private static String jobAndShiftKey(String job, String shift) {
+        return job == null || shift == null ? null : jobKey(job) + '\u0000' + shift;
+    }
+}
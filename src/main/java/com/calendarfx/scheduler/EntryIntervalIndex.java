@@ -0,0 +1,318 @@
+package com.calendarfx.scheduler;
+
+import java.time.LocalDateTime;
+import java.time.ZoneOffset;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.List;
+import java.util.concurrent.locks.ReentrantReadWriteLock;
+import java.util.function.Consumer;
+
+/**
+ * Augmented AVL tree over {@link GreatCalendar.GreatEntry} intervals, ordered by start and
+ * carrying the maximum end of every subtree, so range, point and overlap queries cost O(log n + k).
+ * Intervals are half open; entries without start or end are not indexed.
+ */
+public class EntryIntervalIndex {
+
+    private final ReentrantReadWriteLock lock = new ReentrantReadWriteLock();
+    private Node root;
+    private int size;
+
+    public EntryIntervalIndex() {
+    }
+
+    public EntryIntervalIndex(Collection<GreatCalendar.GreatEntry> entries) {
+        entries.forEach(this::add);
+    }
+
+    public int size() {
+        lock.readLock().lock();
+        try {
+            return size;
+        } finally {
+            lock.readLock().unlock();
+        }
+    }
+
+    public void add(GreatCalendar.GreatEntry entry) {
+        if (entry.getStart() == null || entry.getEnd() == null) {
+            return;
+        }
+        lock.writeLock().lock();
+        try {
+            root = insert(root, toKey(entry.getStart()), effectiveEnd(entry), entry);
+            size++;
+        } finally {
+            lock.writeLock().unlock();
+        }
+    }
+
+    public boolean remove(GreatCalendar.GreatEntry entry) {
+        if (entry.getStart() == null || entry.getEnd() == null) {
+            return false;
+        }
+        return remove(entry, entry.getStart(), entry.getEnd());
+    }
+
+    // Removes an entry that was indexed with the given interval, e.g. before its start/end are changed
+    public boolean remove(GreatCalendar.GreatEntry entry, LocalDateTime indexedStart, LocalDateTime indexedEnd) {
+        lock.writeLock().lock();
+        try {
+            long start = toKey(indexedStart);
+            long end = Math.max(toKey(indexedEnd), start + 1);
+            boolean[] removed = new boolean[1];
+            root = delete(root, start, end, entry, removed);
+            if (removed[0]) {
+                size--;
+            }
+            return removed[0];
+        } finally {
+            lock.writeLock().unlock();
+        }
+    }
+
+    public void clear() {
+        lock.writeLock().lock();
+        try {
+            root = null;
+            size = 0;
+        } finally {
+            lock.writeLock().unlock();
+        }
+    }
+
+    // ---------------------------------------------------------
+    // 1. QUERIES
+    // ---------------------------------------------------------
+
+    public List<GreatCalendar.GreatEntry> overlapping(LocalDateTime from, LocalDateTime to) {
+        List<GreatCalendar.GreatEntry> result = new ArrayList<>();
+        forEachOverlapping(from, to, result::add);
+        return result;
+    }
+
+    public List<GreatCalendar.GreatEntry> at(LocalDateTime time) {
+        List<GreatCalendar.GreatEntry> result = new ArrayList<>();
+        long key = toKey(time);
+        lock.readLock().lock();
+        try {
+            collectOverlapping(root, key, key + 1, result::add);
+        } finally {
+            lock.readLock().unlock();
+        }
+        return result;
+    }
+
+    public List<GreatCalendar.GreatEntry> within(LocalDateTime from, LocalDateTime to) {
+        List<GreatCalendar.GreatEntry> result = new ArrayList<>();
+        long lower = toKey(from);
+        long upper = toKey(to);
+        lock.readLock().lock();
+        try {
+            collectOverlapping(root, lower, upper, entry -> {
+                if (!entry.getStart().isBefore(from) && !entry.getEnd().isAfter(to)) {
+                    result.add(entry);
+                }
+            });
+        } finally {
+            lock.readLock().unlock();
+        }
+        return result;
+    }
+
+    public boolean hasOverlap(LocalDateTime from, LocalDateTime to) {
+        lock.readLock().lock();
+        try {
+            return anyOverlap(root, toKey(from), toKey(to));
+        } finally {
+            lock.readLock().unlock();
+        }
+    }
+
+    public void forEachOverlapping(LocalDateTime from, LocalDateTime to, Consumer<GreatCalendar.GreatEntry> action) {
+        lock.readLock().lock();
+        try {
+            collectOverlapping(root, toKey(from), toKey(to), action);
+        } finally {
+            lock.readLock().unlock();
+        }
+    }
+
+    private static void collectOverlapping(Node node, long from, long to, Consumer<GreatCalendar.GreatEntry> action) {
+        if (node == null || node.maxEnd <= from) {
+            return;
+        }
+        collectOverlapping(node.left, from, to, action);
+        if (node.start >= to) {
+            return;
+        }
+        if (node.end > from) {
+            node.entries.forEach(action);
+        }
+        collectOverlapping(node.right, from, to, action);
+    }
+
+    private static boolean anyOverlap(Node node, long from, long to) {
+        while (node != null) {
+            if (node.start < to && node.end > from) {
+                return true;
+            }
+            // Go left whenever the left subtree can still reach past from, otherwise only the right can match
+            if (node.left != null && node.left.maxEnd > from) {
+                node = node.left;
+            } else if (node.start < to) {
+                node = node.right;
+            } else {
+                return false;
+            }
+        }
+        return false;
+    }
+
+    static long toKey(LocalDateTime time) {
+        return time.toEpochSecond(ZoneOffset.UTC);
+    }
+
+    // Zero length entries are widened by one second so they still match queries containing their start
+    private static long effectiveEnd(GreatCalendar.GreatEntry entry) {
+        return Math.max(toKey(entry.getEnd()), toKey(entry.getStart()) + 1);
+    }
+
+    // ---------------------------------------------------------
+    // 2. AVL MAINTENANCE
+    // ---------------------------------------------------------
+
+    private static final class Node {
+        private final long start;
+        private final long end;
+        private final List<GreatCalendar.GreatEntry> entries = new ArrayList<>(1);
+        private long maxEnd;
+        private int height = 1;
+        private Node left;
+        private Node right;
+
+        Node(long start, long end) {
+            this.start = start;
+            this.end = end;
+            this.maxEnd = end;
+        }
+
+        int compareTo(long otherStart, long otherEnd) {
+            int byStart = Long.compare(start, otherStart);
+            return byStart != 0 ? byStart : Long.compare(end, otherEnd);
+        }
+    }
+
+    private static Node insert(Node node, long start, long end, GreatCalendar.GreatEntry entry) {
+        if (node == null) {
+            Node created = new Node(start, end);
+            created.entries.add(entry);
+            return created;
+        }
+        int cmp = node.compareTo(start, end);
+        if (cmp == 0) {
+            node.entries.add(entry);
+            return node;
+        }
+        if (cmp > 0) {
+            node.left = insert(node.left, start, end, entry);
+        } else {
+            node.right = insert(node.right, start, end, entry);
+        }
+        return rebalance(node);
+    }
+
+    private static Node delete(Node node, long start, long end, GreatCalendar.GreatEntry entry, boolean[] removed) {
+        if (node == null) {
+            return null;
+        }
+        int cmp = node.compareTo(start, end);
+        if (cmp > 0) {
+            node.left = delete(node.left, start, end, entry, removed);
+        } else if (cmp < 0) {
+            node.right = delete(node.right, start, end, entry, removed);
+        } else {
+            removed[0] = node.entries.removeIf(candidate -> candidate == entry);
+            if (!node.entries.isEmpty()) {
+                return node;
+            }
+            if (node.left == null) {
+                return node.right;
+            }
+            if (node.right == null) {
+                return node.left;
+            }
+            Node successor = node.right;
+            while (successor.left != null) {
+                successor = successor.left;
+            }
+            Node replacement = new Node(successor.start, successor.end);
+            replacement.entries.addAll(successor.entries);
+            replacement.left = node.left;
+            replacement.right = detachMin(node.right);
+            node = replacement;
+        }
+        return rebalance(node);
+    }
+
+    private static Node detachMin(Node node) {
+        if (node.left == null) {
+            return node.right;
+        }
+        node.left = detachMin(node.left);
+        return rebalance(node);
+    }
+
+    private static int height(Node node) {
+        return node == null ? 0 : node.height;
+    }
+
+    private static void update(Node node) {
+        node.height = 1 + Math.max(height(node.left), height(node.right));
+        long maxEnd = node.end;
+        if (node.left != null) {
+            maxEnd = Math.max(maxEnd, node.left.maxEnd);
+        }
+        if (node.right != null) {
+            maxEnd = Math.max(maxEnd, node.right.maxEnd);
+        }
+        node.maxEnd = maxEnd;
+    }
+
+    private static Node rebalance(Node node) {
+        update(node);
+        int balance = height(node.left) - height(node.right);
+        if (balance > 1) {
+            if (height(node.left.left) < height(node.left.right)) {
+                node.left = rotateLeft(node.left);
+            }
+            return rotateRight(node);
+        }
+        if (balance < -1) {
+            if (height(node.right.right) < height(node.right.left)) {
+                node.right = rotateRight(node.right);
+            }
+            return rotateLeft(node);
+        }
+        return node;
+    }
+
+    private static Node rotateRight(Node node) {
+        Node pivot = node.left;
+        node.left = pivot.right;
+        pivot.right = node;
+        update(node);
+        update(pivot);
+        return pivot;
+    }
+
+    private static Node rotateLeft(Node node) {
+        Node pivot = node.right;
+        node.right = pivot.left;
+        pivot.left = node;
+        update(node);
+        update(pivot);
+        return pivot;
+    }
+}
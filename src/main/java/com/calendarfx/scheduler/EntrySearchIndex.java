@@ -0,0 +1,407 @@
+package com.calendarfx.scheduler;
+
+import com.calendarfx.model.Calendar;
+import com.calendarfx.model.CalendarEvent;
+import com.calendarfx.model.CalendarSource;
+import com.calendarfx.model.Entry;
+import javafx.collections.ListChangeListener;
+import javafx.event.EventHandler;
+
+import java.time.LocalDate;
+import java.util.*;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.locks.ReentrantReadWriteLock;
+import java.util.function.Consumer;
+
+/**
+ * Inverted index from the words of entry titles and locations to the entries of all calendars of a
+ * {@link CalendarSource}. Entry events are captured on the FX thread and applied by a background
+ * worker, so a search right after an edit may not see it yet. Every word of a query must
+ * start a word of the title or location, e.g. "nig ward" finds "Night shift" at "Ward 3". Entries are
+ * numbered as they are indexed; a changed entry gets a new number, and the numbers of removed or
+ * changed entries are dropped in one pass once they outnumber the live ones. Calendars bound to a
+ * {@link ViewportEntryMaterializer} are indexed from their backing calendars, so searches also find
+ * entries far from the displayed dates; those found are materialized on the way out.
+ */
+public class EntrySearchIndex implements ViewportEntryMaterializer.BackingListener {
+
+    private static final int INITIAL_CAPACITY = 1024;
+    private static final int MIN_COMPACTION = 1024;
+
+    private final ReentrantReadWriteLock lock = new ReentrantReadWriteLock();
+    private final TreeMap<String, Postings> postings = new TreeMap<>();
+    // Docs are CalendarFX entries, or backing entries for calendars bound to the materializer
+    private final Map<Object, Integer> docIds = new IdentityHashMap<>();
+    private final BitSet live = new BitSet();
+    private final Set<Calendar> attached = Collections.newSetFromMap(new IdentityHashMap<>());
+    // FX thread only: calendars followed through the materializer instead of their entry events
+    private final Set<Calendar> backed = Collections.newSetFromMap(new IdentityHashMap<>());
+    private final EventHandler<CalendarEvent> entryHandler = this::onCalendarEvent;
+    private final ListChangeListener<Calendar> calendarListener = this::onCalendarsChanged;
+    private final ExecutorService worker = Executors.newSingleThreadExecutor(r -> {
+        Thread thread = new Thread(r, "search-index");
+        thread.setDaemon(true);
+        return thread;
+    });
+    private Object[] docs = new Object[INITIAL_CAPACITY];
+    private Calendar[] docCalendars = new Calendar[INITIAL_CAPACITY];
+    private int docCount;
+    private long version;
+    // The search field asks every calendar in turn with the same text, so one query answers them all
+    private volatile CachedQuery cached;
+    private CalendarSource source;
+    private volatile ViewportEntryMaterializer materializer;
+
+    public void attach(CalendarSource source) {
+        this.source = source;
+        source.getCalendars().addListener(calendarListener);
+        source.getCalendars().forEach(this::attach);
+    }
+
+    public void attach(ViewportEntryMaterializer materializer) {
+        this.materializer = materializer;
+        materializer.addBackingListener(this);
+    }
+
+    public void dispose() {
+        source.getCalendars().removeListener(calendarListener);
+        source.getCalendars().forEach(calendar -> calendar.removeEventHandler(entryHandler));
+        worker.shutdownNow();
+    }
+
+    public int size() {
+        lock.readLock().lock();
+        try {
+            return docIds.size();
+        } finally {
+            lock.readLock().unlock();
+        }
+    }
+
+    // ---------------------------------------------------------
+    // 1. QUERIES, ON ANY THREAD
+    // ---------------------------------------------------------
+
+    // Entries of calendar matching text that start by to and end from from on, recurring ones regardless of their
+    // end; returns null for texts without any word, which the caller has to search some other way
+    public List<Entry<?>> search(String text, Calendar calendar, LocalDate from, LocalDate to) {
+        List<String> terms = tokens(text);
+        if (terms.isEmpty()) {
+            return null;
+        }
+        String query = String.join(" ", terms);
+        CachedQuery last = cached;
+        if (last == null || !last.query().equals(query) || last.version() != currentVersion()) {
+            long started = System.nanoTime();
+            last = evaluate(query, terms);
+            cached = last;
+            Metrics.histogram("search.query").record(System.nanoTime() - started);
+        }
+        List<Entry<?>> found = new ArrayList<>();
+        List<GreatCalendar.GreatEntry> unmaterialized = new ArrayList<>();
+        for (Object doc : last.byCalendar().getOrDefault(calendar, List.of())) {
+            if (doc instanceof Entry<?> entry) {
+                if (!entry.getStartDate().isAfter(to) && (entry.isRecurring() || !entry.getEndDate().isBefore(from))) {
+                    found.add(entry);
+                }
+            } else if (doc instanceof GreatCalendar.GreatEntry great && great.getStart() != null && great.getEnd() != null
+                    && !great.getStart().toLocalDate().isAfter(to)
+                    && (RecurrenceExpander.isRecurring(great) || !great.getEnd().toLocalDate().isBefore(from))) {
+                unmaterialized.add(great);
+            }
+        }
+        ViewportEntryMaterializer current = materializer;
+        if (!unmaterialized.isEmpty() && current != null) {
+            found.addAll(current.materialize(calendar, unmaterialized));
+        }
+        return found;
+    }
+
+    private long currentVersion() {
+        lock.readLock().lock();
+        try {
+            return version;
+        } finally {
+            lock.readLock().unlock();
+        }
+    }
+
+    private CachedQuery evaluate(String query, List<String> terms) {
+        lock.readLock().lock();
+        try {
+            BitSet matches = null;
+            for (String term : terms) {
+                BitSet termMatches = new BitSet(docCount);
+                // Every word starting with the term sorts between the term and the term followed by the last char
+                postings.subMap(term, true, term + Character.MAX_VALUE, true).values()
+                        .forEach(list -> list.setAll(termMatches));
+                if (matches == null) {
+                    matches = termMatches;
+                } else {
+                    matches.and(termMatches);
+                }
+                if (matches.isEmpty()) {
+                    break;
+                }
+            }
+            matches.and(live);
+            Map<Calendar, List<Object>> byCalendar = new IdentityHashMap<>();
+            for (int doc = matches.nextSetBit(0); doc >= 0; doc = matches.nextSetBit(doc + 1)) {
+                byCalendar.computeIfAbsent(docCalendars[doc], c -> new ArrayList<>()).add(docs[doc]);
+            }
+            return new CachedQuery(query, version, byCalendar);
+        } finally {
+            lock.readLock().unlock();
+        }
+    }
+
+    static List<String> tokens(String text) {
+        List<String> tokens = new ArrayList<>();
+        forEachToken(text, tokens::add);
+        return tokens;
+    }
+
+    // Words are runs of letters and digits, lower-cased
+    private static void forEachToken(String text, Consumer<String> action) {
+        if (text == null) {
+            return;
+        }
+        String lower = text.toLowerCase(Locale.ROOT);
+        int start = -1;
+        for (int i = 0; i <= lower.length(); i++) {
+            boolean wordChar = i < lower.length() && Character.isLetterOrDigit(lower.charAt(i));
+            if (wordChar && start < 0) {
+                start = i;
+            } else if (!wordChar && start >= 0) {
+                action.accept(lower.substring(start, i));
+                start = -1;
+            }
+        }
+    }
+
+    private record CachedQuery(String query, long version, Map<Calendar, List<Object>> byCalendar) {
+    }
+
+    // ---------------------------------------------------------
+    // 2. FX THREAD: EVENT CAPTURE
+    // ---------------------------------------------------------
+
+    private void onCalendarsChanged(ListChangeListener.Change<? extends Calendar> change) {
+        while (change.next()) {
+            change.getRemoved().forEach(this::detach);
+            change.getAddedSubList().forEach(this::attach);
+        }
+    }
+
+    private void attach(Calendar calendar) {
+        calendar.addEventHandler(entryHandler);
+        // Entries spanning several days are listed once per day
+        Set<Entry<?>> seen = Collections.newSetFromMap(new IdentityHashMap<>());
+        List<IndexedEntry> entries = new ArrayList<>();
+        if (!backed.contains(calendar)) {
+            ((List<?>) calendar.findEntries("")).forEach(found -> {
+                Entry<?> entry = (Entry<?>) found;
+                if (!entry.isRecurrence() && seen.add(entry)) {
+                    entries.add(IndexedEntry.of(entry, calendar));
+                }
+            });
+        }
+        worker.execute(() -> update(() -> {
+            attached.add(calendar);
+            entries.forEach(entry -> apply(entry, false));
+        }));
+    }
+
+    private void detach(Calendar calendar) {
+        calendar.removeEventHandler(entryHandler);
+        worker.execute(() -> update(() -> removeCalendar(calendar)));
+    }
+
+    private void onCalendarEvent(CalendarEvent evt) {
+        Entry<?> entry = evt.getEntry();
+        // Entries of backed calendars come and go with the viewport, their changes arrive through the materializer
+        if (entry == null || entry.isRecurrence() || backed.contains(evt.getCalendar())) {
+            return;
+        }
+        boolean textChanged = evt.getEventType() == CalendarEvent.ENTRY_TITLE_CHANGED
+                || evt.getEventType() == CalendarEvent.ENTRY_LOCATION_CHANGED;
+        if (!textChanged && evt.getEventType() != CalendarEvent.ENTRY_CALENDAR_CHANGED) {
+            return;
+        }
+        IndexedEntry change = IndexedEntry.of(entry, entry.getCalendar());
+        worker.execute(() -> update(() -> apply(change, textChanged)));
+    }
+
+    @Override
+    public void bound(Calendar calendar, GreatCalendar backing) {
+        backed.add(calendar);
+        List<IndexedEntry> entries = backing.getEntries().stream()
+                .map(entry -> IndexedEntry.of(entry, calendar))
+                .toList();
+        // Replaces whatever was indexed from the CalendarFX entries before
+        worker.execute(() -> update(() -> {
+            removeCalendar(calendar);
+            attached.add(calendar);
+            entries.forEach(entry -> apply(entry, false));
+        }));
+    }
+
+    @Override
+    public void unbound(Calendar calendar) {
+        backed.remove(calendar);
+    }
+
+    @Override
+    public void entryChanged(Calendar calendar, GreatCalendar.GreatEntry entry) {
+        IndexedEntry change = IndexedEntry.of(entry, calendar);
+        worker.execute(() -> update(() -> apply(change, true)));
+    }
+
+    @Override
+    public void entryRemoved(Calendar calendar, GreatCalendar.GreatEntry entry) {
+        IndexedEntry change = IndexedEntry.of(entry, null);
+        worker.execute(() -> update(() -> apply(change, false)));
+    }
+
+    // Title and location as they were when the change happened, so the worker never reads the entry
+    private record IndexedEntry(Object entry, Calendar calendar, String title, String location) {
+        static IndexedEntry of(Entry<?> entry, Calendar calendar) {
+            return new IndexedEntry(entry, calendar, entry.getTitle(), entry.getLocation());
+        }
+
+        static IndexedEntry of(GreatCalendar.GreatEntry entry, Calendar calendar) {
+            return new IndexedEntry(entry, calendar, entry.getTitle(), entry.getLocation());
+        }
+    }
+
+    // ---------------------------------------------------------
+    // 3. WORKER THREAD: INDEX UPDATES
+    // ---------------------------------------------------------
+
+    private void update(Runnable change) {
+        lock.writeLock().lock();
+        try {
+            change.run();
+        } finally {
+            lock.writeLock().unlock();
+        }
+    }
+
+    private void apply(IndexedEntry change, boolean textChanged) {
+        // Moves reach the handlers of both calendars, so this must be idempotent
+        if (change.calendar() == null || !attached.contains(change.calendar())) {
+            remove(change.entry());
+            return;
+        }
+        Integer doc = docIds.get(change.entry());
+        if (textChanged || doc == null || docCalendars[doc] != change.calendar()) {
+            put(change);
+        }
+    }
+
+    private void removeCalendar(Calendar calendar) {
+        attached.remove(calendar);
+        // Collected first, since removing may renumber the entries
+        List<Object> entries = new ArrayList<>();
+        for (int doc = live.nextSetBit(0); doc >= 0; doc = live.nextSetBit(doc + 1)) {
+            if (docCalendars[doc] == calendar) {
+                entries.add(docs[doc]);
+            }
+        }
+        entries.forEach(this::remove);
+    }
+
+    // An entry that is indexed already is indexed again under a new number
+    private void put(IndexedEntry change) {
+        remove(change.entry());
+        if (docCount == docs.length) {
+            docs = Arrays.copyOf(docs, docCount * 2);
+            docCalendars = Arrays.copyOf(docCalendars, docCount * 2);
+        }
+        int doc = docCount++;
+        docs[doc] = change.entry();
+        docCalendars[doc] = change.calendar();
+        docIds.put(change.entry(), doc);
+        live.set(doc);
+        Consumer<String> addWord = word -> postings.computeIfAbsent(word, w -> new Postings()).add(doc);
+        forEachToken(change.title(), addWord);
+        forEachToken(change.location(), addWord);
+        version++;
+    }
+
+    private void remove(Object entry) {
+        Integer doc = docIds.remove(entry);
+        if (doc == null) {
+            return;
+        }
+        live.clear(doc);
+        docs[doc] = null;
+        docCalendars[doc] = null;
+        version++;
+        int dead = docCount - docIds.size();
+        if (dead >= MIN_COMPACTION && dead > docIds.size()) {
+            compact();
+        }
+    }
+
+    private void compact() {
+        int[] renumbered = new int[docCount];
+        int next = 0;
+        for (int doc = 0; doc < docCount; doc++) {
+            renumbered[doc] = live.get(doc) ? next++ : -1;
+        }
+        Object[] compactDocs = new Object[Math.max(INITIAL_CAPACITY, next * 2)];
+        Calendar[] compactCalendars = new Calendar[compactDocs.length];
+        for (int doc = live.nextSetBit(0); doc >= 0; doc = live.nextSetBit(doc + 1)) {
+            compactDocs[renumbered[doc]] = docs[doc];
+            compactCalendars[renumbered[doc]] = docCalendars[doc];
+            docIds.put(docs[doc], renumbered[doc]);
+        }
+        postings.values().removeIf(list -> list.renumber(renumbered) == 0);
+        docs = compactDocs;
+        docCalendars = compactCalendars;
+        docCount = next;
+        live.clear();
+        live.set(0, next);
+    }
+
+    // Sorted, growable list of entry numbers
+    private static final class Postings {
+        private int[] docs = new int[4];
+        private int size;
+
+        // Numbers only grow, so appending keeps the list sorted and a repeated word adds its entry once
+        void add(int doc) {
+            if (size > 0 && docs[size - 1] == doc) {
+                return;
+            }
+            if (size == docs.length) {
+                docs = Arrays.copyOf(docs, size * 2);
+            }
+            docs[size++] = doc;
+        }
+
+        void setAll(BitSet bits) {
+            for (int i = 0; i < size; i++) {
+                bits.set(docs[i]);
+            }
+        }
+
+        // Drops removed entries and returns how many are left
+        int renumber(int[] renumbered) {
+            int kept = 0;
+            for (int i = 0; i < size; i++) {
+                int doc = renumbered[docs[i]];
+                if (doc >= 0) {
+                    docs[kept++] = doc;
+                }
+            }
+            size = kept;
+            if (docs.length > 2 * Math.max(4, size)) {
+                docs = Arrays.copyOf(docs, Math.max(4, size));
+            }
+            return size;
+        }
+    }
+}
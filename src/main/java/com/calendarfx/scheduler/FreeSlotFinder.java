@@ -0,0 +1,197 @@
+package com.calendarfx.scheduler;
+
+import java.time.Duration;
+import java.time.LocalDate;
+import java.time.LocalDateTime;
+import java.time.LocalTime;
+import java.time.ZoneOffset;
+import java.time.temporal.ChronoUnit;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.List;
+import java.util.Optional;
+import java.util.stream.IntStream;
+
+/**
+ * Finds the earliest window of a given length in which at least K of a set of calendars are free,
+ * limited to daily working hours and, optionally, to windows starting no earlier than a given time.
+ * A day end of midnight stands for the end of the day.
+ * Full day entries block their whole days. Each day is searched independently, in parallel. When the window
+ * length and the day's opening and closing times fall on the {@link AvailabilityBitset#SLOT_MINUTES} minute
+ * grid, the day is answered from the calendars' availability bitsets through an {@link AvailabilityMatrix}.
+ * Otherwise the busy intervals of every calendar are turned into the window starts they block, merged per
+ * calendar and swept in start order while counting the blocked calendars.
+ */
+public class FreeSlotFinder {
+
+    public record Query(Duration length, int minimumFree, LocalDate from, LocalDate to,
+                        LocalTime dayStart, LocalTime dayEnd, LocalDateTime notBefore) {
+
+        public Query(Duration length, int minimumFree, LocalDate from, LocalDate to,
+                     LocalTime dayStart, LocalTime dayEnd) {
+            this(length, minimumFree, from, to, dayStart, dayEnd, null);
+        }
+
+        // Starts with the next full minute, so a slot earlier today that has already passed is never offered
+        public static Query nextDays(Duration length, int minimumFree, int days, LocalTime dayStart, LocalTime dayEnd) {
+            LocalDateTime now = LocalDateTime.now().truncatedTo(ChronoUnit.MINUTES).plusMinutes(1);
+            LocalDate today = now.toLocalDate();
+            return new Query(length, minimumFree, today, today.plusDays(days - 1), dayStart, dayEnd, now);
+        }
+    }
+
+    public record Slot(LocalDateTime start, LocalDateTime end, List<String> freeCalendars) {
+    }
+
+    private static final long SLOT_SECONDS = AvailabilityBitset.SLOT_MINUTES * 60L;
+
+    private final List<GreatCalendar> calendars;
+    private final AvailabilityMatrix matrix;
+
+    public FreeSlotFinder(Collection<GreatCalendar> calendars) {
+        this.calendars = List.copyOf(calendars);
+        this.matrix = new AvailabilityMatrix(this.calendars);
+    }
+
+    public Optional<Slot> findEarliest(Query query) {
+        int days = (int) (query.to().toEpochDay() - query.from().toEpochDay()) + 1;
+        if (days <= 0 || query.minimumFree() > calendars.size() || query.length().isNegative()) {
+            return Optional.empty();
+        }
+        if (query.length().isPositive() && isOnSlotGrid(query.length().toSeconds())) {
+            // The days are searched in parallel, so the horizons must not be moved by each of them in turn
+            matrix.cover(query.from().atStartOfDay(), query.to().plusDays(1).atStartOfDay());
+        }
+        return IntStream.range(0, days)
+                .parallel()
+                .mapToObj(day -> findInDay(query, query.from().plusDays(day)))
+                .flatMap(Optional::stream)
+                .findFirst();
+    }
+
+    private Optional<Slot> findInDay(Query query, LocalDate day) {
+        LocalDateTime open = day.atTime(query.dayStart());
+        LocalDateTime close = query.dayEnd().equals(LocalTime.MIDNIGHT)
+                ? day.plusDays(1).atStartOfDay()
+                : day.atTime(query.dayEnd());
+        if (query.notBefore() != null && open.isBefore(query.notBefore())) {
+            open = query.notBefore();
+        }
+        long length = query.length().toSeconds();
+        long first = toSecond(open);
+        long last = toSecond(close) - length;
+        if (last < first) {
+            return Optional.empty();
+        }
+        if (length > 0 && isOnSlotGrid(length) && isOnSlotGrid(first) && isOnSlotGrid(last)) {
+            return findInDayBySlots(query, open, close);
+        }
+
+        // A busy interval [s, e) blocks every window start in (s - length, e)
+        List<long[]> events = new ArrayList<>();
+        for (GreatCalendar calendar : calendars) {
+            List<long[]> blocked = new ArrayList<>();
+            forEachBusy(calendar, open, close, (start, end) ->
+                    blocked.add(new long[]{start - length + 1, Math.max(end, start + 1)}));
+            blocked.sort((a, b) -> Long.compare(a[0], b[0]));
+            long start = Long.MIN_VALUE;
+            long end = Long.MIN_VALUE;
+            for (long[] interval : blocked) {
+                if (interval[0] > end) {
+                    if (end > start) {
+                        events.add(new long[]{start, 1});
+                        events.add(new long[]{end, -1});
+                    }
+                    start = interval[0];
+                    end = interval[1];
+                } else {
+                    end = Math.max(end, interval[1]);
+                }
+            }
+            if (end > start) {
+                events.add(new long[]{start, 1});
+                events.add(new long[]{end, -1});
+            }
+        }
+        events.sort((a, b) -> Long.compare(a[0], b[0]));
+
+        int allowedBlocked = calendars.size() - query.minimumFree();
+        int blocked = 0;
+        int i = 0;
+        while (i < events.size() && events.get(i)[0] <= first) {
+            blocked += (int) events.get(i++)[1];
+        }
+        long candidate = first;
+        while (true) {
+            if (blocked <= allowedBlocked) {
+                return Optional.of(toSlot(candidate, length));
+            }
+            if (i >= events.size()) {
+                return Optional.empty();
+            }
+            candidate = events.get(i)[0];
+            if (candidate > last) {
+                return Optional.empty();
+            }
+            while (i < events.size() && events.get(i)[0] == candidate) {
+                blocked += (int) events.get(i++)[1];
+            }
+        }
+    }
+
+    // On the slot grid a window overlaps an entry exactly when it contains one of the slots the entry marks busy
+    private Optional<Slot> findInDayBySlots(Query query, LocalDateTime open, LocalDateTime close) {
+        int width = (int) (query.length().toSeconds() / SLOT_SECONDS);
+        LocalDateTime lastStart = close.minus(query.length());
+        int[] blocked = matrix.blockedCounts(open, lastStart.plusSeconds(SLOT_SECONDS), width);
+        int allowedBlocked = calendars.size() - query.minimumFree();
+        for (int slot = 0; slot < blocked.length; slot++) {
+            if (blocked[slot] <= allowedBlocked) {
+                return Optional.of(toSlot(toSecond(open) + slot * SLOT_SECONDS, query.length().toSeconds()));
+            }
+        }
+        return Optional.empty();
+    }
+
+    private static boolean isOnSlotGrid(long second) {
+        return Math.floorMod(second, SLOT_SECONDS) == 0;
+    }
+
+    private Slot toSlot(long startSecond, long length) {
+        LocalDateTime start = LocalDateTime.ofEpochSecond(startSecond, 0, ZoneOffset.UTC);
+        LocalDateTime end = start.plusSeconds(length);
+        String[] free = calendars.stream()
+                .filter(calendar -> {
+                    boolean[] busy = {false};
+                    forEachBusy(calendar, start, end, (from, to) ->
+                            busy[0] |= from < startSecond + length && Math.max(to, from + 1) > startSecond);
+                    return !busy[0];
+                })
+                .map(GreatCalendar::getName)
+                .toArray(String[]::new);
+        return new Slot(start, end, Arrays.asList(free));
+    }
+
+    // Busy intervals as seconds, with full day entries widened to their whole days; intervals may reach outside [from, to)
+    private static void forEachBusy(GreatCalendar calendar, LocalDateTime from, LocalDateTime to, LongBiConsumer action) {
+        // A full day entry may end before its last day does, so the range reaches back a day for it
+        calendar.forEachOverlapping(from.toLocalDate().minusDays(1).atStartOfDay(), to, entry -> {
+            LocalDateTime start = entry.getStart();
+            LocalDateTime end = entry.getEnd();
+            if (entry.isFullDay()) {
+                start = start.toLocalDate().atStartOfDay();
+                end = end.toLocalDate().plusDays(1).atStartOfDay();
+            }
+            action.accept(toSecond(start), toSecond(end));
+        });
+    }
+
+    private interface LongBiConsumer {
+        void accept(long start, long end);
+    }
+
+    private static long toSecond(LocalDateTime time) {
+        return EntryIntervalIndex.toKey(time);
+    }
+}
@@ -0,0 +1,117 @@
+package com.calendarfx.scheduler;
+
+import com.dlsc.formsfx.model.structure.Field;
+import com.dlsc.formsfx.model.structure.Form;
+import com.dlsc.formsfx.model.structure.Group;
+import com.dlsc.formsfx.model.structure.IntegerField;
+import com.dlsc.formsfx.model.validators.IntegerRangeValidator;
+import com.dlsc.formsfx.view.renderer.FormRenderer;
+import com.dlsc.formsfx.view.util.ColSpan;
+import javafx.geometry.Pos;
+import javafx.scene.Scene;
+import javafx.scene.control.Alert;
+import javafx.scene.control.Button;
+import javafx.scene.layout.BorderPane;
+import javafx.scene.layout.HBox;
+import javafx.stage.Stage;
+
+import java.time.Duration;
+import java.time.LocalTime;
+
+public class FreeSlotFormProvider implements FormProvider {
+
+    public static final int DEFAULT_MINUTES = 60;
+    public static final int DEFAULT_DAYS = 14;
+    public static final int DEFAULT_DAY_START = 8;
+    public static final int DEFAULT_DAY_END = 18;
+    private final int width;
+    private final int height;
+    private final int buttonSpacing;
+    private IntegerField minutesField;
+    private IntegerField minimumFreeField;
+    private IntegerField daysField;
+    private IntegerField dayStartField;
+    private IntegerField dayEndField;
+
+    public FreeSlotFormProvider(int width, int height, int buttonSpacing) {
+        this.width = width;
+        this.height = height;
+        this.buttonSpacing = buttonSpacing;
+    }
+
+    @Override
+    public Form createForm() {
+        minutesField = Field.ofIntegerType(DEFAULT_MINUTES)
+                .label("Minutes")
+                .required("required_error_message")
+                .span(ColSpan.HALF)
+                .validate(IntegerRangeValidator.atLeast(1, "minutes_error_message"));
+        minimumFreeField = Field.ofIntegerType(1)
+                .label("Free calendars")
+                .required("required_error_message")
+                .span(ColSpan.HALF)
+                .validate(IntegerRangeValidator.atLeast(1, "free_error_message"));
+        daysField = Field.ofIntegerType(DEFAULT_DAYS)
+                .label("Days ahead")
+                .required("required_error_message")
+                .span(ColSpan.HALF)
+                .validate(IntegerRangeValidator.atLeast(1, "days_error_message"));
+        dayStartField = Field.ofIntegerType(DEFAULT_DAY_START)
+                .label("Day start hour")
+                .span(ColSpan.HALF)
+                .validate(IntegerRangeValidator.between(0, 23, "hour_error_message"));
+        dayEndField = Field.ofIntegerType(DEFAULT_DAY_END)
+                .label("Day end hour")
+                .span(ColSpan.HALF)
+                .validate(IntegerRangeValidator.between(1, 24, "hour_error_message"));
+        return Form.of(
+                Group.of(minutesField, minimumFreeField, daysField, dayStartField, dayEndField)
+        ).title("Find free slot");
+    }
+
+    public FreeSlotFinder.Query createQuery() {
+        int dayEnd = dayEndField.getValue();
+        // Hour 24 is the following midnight, which the finder reads from a day end of midnight
+        return FreeSlotFinder.Query.nextDays(
+                Duration.ofMinutes(minutesField.getValue()),
+                minimumFreeField.getValue(),
+                daysField.getValue(),
+                LocalTime.of(dayStartField.getValue(), 0),
+                dayEnd >= 24 ? LocalTime.MIDNIGHT : LocalTime.of(dayEnd, 0));
+    }
+
+    @Override
+    public void showFormWindow(Stage stage, Form form, Runnable onSave) {
+        FormRenderer renderer = new FormRenderer(form);
+        Button findButton = new Button("Find");
+
+        BorderPane root = new BorderPane();
+        HBox buttons = new HBox(buttonSpacing, findButton);
+        buttons.setAlignment(Pos.TOP_CENTER);
+
+        root.setRight(buttons);
+        root.setCenter(renderer);
+
+        Scene scene = new Scene(root, width, height);
+        stage.setScene(scene);
+        stage.setTitle("Free Slot Finder");
+        stage.show();
+
+        findButton.setOnAction(e -> {
+            if (!form.isValid()) {
+                return;
+            }
+            form.persist();
+            if (dayEndField.getValue() <= dayStartField.getValue()) {
+                Alert alert = new Alert(Alert.AlertType.WARNING);
+                alert.initOwner(stage);
+                alert.setTitle("Free Slot Finder");
+                alert.setHeaderText("The day end hour must be after the day start hour");
+                alert.showAndWait();
+                return;
+            }
+            stage.close();
+            onSave.run();
+        });
+    }
+}
@@ -1,21 +1,34 @@
 package com.calendarfx.scheduler;
 
 import com.fasterxml.jackson.annotation.JsonCreator;
+import com.fasterxml.jackson.annotation.JsonIgnore;
+import com.fasterxml.jackson.annotation.JsonInclude;
 import com.fasterxml.jackson.annotation.JsonProperty;
 
+import java.time.LocalDate;
 import java.time.LocalDateTime;
+import java.time.temporal.ChronoUnit;
+import java.util.ArrayList;
 import java.util.List;
+import java.util.function.Consumer;
 
 public class GreatCalendar {
+    public static final int AVAILABILITY_DAYS = 91;
+    public static final RecurrenceExpander RECURRENCES =
+            new RecurrenceExpander(RecurrenceExpander.configuredCacheWindows());
     private String name;
     protected List<GreatEntry> entries;
+    // Recurring entries are kept out of the interval index and expanded per queried range instead
+    private EntryIntervalIndex intervalIndex;
+    private List<GreatEntry> recurringEntries;
+    private AvailabilityBitset availability;
 
     @JsonCreator
     public GreatCalendar(@JsonProperty("name") String name
                         ,@JsonProperty("entries") List<GreatEntry> entries
                          ) {
         this.name = name;
-        this.entries = entries;
+        this.entries = entries == null ? new ArrayList<>() : new ArrayList<>(entries);
     }
 
 
@@ -29,6 +42,153 @@ public class GreatCalendar {
         return entries;
     }
 
+    // Entries should be added, removed and rescheduled through these methods to keep the index current
+    public synchronized void addEntry(GreatEntry entry) {
+        entries.add(entry);
+        if (RecurrenceExpander.isRecurring(entry)) {
+            if (recurringEntries != null) {
+                recurringEntries.add(entry);
+            }
+            availability = null;
+            return;
+        }
+        if (intervalIndex != null) {
+            intervalIndex.add(entry);
+        }
+        if (availability != null) {
+            availability.add(entry);
+        }
+    }
+
+    public synchronized boolean removeEntry(GreatEntry entry) {
+        boolean removed = entries.removeIf(candidate -> candidate == entry);
+        if (removed && RecurrenceExpander.isRecurring(entry)) {
+            if (recurringEntries != null) {
+                recurringEntries.removeIf(candidate -> candidate == entry);
+            }
+            availability = null;
+            return true;
+        }
+        if (removed && intervalIndex != null) {
+            intervalIndex.remove(entry);
+        }
+        if (removed && availability != null && entry.start != null && entry.end != null) {
+            rebuildAvailability(entry.start, entry.end, entry.fullDay);
+        }
+        return removed;
+    }
+
+    public synchronized void rescheduleEntry(GreatEntry entry, LocalDateTime start, LocalDateTime end) {
+        if (RecurrenceExpander.isRecurring(entry)) {
+            // Moving a recurring entry moves all of its occurrences
+            removeEntry(entry);
+            entry.start = start;
+            entry.end = end;
+            addEntry(entry);
+            return;
+        }
+        LocalDateTime oldStart = entry.start;
+        LocalDateTime oldEnd = entry.end;
+        if (intervalIndex != null && oldStart != null && oldEnd != null) {
+            intervalIndex.remove(entry, oldStart, oldEnd);
+        }
+        entry.start = start;
+        entry.end = end;
+        if (RecurrenceExpander.isRecurring(entry)) {
+            if (recurringEntries != null) {
+                recurringEntries.add(entry);
+            }
+            availability = null;
+            return;
+        }
+        if (intervalIndex != null) {
+            intervalIndex.add(entry);
+        }
+        if (availability != null) {
+            if (oldStart != null && oldEnd != null) {
+                rebuildAvailability(oldStart, oldEnd, entry.fullDay);
+            }
+            availability.add(entry);
+        }
+    }
+
+    // Full day entries were marked busy for their whole days, so those are what has to be rebuilt
+    private void rebuildAvailability(LocalDateTime start, LocalDateTime end, boolean fullDay) {
+        if (fullDay) {
+            start = start.toLocalDate().atStartOfDay();
+            end = end.toLocalDate().plusDays(1).atStartOfDay();
+        }
+        availability.rebuild(start, end, this);
+    }
+
+    public synchronized EntryIntervalIndex intervalIndex() {
+        if (intervalIndex == null) {
+            intervalIndex = new EntryIntervalIndex(entries.stream()
+                    .filter(entry -> !RecurrenceExpander.isRecurring(entry))
+                    .toList());
+        }
+        return intervalIndex;
+    }
+
+    // Derived from entries, so it must not end up in the JSON next to them
+    @JsonIgnore
+    public synchronized List<GreatEntry> getRecurringEntries() {
+        if (recurringEntries == null) {
+            recurringEntries = new ArrayList<>(entries.stream().filter(RecurrenceExpander::isRecurring).toList());
+        }
+        return List.copyOf(recurringEntries);
+    }
+
+    // Indexed entries and occurrences of recurring entries overlapping [from, to)
+    public void forEachOverlapping(LocalDateTime from, LocalDateTime to, Consumer<GreatEntry> action) {
+        intervalIndex().forEachOverlapping(from, to, action);
+        for (GreatEntry recurring : getRecurringEntries()) {
+            RECURRENCES.forEachOccurrence(recurring, from, to, action);
+        }
+    }
+
+    public boolean hasOverlap(LocalDateTime from, LocalDateTime to) {
+        if (intervalIndex().hasOverlap(from, to)) {
+            return true;
+        }
+        for (GreatEntry recurring : getRecurringEntries()) {
+            if (!RECURRENCES.expand(recurring, from, to).isEmpty()) {
+                return true;
+            }
+        }
+        return false;
+    }
+
+    // Moves the availability horizon to start at the week of from when [from, to) is not covered yet
+    public synchronized AvailabilityBitset availability(LocalDateTime from, LocalDateTime to) {
+        if (availability == null || !availability.covers(from, to)) {
+            LocalDate origin = ConflictRuleEngine.weekOf(from);
+            int days = (int) Math.max(AVAILABILITY_DAYS, ChronoUnit.DAYS.between(origin, to.toLocalDate()) + 1);
+            AvailabilityBitset rebuilt = new AvailabilityBitset(origin, days);
+            forEachOverlapping(rebuilt.getOrigin().minusDays(1), rebuilt.getEnd(), rebuilt::add);
+            availability = rebuilt;
+        }
+        return availability;
+    }
+
+    public boolean isFree(LocalDateTime from, LocalDateTime to) {
+        return availability(from, to).isFree(from, to);
+    }
+
+    public List<GreatEntry> findEntries(LocalDateTime from, LocalDateTime to) {
+        List<GreatEntry> found = new ArrayList<>();
+        forEachOverlapping(from, to, found::add);
+        return found;
+    }
+
+    public List<GreatEntry> findEntriesAt(LocalDateTime time) {
+        List<GreatEntry> found = new ArrayList<>(intervalIndex().at(time));
+        for (GreatEntry recurring : getRecurringEntries()) {
+            RECURRENCES.forEachOccurrence(recurring, time, time.plusNanos(1), found::add);
+        }
+        return found;
+    }
+
     public static class GreatEntry {
         protected String id;
         protected String title;
@@ -36,29 +196,38 @@ public class GreatCalendar {
         protected LocalDateTime end;
         protected boolean fullDay;
         protected String location;
+        protected String recurrenceRule;
 
         public GreatEntry() {}
 
+        public GreatEntry(String id, String title, LocalDateTime start, LocalDateTime end,
+                          boolean fullDay, String location) {
+            this(id, title, start, end, fullDay, location, null);
+        }
+
         @JsonCreator
         public GreatEntry(@JsonProperty("id") String id,
                           @JsonProperty("title") String title,
                           @JsonProperty("start") LocalDateTime start,
                           @JsonProperty("end") LocalDateTime end,
                           @JsonProperty("fullDay") boolean fullDay,
-                          @JsonProperty("location") String location) {
+                          @JsonProperty("location") String location,
+                          @JsonProperty("recurrenceRule") String recurrenceRule) {
+            // Every way of building entries, Jackson included, goes through here, so repeated texts are pooled once
             this.id = id;
-            this.title = title;
+            this.title = StringPool.canonical(title);
             this.start = start;
             this.end = end;
             this.fullDay = fullDay;
-            this.location = location;
+            this.location = StringPool.canonical(location);
+            this.recurrenceRule = StringPool.canonical(recurrenceRule);
         }
 
         public String getId() { return id; }
         public void setId(String id) { this.id = id; }
 
         public String getTitle() { return title; }
-        public void setTitle(String title) { this.title = title; }
+        public void setTitle(String title) { this.title = StringPool.canonical(title); }
 
         public LocalDateTime getStart() { return start; }
         public void setStart(LocalDateTime start) { this.start = start; }
@@ -70,7 +239,12 @@ public class GreatCalendar {
         public void setFullDay(boolean fullDay) { this.fullDay = fullDay; }
 
         public String getLocation() { return location; }
-        public void setLocation(String location) { this.location = location; }
+        public void setLocation(String location) { this.location = StringPool.canonical(location); }
+
+        // RFC 5545 rule as used by CalendarFX, e.g. RRULE:FREQ=WEEKLY;BYDAY=MO; only written when set
+        @JsonInclude(JsonInclude.Include.NON_NULL)
+        public String getRecurrenceRule() { return recurrenceRule; }
+        public void setRecurrenceRule(String recurrenceRule) { this.recurrenceRule = StringPool.canonical(recurrenceRule); }
     }
 
 }
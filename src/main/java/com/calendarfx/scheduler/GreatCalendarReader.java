@@ -0,0 +1,110 @@
+package com.calendarfx.scheduler;
+
+import com.fasterxml.jackson.core.JsonParser;
+import com.fasterxml.jackson.core.JsonToken;
+import com.fasterxml.jackson.databind.ObjectMapper;
+
+import java.io.Closeable;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.UncheckedIOException;
+import java.util.ArrayList;
+import java.util.Iterator;
+import java.util.List;
+import java.util.NoSuchElementException;
+import java.util.function.Consumer;
+
+/**
+ * Pulls {@link GreatCalendar}s one at a time from a JSON array, binding each entry individually,
+ * so only the calendar currently being parsed is held in memory.
+ */
+public class GreatCalendarReader implements Iterator<GreatCalendar>, Closeable {
+
+    private final ObjectMapper mapper;
+    private final JsonParser parser;
+    private final Consumer<GreatCalendar.GreatEntry> entryListener;
+    private GreatCalendar next;
+    private boolean finished;
+
+    public GreatCalendarReader(ObjectMapper mapper, InputStream in) throws IOException {
+        this(mapper, in, null);
+    }
+
+    public GreatCalendarReader(ObjectMapper mapper, InputStream in,
+                               Consumer<GreatCalendar.GreatEntry> entryListener) throws IOException {
+        this.mapper = mapper;
+        this.parser = mapper.getFactory().createParser(in);
+        this.entryListener = entryListener;
+        JsonToken first = parser.nextToken();
+        if (first == null) {
+            finished = true;
+        } else if (first != JsonToken.START_ARRAY) {
+            throw new IOException("Expected an array of calendars but found " + first);
+        }
+    }
+
+    @Override
+    public boolean hasNext() {
+        if (next == null && !finished) {
+            try {
+                next = readCalendar();
+            } catch (IOException e) {
+                throw new UncheckedIOException("Failed to read calendar", e);
+            }
+        }
+        return next != null;
+    }
+
+    @Override
+    public GreatCalendar next() {
+        if (!hasNext()) {
+            throw new NoSuchElementException();
+        }
+        GreatCalendar calendar = next;
+        next = null;
+        return calendar;
+    }
+
+    public void forEachRemaining(Consumer<? super GreatCalendar> action) {
+        while (hasNext()) {
+            action.accept(next());
+        }
+    }
+
+    private GreatCalendar readCalendar() throws IOException {
+        JsonToken token = parser.nextToken();
+        if (token == JsonToken.END_ARRAY || token == null) {
+            finished = true;
+            return null;
+        }
+        if (token != JsonToken.START_OBJECT) {
+            throw new IOException("Expected a calendar object but found " + token);
+        }
+
+        String name = null;
+        List<GreatCalendar.GreatEntry> entries = new ArrayList<>();
+        while (parser.nextToken() == JsonToken.FIELD_NAME) {
+            String field = parser.currentName();
+            JsonToken value = parser.nextToken();
+            if ("name".equals(field)) {
+                name = value == JsonToken.VALUE_NULL ? null : parser.getText();
+            } else if ("entries".equals(field) && value == JsonToken.START_ARRAY) {
+                while (parser.nextToken() == JsonToken.START_OBJECT) {
+                    GreatCalendar.GreatEntry entry = mapper.readValue(parser, GreatCalendar.GreatEntry.class);
+                    entries.add(entry);
+                    if (entryListener != null) {
+                        entryListener.accept(entry);
+                    }
+                }
+            } else {
+                parser.skipChildren();
+            }
+        }
+        return new GreatCalendar(name, entries);
+    }
+
+    @Override
+    public void close() throws IOException {
+        parser.close();
+    }
+}
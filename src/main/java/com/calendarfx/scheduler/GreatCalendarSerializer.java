@@ -3,14 +3,32 @@ package com.calendarfx.scheduler;
 import com.calendarfx.model.Calendar;
 import com.calendarfx.model.Entry;
 
+import java.io.BufferedReader;
+import java.io.IOException;
+import java.io.InputStreamReader;
+import java.io.UncheckedIOException;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.Collection;
 import java.util.List;
+import java.util.function.BiConsumer;
+import java.util.function.Consumer;
 
 public class GreatCalendarSerializer implements CalendarSerializer {
 
+    private static final int ICS_BUFFER_SIZE = 64 * 1024;
+
     @Override
     public Calendar toCalendar(GreatCalendar gc) {
+        SchedulerEvents.Conversion event = SchedulerEvents.conversion("toCalendar", gc.getName());
         Calendar calendar = new Calendar(gc.getName());
         gc.getEntries().forEach(e -> calendar.addEntry( toEntry(e) ));
+        event.calendars = 1;
+        event.entries = gc.getEntries().size();
+        event.finish();
         return calendar;
     }
 
@@ -21,16 +39,23 @@ public class GreatCalendarSerializer implements CalendarSerializer {
         entry.setInterval(ge.start, ge.end);
         entry.setFullDay(ge.fullDay);
         entry.setLocation(ge.location);
+        if (ge.recurrenceRule != null) {
+            entry.setRecurrenceRule(ge.recurrenceRule);
+        }
         return entry;
     }
 
     @Override
     public GreatCalendar fromCalendar(Calendar calendar) {
+        SchedulerEvents.Conversion event = SchedulerEvents.conversion("fromCalendar", calendar.getName());
         List<GreatCalendar.GreatEntry> dtoEntries = calendar.findEntries("").stream()
                 .map(entry -> (GreatCalendar.GreatEntry) fromEntry((Entry<?>) entry))
                 .toList();
 
         GreatCalendar gc = new GreatCalendar(calendar.getName(), dtoEntries );
+        event.calendars = 1;
+        event.entries = dtoEntries.size();
+        event.finish();
         return gc;
     }
 
@@ -42,8 +67,136 @@ public class GreatCalendarSerializer implements CalendarSerializer {
                 (entry.getStartAsLocalDateTime()),
                 (entry.getEndAsLocalDateTime()),
                 (entry.isFullDay()),
-                (entry.getLocation())
+                (entry.getLocation()),
+                (entry.getRecurrenceRule() == null || entry.getRecurrenceRule().isBlank() ? null : entry.getRecurrenceRule())
         );
     }
 
+    // ---------------------------------------------------------
+    // Columnar binary store
+    // ---------------------------------------------------------
+
+    public void toColumnarStore(Collection<GreatCalendar> calendars, Path file) {
+        SchedulerEvents.Conversion event = SchedulerEvents.conversion("toColumnarStore", null);
+        try {
+            ColumnarEntryStore.write(file, calendars);
+            event.calendars = calendars.size();
+            event.entries = calendars.stream().mapToLong(calendar -> calendar.getEntries().size()).sum();
+            event.bytes = Files.size(file);
+        } catch (IOException e) {
+            throw new RuntimeException("Failed to write columnar store " + file, e);
+        } finally {
+            event.finish();
+        }
+    }
+
+    public List<GreatCalendar> fromColumnarStore(Path file) {
+        SchedulerEvents.Conversion event = SchedulerEvents.conversion("fromColumnarStore", null);
+        try (ColumnarEntryStore store = ColumnarEntryStore.open(file)) {
+            event.calendars = store.calendarCount();
+            event.entries = store.size();
+            event.bytes = Files.size(file);
+            return store.readAll();
+        } catch (IOException e) {
+            throw new RuntimeException("Failed to read columnar store " + file, e);
+        } finally {
+            event.finish();
+        }
+    }
+
+    // ---------------------------------------------------------
+    // iCalendar feeds
+    // ---------------------------------------------------------
+
+    public void toIcs(Iterable<GreatCalendar> calendars, Path file) {
+        SchedulerEvents.Conversion event = SchedulerEvents.conversion("toIcs", null);
+        try (IcsCalendarWriter writer = new IcsCalendarWriter(FileChannel.open(file,
+                StandardOpenOption.CREATE, StandardOpenOption.TRUNCATE_EXISTING, StandardOpenOption.WRITE))) {
+            for (GreatCalendar calendar : calendars) {
+                writer.write(calendar);
+                event.calendars++;
+                event.entries += calendar.getEntries().size();
+            }
+            event.bytes = writer.getBytesWritten();
+        } catch (IOException e) {
+            throw new RuntimeException("Failed to write iCalendar file " + file, e);
+        } finally {
+            event.finish();
+        }
+    }
+
+    // Calendars without X-WR-CALNAME are named after the file
+    public void fromIcs(Path file, Consumer<GreatCalendar> consumer) {
+        SchedulerEvents.Conversion event = SchedulerEvents.conversion("fromIcs", null);
+        try (IcsCalendarReader reader = openIcs(file)) {
+            reader.forEachRemaining(calendar -> {
+                event.calendars++;
+                event.entries += calendar.getEntries().size();
+                consumer.accept(calendar);
+            });
+            event.bytes = Files.size(file);
+            reportSkipped(reader, file);
+        } catch (IOException | UncheckedIOException e) {
+            throw new RuntimeException("Failed to read iCalendar file " + file, e);
+        } finally {
+            event.finish();
+        }
+    }
+
+    // Streams entries with their calendar names, holding none of them
+    public void streamIcs(Path file, BiConsumer<String, GreatCalendar.GreatEntry> consumer) {
+        SchedulerEvents.Conversion event = SchedulerEvents.conversion("fromIcs", null);
+        try (IcsCalendarReader reader = openIcs(file)) {
+            reader.forEachEntry((calendar, entry) -> {
+                event.entries++;
+                consumer.accept(calendar, entry);
+            });
+            event.bytes = Files.size(file);
+            reportSkipped(reader, file);
+        } catch (IOException | UncheckedIOException e) {
+            throw new RuntimeException("Failed to read iCalendar file " + file, e);
+        } finally {
+            event.finish();
+        }
+    }
+
+    private static IcsCalendarReader openIcs(Path file) throws IOException {
+        String name = file.getFileName().toString();
+        int dot = name.lastIndexOf('.');
+        BufferedReader reader = new BufferedReader(
+                new InputStreamReader(Files.newInputStream(file), StandardCharsets.UTF_8), ICS_BUFFER_SIZE);
+        return new IcsCalendarReader(reader, dot > 0 ? name.substring(0, dot) : name);
+    }
+
+    private static void reportSkipped(IcsCalendarReader reader, Path file) {
+        if (reader.getSkippedEvents() > 0) {
+            System.out.println("Skipped " + reader.getSkippedEvents() + " events that could not become entries in " + file);
+        }
+    }
+
+    // ---------------------------------------------------------
+    // CalendarFX views of columnar rows
+    // ---------------------------------------------------------
+
+    public Entry<?> toEntry(ColumnarEntryStore store, int row) {
+        Entry<?> entry = new Entry<>(StringPool.canonical(store.title(row)));
+        entry.setId(store.id(row));
+        entry.setInterval(store.start(row), store.end(row));
+        entry.setFullDay(store.isFullDay(row));
+        entry.setLocation(StringPool.canonical(store.location(row)));
+        if (store.recurrenceRule(row) != null) {
+            entry.setRecurrenceRule(StringPool.canonical(store.recurrenceRule(row)));
+        }
+        return entry;
+    }
+
+    public Calendar toCalendar(ColumnarEntryStore store, int calendarIndex) {
+        Calendar calendar = new Calendar(store.calendarName(calendarIndex));
+        int first = store.calendarFirstRow(calendarIndex);
+        int last = first + store.calendarRowCount(calendarIndex);
+        for (int row = first; row < last; row++) {
+            calendar.addEntry(toEntry(store, row));
+        }
+        return calendar;
+    }
 }
@@ -0,0 +1,56 @@
+package com.calendarfx.scheduler;
+
+import com.fasterxml.jackson.core.JsonGenerator;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.databind.ObjectWriter;
+import com.fasterxml.jackson.databind.SerializationFeature;
+
+import java.io.Closeable;
+import java.io.IOException;
+import java.io.OutputStream;
+
+/**
+ * Writes {@link GreatCalendar}s as a JSON array, one calendar and one entry at a time,
+ * producing the same layout that {@link GreatCalendarReader} and {@code readValue} accept.
+ */
+public class GreatCalendarWriter implements Closeable {
+
+    private final JsonGenerator generator;
+    private final ObjectWriter entryWriter;
+
+    public GreatCalendarWriter(ObjectMapper mapper, OutputStream out) throws IOException {
+        this.generator = mapper.getFactory().createGenerator(out);
+        this.entryWriter = mapper.writerFor(GreatCalendar.GreatEntry.class)
+                .without(SerializationFeature.FLUSH_AFTER_WRITE_VALUE);
+        generator.writeStartArray();
+    }
+
+    public void write(GreatCalendar calendar) throws IOException {
+        writeStart(calendar.getName());
+        for (GreatCalendar.GreatEntry entry : calendar.getEntries()) {
+            writeEntry(entry);
+        }
+        writeEnd();
+    }
+
+    public void writeStart(String calendarName) throws IOException {
+        generator.writeStartObject();
+        generator.writeStringField("name", calendarName);
+        generator.writeArrayFieldStart("entries");
+    }
+
+    public void writeEntry(GreatCalendar.GreatEntry entry) throws IOException {
+        entryWriter.writeValue(generator, entry);
+    }
+
+    public void writeEnd() throws IOException {
+        generator.writeEndArray();
+        generator.writeEndObject();
+    }
+
+    @Override
+    public void close() throws IOException {
+        generator.writeEndArray();
+        generator.close();
+    }
+}
@@ -0,0 +1,484 @@
+package com.calendarfx.scheduler;
+
+import net.fortuna.ical4j.model.Recur;
+
+import java.io.BufferedReader;
+import java.io.Closeable;
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.time.DateTimeException;
+import java.time.Duration;
+import java.time.LocalDate;
+import java.time.LocalDateTime;
+import java.time.LocalTime;
+import java.time.ZoneId;
+import java.time.ZoneOffset;
+import java.time.format.DateTimeFormatter;
+import java.util.ArrayList;
+import java.util.HashSet;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.NoSuchElementException;
+import java.util.Set;
+import java.util.UUID;
+import java.util.function.BiConsumer;
+import java.util.function.Consumer;
+
+/**
+ * Pulls {@link GreatCalendar}s one VCALENDAR at a time from an iCalendar (RFC 5545) stream. Lines are
+ * unfolded and parsed as they are read, so apart from the calendar being built only the current
+ * event is held in memory. Every VEVENT with a start becomes a {@link GreatCalendar.GreatEntry};
+ * times with a TZID or in UTC are converted to the local time zone, dates become full-day entries
+ * ending on their last day. Entries carry a single RRULE, so once an EXDATE or RECURRENCE-ID override of
+ * a series has been seen, the series is held until the end of its calendar and, when its rule has a COUNT
+ * or UNTIL, imported as one entry per remaining occurrence; open-ended series keep their rule and lose the
+ * exceptions. Masters without exceptions are passed on at once; an override that follows its master takes
+ * it back into a held series, unless {@link #forEachEntry} has already handed the master on.
+ * The calendar is named by X-WR-CALNAME, or by the default name when the feed has none.
+ */
+public class IcsCalendarReader implements Iterator<GreatCalendar>, Closeable {
+
+    public static final String EXTENSION = ".ics";
+    static final DateTimeFormatter DATE = DateTimeFormatter.BASIC_ISO_DATE;
+    static final DateTimeFormatter DATE_TIME = DateTimeFormatter.ofPattern("yyyyMMdd'T'HHmmss");
+    static final String RRULE = "RRULE";
+    // Bounded series with exceptions are expanded, as long as they stay within these limits
+    private static final int SERIES_HORIZON_YEARS = 100;
+    private static final int MAX_SERIES_OCCURRENCES = 5000;
+
+    private final BufferedReader reader;
+    private final String defaultName;
+    private final ZoneId localZone = ZoneId.systemDefault();
+    private String pending;
+    private GreatCalendar next;
+    private boolean finished;
+    private long lineNumber;
+    private long skippedEvents;
+
+    public IcsCalendarReader(BufferedReader reader, String defaultName) {
+        this.reader = reader;
+        this.defaultName = defaultName;
+    }
+
+    // Events without a usable start, and overrides of open-ended or already streamed series, which cannot become entries
+    public long getSkippedEvents() {
+        return skippedEvents;
+    }
+
+    @Override
+    public boolean hasNext() {
+        if (next == null && !finished) {
+            try {
+                next = readCalendar(null);
+            } catch (IOException e) {
+                throw new UncheckedIOException("Failed to read iCalendar line " + lineNumber, e);
+            }
+        }
+        return next != null;
+    }
+
+    @Override
+    public GreatCalendar next() {
+        if (!hasNext()) {
+            throw new NoSuchElementException();
+        }
+        GreatCalendar calendar = next;
+        next = null;
+        return calendar;
+    }
+
+    public void forEachRemaining(Consumer<? super GreatCalendar> action) {
+        while (hasNext()) {
+            action.accept(next());
+        }
+    }
+
+    // Hands every entry to action with its calendar name without keeping any of them, for feeds too big to hold
+    public void forEachEntry(BiConsumer<String, GreatCalendar.GreatEntry> action) {
+        try {
+            while (!finished) {
+                readCalendar(action);
+            }
+        } catch (IOException e) {
+            throw new UncheckedIOException("Failed to read iCalendar line " + lineNumber, e);
+        }
+    }
+
+    @Override
+    public void close() throws IOException {
+        reader.close();
+    }
+
+    // ---------------------------------------------------------
+    // Components
+    // ---------------------------------------------------------
+
+    private GreatCalendar readCalendar(BiConsumer<String, GreatCalendar.GreatEntry> action) throws IOException {
+        String line;
+        while ((line = readLine()) != null && !line.equalsIgnoreCase("BEGIN:VCALENDAR")) {
+            // Anything before the calendar is ignored
+        }
+        if (line == null) {
+            finished = true;
+            return null;
+        }
+
+        String name = defaultName;
+        List<GreatCalendar.GreatEntry> entries = new ArrayList<>();
+        // Series with exceptions are resolved at the end, overrides may come before or after their master
+        Map<String, Series> series = new LinkedHashMap<>();
+        // Ids of masters passed on before any exception of theirs was seen
+        Set<String> released = new HashSet<>();
+        while ((line = readLine()) != null) {
+            Property property = Property.parse(line);
+            if (property == null) {
+                continue;
+            }
+            if (property.is("END") && property.value.equalsIgnoreCase("VCALENDAR")) {
+                for (Series held : series.values()) {
+                    for (GreatCalendar.GreatEntry entry : resolve(held)) {
+                        add(name, entry, entries, action);
+                    }
+                }
+                return new GreatCalendar(name, entries);
+            } else if (property.is("BEGIN") && property.value.equalsIgnoreCase("VEVENT")) {
+                Event event = readEvent();
+                if (event == null) {
+                    skippedEvents++;
+                } else if (event.recurrenceId() != null) {
+                    String id = event.entry().getId();
+                    if (released.contains(id) && !recall(id, entries, action, series)) {
+                        System.out.println("Ignoring override of series " + id + " on line " + lineNumber
+                                + ", its master was already imported");
+                        skippedEvents++;
+                    } else {
+                        released.remove(id);
+                        series.computeIfAbsent(id, key -> new Series()).overrides.add(event);
+                    }
+                } else if (event.entry().getRecurrenceRule() != null
+                        && (series.containsKey(event.entry().getId()) || !event.exceptions().isEmpty())) {
+                    series.computeIfAbsent(event.entry().getId(), id -> new Series()).master = event;
+                } else {
+                    if (event.entry().getRecurrenceRule() != null) {
+                        released.add(event.entry().getId());
+                    }
+                    add(name, event.entry(), entries, action);
+                }
+            } else if (property.is("BEGIN")) {
+                skipComponent(property.value);
+            } else if (property.is("X-WR-CALNAME") && !property.value.isBlank()) {
+                name = unescape(property.value);
+            }
+        }
+        throw new IOException("Unexpected end of iCalendar data, END:VCALENDAR is missing");
+    }
+
+    private static void add(String name, GreatCalendar.GreatEntry entry, List<GreatCalendar.GreatEntry> entries,
+                            BiConsumer<String, GreatCalendar.GreatEntry> action) {
+        if (action == null) {
+            entries.add(entry);
+        } else {
+            action.accept(name, entry);
+        }
+    }
+
+    // Moves a released master back into a held series; false when it was streamed and cannot be taken back
+    private static boolean recall(String id, List<GreatCalendar.GreatEntry> entries,
+                                  BiConsumer<String, GreatCalendar.GreatEntry> action, Map<String, Series> series) {
+        if (action != null) {
+            return false;
+        }
+        for (int i = entries.size() - 1; i >= 0; i--) {
+            GreatCalendar.GreatEntry entry = entries.get(i);
+            if (id.equals(entry.getId()) && entry.getRecurrenceRule() != null) {
+                entries.remove(i);
+                series.computeIfAbsent(id, key -> new Series()).master = new Event(entry, null, List.of());
+                return true;
+            }
+        }
+        return false;
+    }
+
+    private Event readEvent() throws IOException {
+        String id = null;
+        String title = null;
+        String location = null;
+        String rule = null;
+        Time start = null;
+        Time end = null;
+        Duration duration = null;
+        Time recurrenceId = null;
+        List<LocalDateTime> exceptions = new ArrayList<>();
+        String line;
+        while ((line = readLine()) != null) {
+            Property property = Property.parse(line);
+            if (property == null) {
+                continue;
+            }
+            try {
+                switch (property.name) {
+                    case "END" -> {
+                        if (property.value.equalsIgnoreCase("VEVENT")) {
+                            GreatCalendar.GreatEntry entry = toEntry(id, title, location, rule, start, end, duration);
+                            return entry == null ? null
+                                    : new Event(entry, recurrenceId == null ? null : recurrenceId.time, exceptions);
+                        }
+                    }
+                    case "BEGIN" -> skipComponent(property.value);
+                    case "UID" -> id = unescape(property.value);
+                    case "SUMMARY" -> title = unescape(property.value);
+                    case "LOCATION" -> location = unescape(property.value);
+                    case RRULE -> rule = RRULE + ":" + property.value;
+                    case "DTSTART" -> start = parseTime(property);
+                    case "DTEND" -> end = parseTime(property);
+                    case "DURATION" -> duration = parseDuration(property.value);
+                    case "RECURRENCE-ID" -> recurrenceId = parseTime(property);
+                    case "EXDATE" -> {
+                        for (String value : property.value.split(",")) {
+                            exceptions.add(parseTime(new Property(property.name, property.parameters, value)).time);
+                        }
+                    }
+                    default -> {
+                        // Other properties have no counterpart on entries
+                    }
+                }
+            } catch (DateTimeException | ArithmeticException | NumberFormatException e) {
+                System.out.println("Ignoring " + property.name + " on line " + lineNumber + ": " + e.getMessage());
+            }
+        }
+        throw new IOException("Unexpected end of iCalendar data inside a VEVENT");
+    }
+
+    private static GreatCalendar.GreatEntry toEntry(String id, String title, String location, String rule,
+                                                    Time start, Time end, Duration duration) {
+        if (start == null) {
+            return null;
+        }
+        LocalDateTime endTime;
+        if (end != null) {
+            endTime = end.time;
+        } else if (duration != null) {
+            endTime = start.time.plus(duration);
+        } else {
+            // RFC 5545: without an end, a date lasts one day and a date-time has no duration
+            endTime = start.fullDay ? start.time.plusDays(1) : start.time;
+        }
+        if (start.fullDay) {
+            // The end of a date is exclusive, entries end on their last day, as IcsCalendarWriter expects
+            LocalDate lastDay = endTime.toLocalTime().equals(LocalTime.MIDNIGHT)
+                    ? endTime.toLocalDate().minusDays(1)
+                    : endTime.toLocalDate();
+            endTime = (lastDay.isBefore(start.time.toLocalDate()) ? start.time.toLocalDate() : lastDay).atTime(LocalTime.MAX);
+        }
+        if (endTime.isBefore(start.time)) {
+            endTime = start.time;
+        }
+        return new GreatCalendar.GreatEntry(id == null ? UUID.randomUUID().toString() : id, title,
+                start.time, endTime, start.fullDay, location, rule);
+    }
+
+    // A series without exceptions keeps its rule; otherwise every remaining occurrence and override gets its own id
+    private List<GreatCalendar.GreatEntry> resolve(Series series) {
+        List<GreatCalendar.GreatEntry> resolved = new ArrayList<>();
+        if (series.master == null) {
+            // Only changed occurrences were published, they stand on their own
+            series.overrides.forEach(override -> resolved.add(occurrence(override.entry(), override.recurrenceId(), override.entry())));
+            return resolved;
+        }
+        GreatCalendar.GreatEntry master = series.master.entry();
+        Set<LocalDateTime> excluded = new HashSet<>(series.master.exceptions());
+        series.overrides.forEach(override -> excluded.add(override.recurrenceId()));
+        if (excluded.isEmpty()) {
+            return List.of(master);
+        }
+        List<LocalDateTime> starts = boundedStarts(master);
+        if (starts == null) {
+            System.out.println("Ignoring " + excluded.size() + " exceptions of open-ended series " + master.getId()
+                    + ", entries hold a single recurrence rule");
+            skippedEvents += series.overrides.size();
+            return List.of(master);
+        }
+        Duration length = Duration.between(master.getStart(), master.getEnd());
+        for (LocalDateTime occurrenceStart : starts) {
+            if (!excluded.contains(occurrenceStart)) {
+                GreatCalendar.GreatEntry occurrence = new GreatCalendar.GreatEntry(master.getId(), master.getTitle(),
+                        occurrenceStart, occurrenceStart.plus(length), master.isFullDay(), master.getLocation());
+                resolved.add(occurrence(occurrence, occurrenceStart, occurrence));
+            }
+        }
+        series.overrides.forEach(override -> resolved.add(occurrence(override.entry(), override.recurrenceId(), override.entry())));
+        return resolved;
+    }
+
+    // Occurrences are named after the series and their original start, so importing the feed again replaces them
+    private static GreatCalendar.GreatEntry occurrence(GreatCalendar.GreatEntry series, LocalDateTime originalStart,
+                                                       GreatCalendar.GreatEntry entry) {
+        return new GreatCalendar.GreatEntry(series.getId() + "/" + originalStart.format(DATE_TIME), entry.getTitle(),
+                entry.getStart(), entry.getEnd(), entry.isFullDay(), entry.getLocation());
+    }
+
+    // Occurrence starts of a rule with a COUNT or UNTIL, or null for open-ended and oversized series
+    private static List<LocalDateTime> boundedStarts(GreatCalendar.GreatEntry master) {
+        String rule = master.getRecurrenceRule().substring(RRULE.length() + 1);
+        String upper = rule.toUpperCase(Locale.ROOT);
+        if (!upper.contains("COUNT=") && !upper.contains("UNTIL=")) {
+            return null;
+        }
+        try {
+            LocalDateTime seed = master.getStart();
+            List<LocalDateTime> starts = new Recur<LocalDateTime>(rule).getDates(seed, seed, seed.plusYears(SERIES_HORIZON_YEARS));
+            return starts.size() > MAX_SERIES_OCCURRENCES ? null : starts;
+        } catch (RuntimeException e) {
+            System.out.println("Ignoring invalid recurrence rule " + master.getRecurrenceRule() + ": " + e.getMessage());
+            return null;
+        }
+    }
+
+    private void skipComponent(String component) throws IOException {
+        String end = "END:" + component;
+        String line;
+        while ((line = readLine()) != null) {
+            if (line.equalsIgnoreCase(end)) {
+                return;
+            }
+        }
+    }
+
+    // ---------------------------------------------------------
+    // Lines and values
+    // ---------------------------------------------------------
+
+    // Returns the next logical line; continuation lines start with a space or tab and are joined to it
+    private String readLine() throws IOException {
+        String line = pending != null ? pending : nextPhysicalLine();
+        pending = null;
+        if (line == null) {
+            return null;
+        }
+        String continuation = nextPhysicalLine();
+        if (continuation == null || continuation.isEmpty()
+                || (continuation.charAt(0) != ' ' && continuation.charAt(0) != '\t')) {
+            pending = continuation;
+            return line;
+        }
+        StringBuilder unfolded = new StringBuilder(line);
+        while (continuation != null && !continuation.isEmpty()
+                && (continuation.charAt(0) == ' ' || continuation.charAt(0) == '\t')) {
+            unfolded.append(continuation, 1, continuation.length());
+            continuation = nextPhysicalLine();
+        }
+        pending = continuation;
+        return unfolded.toString();
+    }
+
+    private String nextPhysicalLine() throws IOException {
+        String line = reader.readLine();
+        if (line != null) {
+            lineNumber++;
+        }
+        return line;
+    }
+
+    private Time parseTime(Property property) {
+        String value = property.value.trim();
+        if ("DATE".equalsIgnoreCase(property.parameter("VALUE")) || value.length() == 8) {
+            return new Time(LocalDate.parse(value, DATE).atStartOfDay(), true);
+        }
+        if (value.endsWith("Z")) {
+            LocalDateTime utc = LocalDateTime.parse(value.substring(0, value.length() - 1), DATE_TIME);
+            return new Time(utc.atOffset(ZoneOffset.UTC).atZoneSameInstant(localZone).toLocalDateTime(), false);
+        }
+        LocalDateTime time = LocalDateTime.parse(value, DATE_TIME);
+        String tzid = property.parameter("TZID");
+        if (tzid != null) {
+            try {
+                time = time.atZone(ZoneId.of(tzid)).withZoneSameInstant(localZone).toLocalDateTime();
+            } catch (DateTimeException e) {
+                // Custom VTIMEZONE names are not resolved; such times stay as written
+            }
+        }
+        return new Time(time, false);
+    }
+
+    // Duration.parse does not know weeks, which iCalendar durations may use alone, e.g. P2W
+    private static Duration parseDuration(String value) {
+        String trimmed = value.trim();
+        boolean negative = trimmed.startsWith("-");
+        String unsigned = trimmed.startsWith("-") || trimmed.startsWith("+") ? trimmed.substring(1) : trimmed;
+        Duration duration = unsigned.endsWith("W")
+                ? Duration.ofDays(7 * Long.parseLong(unsigned.substring(1, unsigned.length() - 1)))
+                : Duration.parse(unsigned);
+        return negative ? duration.negated() : duration;
+    }
+
+    static String unescape(String text) {
+        if (text.indexOf('\\') < 0) {
+            return text;
+        }
+        StringBuilder result = new StringBuilder(text.length());
+        for (int i = 0; i < text.length(); i++) {
+            char c = text.charAt(i);
+            if (c == '\\' && i + 1 < text.length()) {
+                char escaped = text.charAt(++i);
+                result.append(escaped == 'n' || escaped == 'N' ? '\n' : escaped);
+            } else {
+                result.append(c);
+            }
+        }
+        return result.toString();
+    }
+
+    private record Time(LocalDateTime time, boolean fullDay) {
+    }
+
+    // An event with the start of the occurrence it overrides and the starts its series excludes
+    private record Event(GreatCalendar.GreatEntry entry, LocalDateTime recurrenceId, List<LocalDateTime> exceptions) {
+    }
+
+    private static class Series {
+        private Event master;
+        private final List<Event> overrides = new ArrayList<>();
+    }
+
+    // A content line NAME;PARAM=VALUE;...:VALUE; colons inside quoted parameter values do not end the name
+    private record Property(String name, String parameters, String value) {
+
+        static Property parse(String line) {
+            boolean quoted = false;
+            int nameEnd = -1;
+            for (int i = 0; i < line.length(); i++) {
+                char c = line.charAt(i);
+                if (c == '"') {
+                    quoted = !quoted;
+                } else if (c == ';' && nameEnd < 0 && !quoted) {
+                    nameEnd = i;
+                } else if (c == ':' && !quoted) {
+                    String name = line.substring(0, nameEnd < 0 ? i : nameEnd).toUpperCase(Locale.ROOT);
+                    String parameters = nameEnd < 0 ? "" : line.substring(nameEnd + 1, i);
+                    return new Property(name, parameters, line.substring(i + 1));
+                }
+            }
+            return null;
+        }
+
+        boolean is(String expected) {
+            return name.equals(expected);
+        }
+
+        String parameter(String key) {
+            for (String parameter : parameters.split(";")) {
+                int split = parameter.indexOf('=');
+                if (split > 0 && parameter.substring(0, split).equalsIgnoreCase(key)) {
+                    String value = parameter.substring(split + 1);
+                    return value.length() > 1 && value.startsWith("\"") && value.endsWith("\"")
+                            ? value.substring(1, value.length() - 1)
+                            : value;
+                }
+            }
+            return null;
+        }
+    }
+}
@@ -0,0 +1,178 @@
+package com.calendarfx.scheduler;
+
+import java.io.Closeable;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.WritableByteChannel;
+import java.nio.charset.StandardCharsets;
+import java.time.LocalDateTime;
+import java.time.LocalTime;
+import java.time.ZoneOffset;
+
+/**
+ * Writes {@link GreatCalendar}s as iCalendar (RFC 5545), one VCALENDAR per calendar named by
+ * X-WR-CALNAME, so {@link IcsCalendarReader} reads them back as the same calendars. Lines are encoded
+ * into a buffer that is handed to the channel whenever it fills, folded at 75 octets as the RFC asks.
+ */
+public class IcsCalendarWriter implements Closeable {
+
+    private static final int BUFFER_SIZE = 64 * 1024;
+    private static final int MAX_LINE_OCTETS = 75;
+    private static final byte[] CRLF = {'\r', '\n'};
+    private static final byte[] FOLD = {'\r', '\n', ' '};
+
+    private final WritableByteChannel channel;
+    private final ByteBuffer buffer = ByteBuffer.allocate(BUFFER_SIZE);
+    private final String stamp = LocalDateTime.now(ZoneOffset.UTC).format(IcsCalendarReader.DATE_TIME) + "Z";
+    private long bytesWritten;
+
+    public IcsCalendarWriter(WritableByteChannel channel) {
+        this.channel = channel;
+    }
+
+    public long getBytesWritten() {
+        return bytesWritten + buffer.position();
+    }
+
+    public void write(GreatCalendar calendar) throws IOException {
+        writeStart(calendar.getName());
+        for (GreatCalendar.GreatEntry entry : calendar.getEntries()) {
+            writeEntry(entry);
+        }
+        writeEnd();
+    }
+
+    public void writeStart(String calendarName) throws IOException {
+        line("BEGIN:VCALENDAR");
+        line("VERSION:2.0");
+        line("PRODID:-//com.calendarfx.scheduler//Calendar//EN");
+        if (calendarName != null) {
+            line("X-WR-CALNAME:" + escape(calendarName));
+        }
+    }
+
+    // Times are written without a zone, i.e. as the same local times the entries hold
+    public void writeEntry(GreatCalendar.GreatEntry entry) throws IOException {
+        writeEvent(entry.getId(), entry.getTitle(), entry.getStart(), entry.getEnd(), entry.isFullDay(),
+                entry.getLocation(), entry.getRecurrenceRule());
+    }
+
+    private void writeEvent(String id, String title, LocalDateTime start, LocalDateTime end, boolean fullDay,
+                            String location, String rule) throws IOException {
+        if (start == null) {
+            return;
+        }
+        line("BEGIN:VEVENT");
+        if (id != null) {
+            line("UID:" + escape(id));
+        }
+        line("DTSTAMP:" + stamp);
+        if (end == null) {
+            end = start;
+        }
+        if (fullDay) {
+            // DTEND is exclusive for dates, so an end inside a day ends after that day
+            line("DTSTART;VALUE=DATE:" + start.format(IcsCalendarReader.DATE));
+            LocalDateTime exclusiveEnd = end.toLocalTime().equals(LocalTime.MIDNIGHT) && end.isAfter(start)
+                    ? end
+                    : end.toLocalDate().plusDays(1).atStartOfDay();
+            line("DTEND;VALUE=DATE:" + exclusiveEnd.format(IcsCalendarReader.DATE));
+        } else {
+            line("DTSTART:" + start.format(IcsCalendarReader.DATE_TIME));
+            line("DTEND:" + end.format(IcsCalendarReader.DATE_TIME));
+        }
+        if (title != null) {
+            line("SUMMARY:" + escape(title));
+        }
+        if (location != null) {
+            line("LOCATION:" + escape(location));
+        }
+        if (rule != null && !rule.isBlank()) {
+            line(rule.startsWith(IcsCalendarReader.RRULE + ":") ? rule : IcsCalendarReader.RRULE + ":" + rule);
+        }
+        line("END:VEVENT");
+    }
+
+    public void writeEnd() throws IOException {
+        line("END:VCALENDAR");
+    }
+
+    @Override
+    public void close() throws IOException {
+        try {
+            drain();
+        } finally {
+            channel.close();
+        }
+    }
+
+    // ---------------------------------------------------------
+    // Encoding
+    // ---------------------------------------------------------
+
+    private void line(String text) throws IOException {
+        byte[] bytes = text.getBytes(StandardCharsets.UTF_8);
+        int start = 0;
+        int limit = MAX_LINE_OCTETS;
+        while (bytes.length - start > limit) {
+            int cut = start + limit;
+            // Never split a UTF-8 sequence: continuation bytes look like 10xxxxxx
+            while (cut > start && (bytes[cut] & 0xC0) == 0x80) {
+                cut--;
+            }
+            put(bytes, start, cut - start);
+            put(FOLD, 0, FOLD.length);
+            start = cut;
+            // The leading space of a continuation line counts towards its 75 octets
+            limit = MAX_LINE_OCTETS - 1;
+        }
+        put(bytes, start, bytes.length - start);
+        put(CRLF, 0, CRLF.length);
+    }
+
+    private void put(byte[] bytes, int offset, int length) throws IOException {
+        while (length > 0) {
+            if (!buffer.hasRemaining()) {
+                drain();
+            }
+            int chunk = Math.min(length, buffer.remaining());
+            buffer.put(bytes, offset, chunk);
+            offset += chunk;
+            length -= chunk;
+        }
+    }
+
+    private void drain() throws IOException {
+        buffer.flip();
+        while (buffer.hasRemaining()) {
+            bytesWritten += channel.write(buffer);
+        }
+        buffer.clear();
+    }
+
+    static String escape(String text) {
+        StringBuilder result = null;
+        for (int i = 0; i < text.length(); i++) {
+            char c = text.charAt(i);
+            String replacement = switch (c) {
+                case '\\' -> "\\\\";
+                case ';' -> "\\;";
+                case ',' -> "\\,";
+                case '\n' -> "\\n";
+                case '\r' -> "";
+                default -> null;
+            };
+            if (replacement != null && result == null) {
+                result = new StringBuilder(text.length() + 8).append(text, 0, i);
+            }
+            if (result != null) {
+                if (replacement != null) {
+                    result.append(replacement);
+                } else {
+                    result.append(c);
+                }
+            }
+        }
+        return result == null ? text : result.toString();
+    }
+}
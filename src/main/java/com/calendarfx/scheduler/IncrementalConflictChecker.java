@@ -0,0 +1,374 @@
+package com.calendarfx.scheduler;
+
+import com.calendarfx.model.Calendar;
+import com.calendarfx.model.CalendarEvent;
+import com.calendarfx.model.CalendarSource;
+import com.calendarfx.model.Entry;
+import javafx.application.Platform;
+import javafx.collections.FXCollections;
+import javafx.collections.ListChangeListener;
+import javafx.collections.ObservableSet;
+import javafx.event.EventHandler;
+
+import java.time.LocalDate;
+import java.time.LocalDateTime;
+import java.util.*;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.function.Function;
+
+/**
+ * Keeps a live set of {@link ConflictRuleEngine.Conflict}s for the calendars of a {@link CalendarSource}.
+ * Entry events only re-evaluate the weeks they touch; evaluation runs on a background worker and
+ * results are published to {@link #getConflicts()} on the FX thread. Calendars bound to a
+ * {@link ViewportEntryMaterializer} only hold the entries around the visible dates, so they are
+ * followed through their backing {@link GreatCalendar} instead of their CalendarFX entry events.
+ */
+public class IncrementalConflictChecker implements ViewportEntryMaterializer.BackingListener {
+
+    private final CalendarSource source;
+    private final Function<String, Employee> employeeLookup;
+    private final ExecutorService worker = Executors.newSingleThreadExecutor(r -> {
+        Thread thread = new Thread(r, "conflict-checker");
+        thread.setDaemon(true);
+        return thread;
+    });
+    private final EventHandler<CalendarEvent> entryHandler = this::onCalendarEvent;
+    private final ListChangeListener<Calendar> calendarListener = this::onCalendarsChanged;
+    private final ObservableSet<ConflictRuleEngine.Conflict> conflicts =
+            FXCollections.observableSet(new LinkedHashSet<>());
+    // Owned by the FX thread
+    private final Set<Calendar> backed = Collections.newSetFromMap(new IdentityHashMap<>());
+
+    // Owned by the worker thread
+    private ConflictRuleEngine engine = new ConflictRuleEngine(List.of());
+    private final Map<Calendar, CalendarState> states = new IdentityHashMap<>();
+    // Keyed by CalendarFX entry, or by backing entry for calendars bound to a materializer
+    private final Map<Object, Calendar> entryOwners = new IdentityHashMap<>();
+
+    public IncrementalConflictChecker(CalendarSource source, Function<String, Employee> employeeLookup) {
+        this.source = source;
+        this.employeeLookup = employeeLookup;
+        source.getCalendars().addListener(calendarListener);
+        source.getCalendars().forEach(this::attach);
+    }
+
+    public ObservableSet<ConflictRuleEngine.Conflict> getConflicts() {
+        return FXCollections.unmodifiableObservableSet(conflicts);
+    }
+
+    public void setEngine(ConflictRuleEngine engine) {
+        worker.execute(() -> {
+            this.engine = engine;
+            List<ConflictRuleEngine.Conflict> all = new ArrayList<>();
+            states.values().forEach(state -> {
+                state.evaluateAll(engine);
+                all.addAll(state.allConflicts());
+            });
+            Platform.runLater(() -> conflicts.clear());
+            publish(List.of(), all);
+        });
+    }
+
+    public void refreshEmployee(String calendarName) {
+        worker.execute(() -> states.values().stream()
+                .filter(state -> state.name.equals(calendarName))
+                .forEach(state -> {
+                    List<ConflictRuleEngine.Conflict> removed = state.attributeConflicts;
+                    state.employee = employeeLookup.apply(calendarName);
+                    state.attributeConflicts = engine.checkAttributes(state.name, state.employee);
+                    publish(removed, state.attributeConflicts);
+                }));
+    }
+
+    public void dispose() {
+        source.getCalendars().removeListener(calendarListener);
+        source.getCalendars().forEach(calendar -> calendar.removeEventHandler(entryHandler));
+        worker.shutdownNow();
+    }
+
+    // ---------------------------------------------------------
+    // 1. FX THREAD: EVENT CAPTURE
+    // ---------------------------------------------------------
+
+    private void onCalendarsChanged(ListChangeListener.Change<? extends Calendar> change) {
+        while (change.next()) {
+            change.getRemoved().forEach(this::detach);
+            change.getAddedSubList().forEach(this::attach);
+        }
+    }
+
+    private void attach(Calendar calendar) {
+        calendar.addEventHandler(entryHandler);
+        String name = calendar.getName();
+        List<EntryChange> snapshot = ((List<?>) calendar.findEntries("")).stream()
+                .map(entry -> EntryChange.of((Entry<?>) entry, calendar))
+                .toList();
+        worker.execute(() -> {
+            CalendarState state = new CalendarState(name, employeeLookup.apply(name));
+            states.put(calendar, state);
+            snapshot.forEach(change -> {
+                entryOwners.put(change.key(), calendar);
+                state.add(change);
+            });
+            state.evaluateAll(engine);
+            publish(List.of(), state.allConflicts());
+        });
+    }
+
+    private void detach(Calendar calendar) {
+        calendar.removeEventHandler(entryHandler);
+        worker.execute(() -> {
+            CalendarState state = states.remove(calendar);
+            if (state != null) {
+                state.trackedEntries.keySet().forEach(entryOwners::remove);
+                publish(state.allConflicts(), List.of());
+            }
+        });
+    }
+
+    private void onCalendarEvent(CalendarEvent evt) {
+        Entry<?> entry = evt.getEntry();
+        if (entry == null || entry.isRecurrence() || backed.contains(evt.getCalendar())) {
+            return;
+        }
+        if (evt.getEventType() != CalendarEvent.ENTRY_CALENDAR_CHANGED
+                && evt.getEventType() != CalendarEvent.ENTRY_INTERVAL_CHANGED
+                && evt.getEventType() != CalendarEvent.ENTRY_FULL_DAY_CHANGED
+                && evt.getEventType() != CalendarEvent.ENTRY_RECURRENCE_RULE_CHANGED) {
+            return;
+        }
+        EntryChange change = EntryChange.of(entry, entry.getCalendar());
+        worker.execute(() -> apply(change));
+    }
+
+    // Replaces whatever the CalendarFX calendar showed with all entries of its backing calendar
+    @Override
+    public void bound(Calendar calendar, GreatCalendar backing) {
+        backed.add(calendar);
+        List<EntryChange> snapshot = backing.getEntries().stream()
+                .map(entry -> EntryChange.of(entry, calendar))
+                .toList();
+        worker.execute(() -> {
+            CalendarState state = states.get(calendar);
+            if (state == null) {
+                return;
+            }
+            List<ConflictRuleEngine.Conflict> removed = state.allConflicts();
+            state.trackedEntries.keySet().forEach(entryOwners::remove);
+            state.clear();
+            snapshot.forEach(change -> {
+                entryOwners.put(change.key(), calendar);
+                state.add(change);
+            });
+            state.evaluateAll(engine);
+            publish(removed, state.allConflicts());
+        });
+    }
+
+    @Override
+    public void unbound(Calendar calendar) {
+        backed.remove(calendar);
+    }
+
+    @Override
+    public void entryChanged(Calendar calendar, GreatCalendar.GreatEntry entry) {
+        EntryChange change = EntryChange.of(entry, calendar);
+        worker.execute(() -> apply(change));
+    }
+
+    @Override
+    public void entryRemoved(Calendar calendar, GreatCalendar.GreatEntry entry) {
+        EntryChange change = EntryChange.of(entry, null);
+        worker.execute(() -> apply(change));
+    }
+
+    // ---------------------------------------------------------
+    // 2. WORKER THREAD: DELTA EVALUATION
+    // ---------------------------------------------------------
+
+    private void apply(EntryChange change) {
+        Set<LocalDate> touchedOld = Set.of();
+        CalendarState oldState = null;
+        Calendar owner = entryOwners.remove(change.key());
+        if (owner != null) {
+            oldState = states.get(owner);
+            if (oldState != null) {
+                touchedOld = oldState.remove(change.key());
+            }
+        }
+
+        CalendarState newState = change.calendar() == null ? null : states.get(change.calendar());
+        Set<LocalDate> touchedNew = Set.of();
+        if (newState != null) {
+            entryOwners.put(change.key(), change.calendar());
+            touchedNew = newState.add(change);
+        }
+
+        if (oldState != null && oldState == newState) {
+            Set<LocalDate> weeks = new HashSet<>(touchedOld);
+            weeks.addAll(touchedNew);
+            reevaluate(oldState, weeks);
+        } else {
+            if (oldState != null) {
+                reevaluate(oldState, touchedOld);
+            }
+            if (newState != null) {
+                reevaluate(newState, touchedNew);
+            }
+        }
+    }
+
+    private void reevaluate(CalendarState state, Set<LocalDate> weeks) {
+        List<ConflictRuleEngine.Conflict> removed = new ArrayList<>();
+        List<ConflictRuleEngine.Conflict> added = new ArrayList<>();
+        for (LocalDate week : weeks) {
+            List<ConflictRuleEngine.Conflict> old = state.weekConflicts.remove(week);
+            if (old != null) {
+                removed.addAll(old);
+            }
+            List<ConflictRuleEngine.Conflict> current = state.evaluateWeek(engine, week);
+            if (!current.isEmpty()) {
+                state.weekConflicts.put(week, current);
+                added.addAll(current);
+            }
+        }
+        publish(removed, added);
+    }
+
+    private void publish(Collection<ConflictRuleEngine.Conflict> removed, Collection<ConflictRuleEngine.Conflict> added) {
+        if (removed.isEmpty() && added.isEmpty()) {
+            return;
+        }
+        List<ConflictRuleEngine.Conflict> toRemove = List.copyOf(removed);
+        List<ConflictRuleEngine.Conflict> toAdd = List.copyOf(added);
+        Platform.runLater(() -> {
+            conflicts.removeAll(toRemove);
+            conflicts.addAll(toAdd);
+        });
+    }
+
+    private record EntryChange(Object key, Calendar calendar, LocalDateTime start, LocalDateTime end,
+                               boolean fullDay, String recurrenceRule) {
+        static EntryChange of(Entry<?> entry, Calendar calendar) {
+            return new EntryChange(entry, calendar, entry.getStartAsLocalDateTime(),
+                    entry.getEndAsLocalDateTime(), entry.isFullDay(), entry.getRecurrenceRule());
+        }
+
+        static EntryChange of(GreatCalendar.GreatEntry entry, Calendar calendar) {
+            return new EntryChange(entry, calendar, entry.getStart(), entry.getEnd(), entry.isFullDay(),
+                    entry.getRecurrenceRule());
+        }
+
+        boolean counts() {
+            return !fullDay && start != null && end != null;
+        }
+
+        // The entry as the rule engine sees it, so recurring ones can be expanded
+        GreatCalendar.GreatEntry toEntry() {
+            return new GreatCalendar.GreatEntry(null, null, start, end, fullDay, null, recurrenceRule);
+        }
+    }
+
+    // Occurrence minutes of a recurring entry by week, up to horizon; later weeks are expanded when asked for
+    private record Recurring(GreatCalendar.GreatEntry entry, LocalDate horizon, SortedMap<LocalDate, Long> minutes) {
+        static Recurring of(EntryChange change) {
+            GreatCalendar.GreatEntry entry = change.toEntry();
+            LocalDate horizon = ConflictRuleEngine.recurrenceHorizon(null);
+            return new Recurring(entry, horizon,
+                    ConflictRuleEngine.occurrenceMinutes(entry, ConflictRuleEngine.weekOf(change.start()), horizon));
+        }
+
+        Long minutesIn(LocalDate week) {
+            return week.isAfter(horizon)
+                    ? ConflictRuleEngine.occurrenceMinutes(entry, week, week).get(week)
+                    : minutes.get(week);
+        }
+    }
+
+    private static final class CalendarState {
+        private final String name;
+        private Employee employee;
+        private final Map<Object, EntryChange> trackedEntries = new IdentityHashMap<>();
+        private final Map<LocalDate, Long> weekMinutes = new HashMap<>();
+        private final Map<Object, Recurring> recurring = new IdentityHashMap<>();
+        private final Map<LocalDate, List<ConflictRuleEngine.Conflict>> weekConflicts = new HashMap<>();
+        private List<ConflictRuleEngine.Conflict> attributeConflicts = List.of();
+
+        CalendarState(String name, Employee employee) {
+            this.name = name;
+            this.employee = employee;
+        }
+
+        Set<LocalDate> add(EntryChange change) {
+            trackedEntries.put(change.key(), change);
+            if (!change.counts()) {
+                return Set.of();
+            }
+            GreatCalendar.GreatEntry entry = change.toEntry();
+            if (RecurrenceExpander.isRecurring(entry)) {
+                Recurring occurrences = Recurring.of(change);
+                recurring.put(change.key(), occurrences);
+                return occurrences.minutes().keySet();
+            }
+            LocalDate week = ConflictRuleEngine.weekOf(change.start());
+            weekMinutes.merge(week, ConflictRuleEngine.scheduledMinutes(change.start(), change.end()), Long::sum);
+            return Set.of(week);
+        }
+
+        Set<LocalDate> remove(Object key) {
+            EntryChange previous = trackedEntries.remove(key);
+            if (previous == null || !previous.counts()) {
+                return Set.of();
+            }
+            Recurring occurrences = recurring.remove(key);
+            if (occurrences != null) {
+                return occurrences.minutes().keySet();
+            }
+            LocalDate week = ConflictRuleEngine.weekOf(previous.start());
+            long minutes = ConflictRuleEngine.scheduledMinutes(previous.start(), previous.end());
+            weekMinutes.computeIfPresent(week, (w, total) -> total - minutes == 0 ? null : total - minutes);
+            return Set.of(week);
+        }
+
+        void clear() {
+            trackedEntries.clear();
+            weekMinutes.clear();
+            recurring.clear();
+            weekConflicts.clear();
+        }
+
+        List<ConflictRuleEngine.Conflict> evaluateWeek(ConflictRuleEngine engine, LocalDate week) {
+            Long minutes = weekMinutes.get(week);
+            for (Recurring occurrences : recurring.values()) {
+                Long occurring = occurrences.minutesIn(week);
+                if (occurring != null) {
+                    minutes = minutes == null ? occurring : minutes + occurring;
+                }
+            }
+            if (minutes == null) {
+                return List.of();
+            }
+            return engine.checkWeek(name, week, ConflictRuleEngine.toHours(minutes));
+        }
+
+        void evaluateAll(ConflictRuleEngine engine) {
+            attributeConflicts = engine.checkAttributes(name, employee);
+            weekConflicts.clear();
+            Set<LocalDate> weeks = new HashSet<>(weekMinutes.keySet());
+            recurring.values().forEach(occurrences -> weeks.addAll(occurrences.minutes().keySet()));
+            weeks.forEach(week -> {
+                List<ConflictRuleEngine.Conflict> current = evaluateWeek(engine, week);
+                if (!current.isEmpty()) {
+                    weekConflicts.put(week, current);
+                }
+            });
+        }
+
+        List<ConflictRuleEngine.Conflict> allConflicts() {
+            List<ConflictRuleEngine.Conflict> all = new ArrayList<>(attributeConflicts);
+            weekConflicts.values().forEach(all::addAll);
+            return all;
+        }
+    }
+}
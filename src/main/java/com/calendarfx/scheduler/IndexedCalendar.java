@@ -0,0 +1,34 @@
+package com.calendarfx.scheduler;
+
+import com.calendarfx.model.Calendar;
+import com.calendarfx.model.Entry;
+
+import java.time.LocalDate;
+import java.time.ZonedDateTime;
+import java.util.List;
+
+/**
+ * Calendar whose text search, e.g. from the search field of the CalendarView, is answered by an
+ * {@link EntrySearchIndex} instead of matching every entry in turn. Like the CalendarFX search it only
+ * returns entries within the look-back and look-ahead durations. Recurring entries are returned once
+ * rather than once per recurrence. In lazy mode matches come from the backing calendars and are
+ * materialized as they are returned. Blank texts still list all entries through CalendarFX.
+ */
+public class IndexedCalendar<T> extends Calendar<T> {
+
+    private final EntrySearchIndex index;
+
+    public IndexedCalendar(String name, EntrySearchIndex index) {
+        super(name);
+        this.index = index;
+    }
+
+    @Override
+    public List<Entry<?>> findEntries(String text) {
+        ZonedDateTime now = ZonedDateTime.now();
+        LocalDate from = now.minus(getLookBackDuration()).toLocalDate();
+        LocalDate to = now.plus(getLookAheadDuration()).toLocalDate();
+        List<Entry<?>> matches = text == null || text.isBlank() ? null : index.search(text, this, from, to);
+        return matches == null ? super.findEntries(text) : matches;
+    }
+}
@@ -0,0 +1,83 @@
+package com.calendarfx.scheduler;
+
+import com.fasterxml.jackson.annotation.JsonCreator;
+import com.fasterxml.jackson.annotation.JsonInclude;
+import com.fasterxml.jackson.annotation.JsonProperty;
+
+@JsonInclude(JsonInclude.Include.NON_NULL)
+public class JournalRecord {
+
+    public enum Operation {
+        CALENDAR_CREATED, CALENDAR_DELETED, ENTRY_CREATED, ENTRY_UPDATED, ENTRY_DELETED
+    }
+
+    private long revision;
+    private final Operation operation;
+    private final String calendar;
+    private final String entryId;
+    private final GreatCalendar.GreatEntry entry;
+    // Sync client that made the change; null for local edits that were not synchronized yet
+    private final String origin;
+
+    public JournalRecord(long revision, Operation operation, String calendar, String entryId, GreatCalendar.GreatEntry entry) {
+        this(revision, operation, calendar, entryId, entry, null);
+    }
+
+    @JsonCreator
+    public JournalRecord(@JsonProperty("revision") long revision,
+                         @JsonProperty("operation") Operation operation,
+                         @JsonProperty("calendar") String calendar,
+                         @JsonProperty("entryId") String entryId,
+                         @JsonProperty("entry") GreatCalendar.GreatEntry entry,
+                         @JsonProperty("origin") String origin) {
+        this.revision = revision;
+        this.operation = operation;
+        this.calendar = calendar;
+        this.entryId = entryId;
+        this.entry = entry;
+        this.origin = origin;
+    }
+
+    public static JournalRecord calendarCreated(String calendar) {
+        return new JournalRecord(0, Operation.CALENDAR_CREATED, calendar, null, null);
+    }
+
+    public static JournalRecord calendarDeleted(String calendar) {
+        return new JournalRecord(0, Operation.CALENDAR_DELETED, calendar, null, null);
+    }
+
+    public static JournalRecord entryCreated(String calendar, GreatCalendar.GreatEntry entry) {
+        return new JournalRecord(0, Operation.ENTRY_CREATED, calendar, entry.getId(), entry);
+    }
+
+    public static JournalRecord entryUpdated(String calendar, GreatCalendar.GreatEntry entry) {
+        return new JournalRecord(0, Operation.ENTRY_UPDATED, calendar, entry.getId(), entry);
+    }
+
+    public static JournalRecord entryDeleted(String calendar, String entryId) {
+        return new JournalRecord(0, Operation.ENTRY_DELETED, calendar, entryId, null);
+    }
+
+    @JsonProperty
+    public long getRevision() { return revision; }
+    void setRevision(long revision) { this.revision = revision; }
+
+    @JsonProperty
+    public Operation getOperation() { return operation; }
+
+    @JsonProperty
+    public String getCalendar() { return calendar; }
+
+    @JsonProperty
+    public String getEntryId() { return entryId; }
+
+    @JsonProperty
+    public GreatCalendar.GreatEntry getEntry() { return entry; }
+
+    @JsonProperty
+    public String getOrigin() { return origin; }
+
+    public JournalRecord withOrigin(String origin) {
+        return new JournalRecord(revision, operation, calendar, entryId, entry, origin);
+    }
+}
@@ -0,0 +1,87 @@
+package com.calendarfx.scheduler;
+
+import com.calendarfx.model.Calendar;
+import com.calendarfx.model.CalendarEvent;
+import com.calendarfx.model.CalendarSource;
+import com.calendarfx.model.Entry;
+import javafx.collections.ListChangeListener;
+import javafx.event.EventHandler;
+
+import java.util.List;
+import java.util.function.Consumer;
+
+/**
+ * Turns calendar and entry changes of a {@link CalendarSource} into {@link JournalRecord}s.
+ * Changes made while {@link #runUnrecorded(Runnable)} is active (e.g. loading) are not journaled.
+ */
+public class JournalRecorder {
+
+    private final CalendarSource source;
+    private final CalendarSerializer serializer;
+    private final Consumer<JournalRecord> sink;
+    private final EventHandler<CalendarEvent> entryHandler = this::onCalendarEvent;
+    private final ListChangeListener<Calendar> calendarListener = this::onCalendarsChanged;
+    private int suspended;
+
+    public JournalRecorder(CalendarSource source, CalendarSerializer serializer, Consumer<JournalRecord> sink) {
+        this.source = source;
+        this.serializer = serializer;
+        this.sink = sink;
+        source.getCalendars().addListener(calendarListener);
+        source.getCalendars().forEach(calendar -> calendar.addEventHandler(entryHandler));
+    }
+
+    public void runUnrecorded(Runnable action) {
+        suspended++;
+        try {
+            action.run();
+        } finally {
+            suspended--;
+        }
+    }
+
+    public void dispose() {
+        source.getCalendars().removeListener(calendarListener);
+        source.getCalendars().forEach(calendar -> calendar.removeEventHandler(entryHandler));
+    }
+
+    private void onCalendarsChanged(ListChangeListener.Change<? extends Calendar> change) {
+        while (change.next()) {
+            for (Calendar calendar : change.getRemoved()) {
+                calendar.removeEventHandler(entryHandler);
+                record(JournalRecord.calendarDeleted(calendar.getName()));
+            }
+            for (Calendar calendar : change.getAddedSubList()) {
+                calendar.addEventHandler(entryHandler);
+                record(JournalRecord.calendarCreated(calendar.getName()));
+                ((List<?>) calendar.findEntries("")).forEach(entry ->
+                        record(JournalRecord.entryCreated(calendar.getName(), serializer.fromEntry((Entry<?>) entry))));
+            }
+        }
+    }
+
+    private void onCalendarEvent(CalendarEvent evt) {
+        Entry<?> entry = evt.getEntry();
+        if (entry == null || entry.isRecurrence() || !evt.getEventType().getSuperType().equals(CalendarEvent.ENTRY_CHANGED)) {
+            return;
+        }
+        Calendar current = entry.getCalendar();
+        if (evt.getEventType() == CalendarEvent.ENTRY_CALENDAR_CHANGED) {
+            Calendar old = evt.getOldCalendar();
+            if (old != null && old != current) {
+                record(JournalRecord.entryDeleted(old.getName(), entry.getId()));
+            }
+            if (current != null && current != old) {
+                record(JournalRecord.entryCreated(current.getName(), serializer.fromEntry(entry)));
+            }
+        } else if (current != null) {
+            record(JournalRecord.entryUpdated(current.getName(), serializer.fromEntry(entry)));
+        }
+    }
+
+    private void record(JournalRecord record) {
+        if (suspended == 0) {
+            sink.accept(record);
+        }
+    }
+}
@@ -0,0 +1,99 @@
+package com.calendarfx.scheduler;
+
+import java.util.*;
+import java.util.function.Consumer;
+
+/**
+ * Applies journal records on top of snapshot calendars while they stream past.
+ * Records are grouped per calendar and every operation is an upsert or delete,
+ * so replaying a segment that was already folded into the snapshot is harmless.
+ */
+public class JournalReplay {
+
+    private final Map<String, List<JournalRecord>> pending = new LinkedHashMap<>();
+    private int recordCount;
+
+    public void add(JournalRecord record) {
+        pending.computeIfAbsent(record.getCalendar(), name -> new ArrayList<>()).add(record);
+        recordCount++;
+    }
+
+    public int getRecordCount() {
+        return recordCount;
+    }
+
+    public boolean isEmpty() {
+        return pending.isEmpty();
+    }
+
+    public Set<String> getCalendarNames() {
+        return Collections.unmodifiableSet(pending.keySet());
+    }
+
+    public List<JournalRecord> getRecords(String calendar) {
+        return pending.getOrDefault(calendar, List.of());
+    }
+
+    // Returns the calendar with its journaled changes applied, or null when the journal deleted it
+    public GreatCalendar apply(GreatCalendar calendar) {
+        List<JournalRecord> records = pending.remove(calendar.getName());
+        return records == null ? calendar : applyAll(calendar.getName(), calendar, records);
+    }
+
+    // Emits the calendars that exist only in the journal
+    public void forEachRemaining(Consumer<GreatCalendar> consumer) {
+        new ArrayList<>(pending.keySet()).forEach(name -> {
+            GreatCalendar calendar = applyAll(name, null, pending.remove(name));
+            if (calendar != null) {
+                consumer.accept(calendar);
+            }
+        });
+    }
+
+    private static GreatCalendar applyAll(String name, GreatCalendar calendar, List<JournalRecord> records) {
+        boolean exists = calendar != null;
+        List<GreatCalendar.GreatEntry> withoutId = new ArrayList<>();
+        Map<String, GreatCalendar.GreatEntry> byId = new LinkedHashMap<>();
+        if (calendar != null) {
+            calendar.getEntries().forEach(entry -> {
+                if (entry.getId() == null) {
+                    withoutId.add(entry);
+                } else {
+                    byId.put(entry.getId(), entry);
+                }
+            });
+        }
+
+        for (JournalRecord record : records) {
+            switch (record.getOperation()) {
+                case CALENDAR_CREATED -> exists = true;
+                case CALENDAR_DELETED -> {
+                    exists = false;
+                    withoutId.clear();
+                    byId.clear();
+                }
+                case ENTRY_CREATED, ENTRY_UPDATED -> {
+                    exists = true;
+                    if (record.getEntryId() == null) {
+                        withoutId.add(record.getEntry());
+                    } else {
+                        byId.put(record.getEntryId(), record.getEntry());
+                    }
+                }
+                case ENTRY_DELETED -> {
+                    if (record.getEntryId() != null) {
+                        byId.remove(record.getEntryId());
+                    }
+                }
+            }
+        }
+
+        if (!exists) {
+            return null;
+        }
+        List<GreatCalendar.GreatEntry> entries = new ArrayList<>(withoutId.size() + byId.size());
+        entries.addAll(byId.values());
+        entries.addAll(withoutId);
+        return new GreatCalendar(name, entries);
+    }
+}
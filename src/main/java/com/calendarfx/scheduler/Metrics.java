@@ -0,0 +1,131 @@
+package com.calendarfx.scheduler;
+
+import java.io.PrintStream;
+import java.util.Map;
+import java.util.TreeMap;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicLongArray;
+import java.util.concurrent.atomic.LongAccumulator;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.function.LongSupplier;
+
+/**
+ * Process wide counters, gauges and latency histograms, cheap enough to stay enabled. Histograms use one
+ * bucket per power of two nanoseconds, so percentiles are upper bounds within a factor of two.
+ * {@link #dump(PrintStream)} prints everything recorded so far.
+ */
+public final class Metrics {
+
+    // Set to print all metrics when the application or the batch tool exits
+    public static final String DUMP_PROPERTY = "calendar.metrics";
+
+    private static final Map<String, Counter> counters = new ConcurrentHashMap<>();
+    private static final Map<String, Histogram> histograms = new ConcurrentHashMap<>();
+    private static final Map<String, LongSupplier> gauges = new ConcurrentHashMap<>();
+
+    private Metrics() {
+    }
+
+    public static Counter counter(String name) {
+        return counters.computeIfAbsent(name, n -> new Counter());
+    }
+
+    public static Histogram histogram(String name) {
+        return histograms.computeIfAbsent(name, n -> new Histogram());
+    }
+
+    // A value read whenever metrics are shown, e.g. the size of a cache; reset() keeps gauges
+    public static void gauge(String name, LongSupplier value) {
+        gauges.put(name, value);
+    }
+
+    public static void reset() {
+        counters.clear();
+        histograms.clear();
+    }
+
+    public static String snapshot() {
+        StringBuilder text = new StringBuilder();
+        new TreeMap<>(counters).forEach((name, counter) ->
+                text.append(name).append(" ").append(counter.get()).append('\n'));
+        new TreeMap<>(gauges).forEach((name, gauge) ->
+                text.append(name).append(" ").append(gauge.getAsLong()).append('\n'));
+        new TreeMap<>(histograms).forEach((name, histogram) ->
+                text.append(name).append(" ").append(histogram).append('\n'));
+        return text.toString();
+    }
+
+    public static void dump(PrintStream out) {
+        out.print(snapshot());
+    }
+
+    public static final class Counter {
+        private final LongAdder value = new LongAdder();
+
+        public void increment() {
+            value.increment();
+        }
+
+        public void add(long amount) {
+            value.add(amount);
+        }
+
+        public long get() {
+            return value.sum();
+        }
+    }
+
+    public static final class Histogram {
+        private static final double NANOS_PER_MILLI = 1_000_000.0;
+        private final AtomicLongArray buckets = new AtomicLongArray(Long.SIZE);
+        private final LongAdder count = new LongAdder();
+        private final LongAdder sum = new LongAdder();
+        private final LongAccumulator max = new LongAccumulator(Math::max, 0);
+
+        public void record(long nanos) {
+            long value = Math.max(0, nanos);
+            buckets.incrementAndGet(Long.SIZE - 1 - Long.numberOfLeadingZeros(value | 1));
+            count.increment();
+            sum.add(value);
+            max.accumulate(value);
+        }
+
+        public long getCount() {
+            return count.sum();
+        }
+
+        public long getMaxNanos() {
+            return max.get();
+        }
+
+        public double getMeanNanos() {
+            long n = count.sum();
+            return n == 0 ? 0 : (double) sum.sum() / n;
+        }
+
+        // Upper bound of the bucket holding the given quantile, capped at the observed maximum
+        public long percentileNanos(double quantile) {
+            long total = 0;
+            for (int i = 0; i < Long.SIZE; i++) {
+                total += buckets.get(i);
+            }
+            long rank = (long) Math.ceil(quantile * total);
+            long seen = 0;
+            for (int i = 0; i < Long.SIZE; i++) {
+                seen += buckets.get(i);
+                if (seen >= rank && seen > 0) {
+                    long upper = i >= Long.SIZE - 2 ? Long.MAX_VALUE : (2L << i) - 1;
+                    return Math.min(upper, max.get());
+                }
+            }
+            return 0;
+        }
+
+        @Override
+        public String toString() {
+            return String.format("count=%d mean=%.3fms p50<=%.3fms p99<=%.3fms max=%.3fms",
+                    getCount(), getMeanNanos() / NANOS_PER_MILLI, percentileNanos(0.5) / NANOS_PER_MILLI,
+                    percentileNanos(0.99) / NANOS_PER_MILLI, getMaxNanos() / NANOS_PER_MILLI);
+        }
+    }
+}
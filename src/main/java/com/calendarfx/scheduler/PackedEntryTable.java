@@ -0,0 +1,258 @@
+package com.calendarfx.scheduler;
+
+import java.time.LocalDateTime;
+import java.time.ZoneOffset;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.BitSet;
+import java.util.List;
+import java.util.function.Consumer;
+
+/**
+ * In-memory counterpart of {@link ColumnarEntryStore} for headless processing of many entries. Start is
+ * an epoch-minute long column and the end a minute duration next to it, fullDay is a bitset and
+ * title/location/recurrence rule are codes into a {@link StringDictionary}; ids are unique, so they are
+ * kept as they are. Rows are read through a reusable {@link View} instead of one object per entry.
+ * Times are kept to the minute, seconds are dropped. The rows of a calendar are contiguous, so entries
+ * must be added calendar by calendar as every loader and reader delivers them.
+ */
+public class PackedEntryTable {
+
+    private static final int INITIAL_CAPACITY = 1024;
+    private static final int CALENDAR_RECORD_INTS = 3;
+    private static final long NO_TIME = Long.MIN_VALUE;
+    private static final int NO_DURATION = Integer.MIN_VALUE;
+
+    private final StringDictionary dictionary = new StringDictionary();
+    private final BitSet fullDays = new BitSet();
+    private long[] startMinutes;
+    private int[] durations;
+    private String[] ids;
+    private int[] titles;
+    private int[] locations;
+    private int[] recurrenceRules;
+    private int[] calendarTable = new int[16 * CALENDAR_RECORD_INTS];
+    private int count;
+    private int calendarCount;
+
+    public PackedEntryTable() {
+        this(INITIAL_CAPACITY);
+    }
+
+    public PackedEntryTable(int capacity) {
+        startMinutes = new long[capacity];
+        durations = new int[capacity];
+        ids = new String[capacity];
+        titles = new int[capacity];
+        locations = new int[capacity];
+        recurrenceRules = new int[capacity];
+    }
+
+    // ---------------------------------------------------------
+    // 1. ADDING ROWS
+    // ---------------------------------------------------------
+
+    public void add(GreatCalendar calendar) {
+        startCalendar(calendar.getName());
+        calendar.getEntries().forEach(this::addRow);
+    }
+
+    // Continues the last calendar when it has the same name, otherwise starts a new one
+    public void add(String calendar, GreatCalendar.GreatEntry entry) {
+        if (calendarCount == 0 || !calendar.equals(calendarName(calendarCount - 1))) {
+            startCalendar(calendar);
+        }
+        addRow(entry);
+    }
+
+    public int startCalendar(String name) {
+        if ((calendarCount + 1) * CALENDAR_RECORD_INTS > calendarTable.length) {
+            calendarTable = Arrays.copyOf(calendarTable, calendarTable.length * 2);
+        }
+        int record = calendarCount * CALENDAR_RECORD_INTS;
+        calendarTable[record] = dictionary.encode(name);
+        calendarTable[record + 1] = count;
+        calendarTable[record + 2] = 0;
+        return calendarCount++;
+    }
+
+    private void addRow(GreatCalendar.GreatEntry entry) {
+        if (count == startMinutes.length) {
+            grow(count + Math.max(count >> 1, INITIAL_CAPACITY));
+        }
+        long start = toEpochMinute(entry.getStart());
+        long end = toEpochMinute(entry.getEnd());
+        startMinutes[count] = start;
+        durations[count] = start == NO_TIME || end == NO_TIME ? NO_DURATION : Math.toIntExact(end - start);
+        ids[count] = entry.getId();
+        titles[count] = dictionary.encode(entry.getTitle());
+        locations[count] = dictionary.encode(entry.getLocation());
+        recurrenceRules[count] = dictionary.encode(entry.getRecurrenceRule());
+        fullDays.set(count, entry.isFullDay());
+        calendarTable[(calendarCount - 1) * CALENDAR_RECORD_INTS + 2]++;
+        count++;
+    }
+
+    // Drops the spare capacity once all rows are added
+    public void trimToSize() {
+        grow(count);
+    }
+
+    private void grow(int capacity) {
+        startMinutes = Arrays.copyOf(startMinutes, capacity);
+        durations = Arrays.copyOf(durations, capacity);
+        ids = Arrays.copyOf(ids, capacity);
+        titles = Arrays.copyOf(titles, capacity);
+        locations = Arrays.copyOf(locations, capacity);
+        recurrenceRules = Arrays.copyOf(recurrenceRules, capacity);
+    }
+
+    // ---------------------------------------------------------
+    // 2. ROW ACCESS
+    // ---------------------------------------------------------
+
+    public int size() {
+        return count;
+    }
+
+    public int calendarCount() {
+        return calendarCount;
+    }
+
+    public String calendarName(int calendar) {
+        return dictionary.decode(calendarTable[calendar * CALENDAR_RECORD_INTS]);
+    }
+
+    public int calendarFirstRow(int calendar) {
+        return calendarTable[calendar * CALENDAR_RECORD_INTS + 1];
+    }
+
+    public int calendarRowCount(int calendar) {
+        return calendarTable[calendar * CALENDAR_RECORD_INTS + 2];
+    }
+
+    public StringDictionary dictionary() {
+        return dictionary;
+    }
+
+    public View view() {
+        return new View();
+    }
+
+    // The same view is passed for every row, so it must not be kept beyond the call
+    public void forEach(Consumer<View> action) {
+        View view = new View();
+        for (int row = 0; row < count; row++) {
+            action.accept(view.moveTo(row));
+        }
+    }
+
+    public void forEachInCalendar(int calendar, Consumer<View> action) {
+        View view = new View();
+        int first = calendarFirstRow(calendar);
+        int last = first + calendarRowCount(calendar);
+        for (int row = first; row < last; row++) {
+            action.accept(view.moveTo(row));
+        }
+    }
+
+    public GreatCalendar calendar(int calendar) {
+        List<GreatCalendar.GreatEntry> entries = new ArrayList<>(calendarRowCount(calendar));
+        forEachInCalendar(calendar, view -> entries.add(view.toEntry()));
+        return new GreatCalendar(calendarName(calendar), entries);
+    }
+
+    private static long toEpochMinute(LocalDateTime time) {
+        return time == null ? NO_TIME : Math.floorDiv(time.toEpochSecond(ZoneOffset.UTC), 60);
+    }
+
+    private static LocalDateTime toTime(long epochMinute) {
+        return LocalDateTime.ofEpochSecond(epochMinute * 60, 0, ZoneOffset.UTC);
+    }
+
+    /**
+     * Flyweight over one row of the table; {@link #moveTo(int)} points it at another row.
+     * Apart from {@link #start()}, {@link #end()} and {@link #toEntry()} nothing allocates.
+     */
+    public final class View {
+
+        private int row;
+
+        private View() {
+        }
+
+        public View moveTo(int row) {
+            this.row = row;
+            return this;
+        }
+
+        public int row() {
+            return row;
+        }
+
+        public boolean hasStart() {
+            return startMinutes[row] != NO_TIME;
+        }
+
+        public boolean hasEnd() {
+            return durations[row] != NO_DURATION;
+        }
+
+        public long startMinute() {
+            return startMinutes[row];
+        }
+
+        public long endMinute() {
+            return startMinutes[row] + durations[row];
+        }
+
+        public int durationMinutes() {
+            return durations[row];
+        }
+
+        public boolean isFullDay() {
+            return fullDays.get(row);
+        }
+
+        public String id() {
+            return ids[row];
+        }
+
+        public int titleCode() {
+            return titles[row];
+        }
+
+        public String title() {
+            return dictionary.decode(titles[row]);
+        }
+
+        public int locationCode() {
+            return locations[row];
+        }
+
+        public String location() {
+            return dictionary.decode(locations[row]);
+        }
+
+        // Same test as RecurrenceExpander.isRecurring
+        public boolean isRecurring() {
+            return hasStart() && hasEnd() && RecurrenceExpander.hasRule(recurrenceRule());
+        }
+
+        public String recurrenceRule() {
+            return dictionary.decode(recurrenceRules[row]);
+        }
+
+        public LocalDateTime start() {
+            return hasStart() ? toTime(startMinute()) : null;
+        }
+
+        public LocalDateTime end() {
+            return hasEnd() ? toTime(endMinute()) : null;
+        }
+
+        public GreatCalendar.GreatEntry toEntry() {
+            return new GreatCalendar.GreatEntry(id(), title(), start(), end(), isFullDay(), location(), recurrenceRule());
+        }
+    }
+}
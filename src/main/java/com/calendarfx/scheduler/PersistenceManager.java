@@ -6,19 +6,101 @@ import com.fasterxml.jackson.databind.DeserializationFeature;
 import com.fasterxml.jackson.databind.ObjectMapper;
 import com.fasterxml.jackson.datatype.jsr310.JavaTimeModule;
 
+import java.io.BufferedInputStream;
+import java.io.BufferedOutputStream;
 import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.net.InetSocketAddress;
+import java.net.URI;
+import java.nio.charset.StandardCharsets;
 import java.nio.file.Files;
 import java.nio.file.Path;
-import java.util.ArrayList;
-import java.util.List;
+import java.nio.file.StandardCopyOption;
+import java.time.Duration;
+import java.time.LocalDate;
+import java.time.YearMonth;
+import java.util.*;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.function.Consumer;
+import java.util.stream.Stream;
+import java.util.zip.GZIPInputStream;
+import java.util.zip.GZIPOutputStream;
 
 public class PersistenceManager {
+
+    public enum StorageMode {
+        SINGLE_FILE, SHARDED
+    }
+
+    public static final String STORAGE_PROPERTY = "calendar.storage";
     private final ObjectMapper mapper = new ObjectMapper();
     protected final GreatCalendarSerializer calendarSerializer = new GreatCalendarSerializer();
     private static final String JSON = ".json";
-    private static final Path DATA_DIR = Path.of(System.getProperty("user.dir"), "data");
+    private static final String JOURNAL = ".journal";
+    private static final String REVISION = ".revision";
+    private static final String TMP = ".tmp";
+    private static final String BACKUP = ".bak";
+    public static final String BACKUPS_PROPERTY = "calendar.backups";
+    public static final int DEFAULT_BACKUPS = 3;
+    private static final int BACKUPS = Integer.getInteger(BACKUPS_PROPERTY, DEFAULT_BACKUPS);
+    private static final int STREAM_BUFFER_SIZE = 64 * 1024;
+    // Snapshots are gzip compressed when calendar.compression=gzip; readers detect gzip by its magic bytes
+    public static final String COMPRESSION_PROPERTY = "calendar.compression";
+    public static final String COMPRESSION_LEVEL_PROPERTY = "calendar.compressionLevel";
+    public static final int DEFAULT_COMPRESSION_LEVEL = 3;
+    private static final String GZIP = ".gz";
+    private static final int GZIP_MAGIC = 0x8b1f;
+    private static final boolean COMPRESSED = "gzip".equalsIgnoreCase(System.getProperty(COMPRESSION_PROPERTY));
+    private static final int COMPRESSION_LEVEL = Integer.getInteger(COMPRESSION_LEVEL_PROPERTY, DEFAULT_COMPRESSION_LEVEL);
+    private static final int COMPACTION_THRESHOLD = 5_000;
+    // Checkpoints also compact a journal below the threshold once the last compaction is this old
+    public static final String COMPACTION_INTERVAL_PROPERTY = "calendar.compactionIntervalMinutes";
+    public static final long DEFAULT_COMPACTION_INTERVAL_MINUTES = 30;
+    private static final Duration COMPACTION_INTERVAL = Duration.ofMinutes(
+            Long.getLong(COMPACTION_INTERVAL_PROPERTY, DEFAULT_COMPACTION_INTERVAL_MINUTES));
+    public static final String DATA_DIR_PROPERTY = "calendar.dataDir";
+    private static final Path DATA_DIR = System.getProperty(DATA_DIR_PROPERTY) != null
+            ? Path.of(System.getProperty(DATA_DIR_PROPERTY))
+            : Path.of(System.getProperty("user.dir"), "data");
+    private static final String SHARD_DIR = "calendars";
+    // Planners share changes through a SyncServer when calendar.syncUrl is set or one is embedded on calendar.syncPort
+    public static final String SYNC_URL_PROPERTY = "calendar.syncUrl";
+    public static final String SYNC_PORT_PROPERTY = "calendar.syncPort";
+    private static final String SYNC = ".sync";
+    private static final Duration SYNC_FLUSH_TIMEOUT = Duration.ofSeconds(5);
+    private final ExecutorService compactor = Executors.newSingleThreadExecutor(r -> {
+        Thread thread = new Thread(r, "journal-compactor");
+        thread.setDaemon(true);
+        return thread;
+    });
+    private final AtomicBoolean compactionScheduled = new AtomicBoolean();
+    private final Object compactionLock = new Object();
+    private volatile long lastCompactionNanos = System.nanoTime();
+    private ChangeJournal journal;
+    private long lastRevision;
+    private final StorageMode storageMode;
+    private final ShardedCalendarStore shardStore;
+    // Sharded mode: months already handed out and entry ids owned by memory, so on-demand loads never duplicate
+    private final Object residentLock = new Object();
+    private final Map<String, Set<YearMonth>> loadedMonths = new HashMap<>();
+    private final Map<String, Set<String>> residentIds = new HashMap<>();
+    private final Set<String> resetCalendars = new HashSet<>();
+    private final Object migrationLock = new Object();
+    private SyncClient syncClient;
+    private SyncServer syncServer;
 
     public PersistenceManager() {
+        this(StorageMode.SHARDED.name().equalsIgnoreCase(System.getProperty(STORAGE_PROPERTY))
+                ? StorageMode.SHARDED
+                : StorageMode.SINGLE_FILE);
+    }
+
+    public PersistenceManager(StorageMode storageMode) {
+        this.storageMode = storageMode;
         mapper.registerModule(new JavaTimeModule()); // handle LocalDateTime
         mapper.configure(DeserializationFeature.FAIL_ON_UNKNOWN_PROPERTIES, false);
         ObjectMapper mapper = new ObjectMapper();
@@ -26,6 +108,7 @@ public class PersistenceManager {
         mapper.setVisibility(PropertyAccessor.CREATOR, JsonAutoDetect.Visibility.ANY);
         mapper.setVisibility(PropertyAccessor.GETTER, JsonAutoDetect.Visibility.ANY);
         mapper.setVisibility(PropertyAccessor.SETTER, JsonAutoDetect.Visibility.ANY);
+        this.shardStore = new ShardedCalendarStore(this.mapper, DATA_DIR.resolve(SHARD_DIR));
     }
 
     protected <T> void saveInformation(List<T> objects) {
@@ -50,20 +133,806 @@ public class PersistenceManager {
         }
     }
 
+    // ---------------------------------------------------------
+    // Employees
+    // ---------------------------------------------------------
+
+    protected EmployeeRegistry loadEmployees() {
+        return new EmployeeRegistry(loadInformation(Employee.class));
+    }
+
+    // Unlike saveInformation this also writes an empty registry, so removing the last employee sticks
+    protected void saveEmployees(EmployeeRegistry employees) {
+        try {
+            Files.createDirectories(DATA_DIR);
+        } catch (IOException e) {
+            System.out.println("Unable to create directory");
+            throw new RuntimeException(e);
+        }
+        this.saveToFile(employees.getAll(), DATA_DIR.resolve(Employee.class.getSimpleName() + JSON));
+    }
+
+    // Reads a JSON array of clazz from an arbitrary file, e.g. one handed to the batch tool
+    protected <T> List<T> loadInformation(Path file, Class<T> clazz) {
+        return this.loadFromFile(file, clazz);
+    }
+
     private <T> void saveToFile(T object, Path filePath) {
+        SchedulerEvents.Persistence event = SchedulerEvents.persistence("save", filePath);
+        Path tmp = filePath.resolveSibling(filePath.getFileName() + TMP);
         try {
-            mapper.writeValue(filePath.toFile(), object);
+            try (OutputStream out = new BufferedOutputStream(DurableFiles.newOutputStream(tmp), STREAM_BUFFER_SIZE)) {
+                mapper.writeValue(out, object);
+            }
+            event.entries = object instanceof Collection<?> collection ? collection.size() : 1;
+            event.bytes = Files.size(tmp);
+            replaceWithBackups(tmp, filePath);
             System.out.println("Saved " + object.getClass().getSimpleName() + " to " + filePath);
         } catch (Exception e) {
             throw new RuntimeException("Failed to save object", e);
+        } finally {
+            event.finish();
         }
     }
 
     private <T> List<T> loadFromFile(Path filePath, Class<T> clazz) {
+        SchedulerEvents.Persistence event = SchedulerEvents.persistence("load", filePath);
         try {
-            return mapper.readValue(filePath.toFile(), mapper.getTypeFactory().constructCollectionType(List.class, clazz));
+            List<T> loaded;
+            try (InputStream in = openInput(filePath)) {
+                loaded = mapper.readValue(in, mapper.getTypeFactory().constructCollectionType(List.class, clazz));
+            }
+            event.entries = loaded.size();
+            event.bytes = Files.size(filePath);
+            return loaded;
         } catch (Exception e) {
             throw new RuntimeException("Failed to load object", e);
+        } finally {
+            event.finish();
+        }
+    }
+
+    // ---------------------------------------------------------
+    // Streaming calendars
+    // ---------------------------------------------------------
+
+    protected void loadCalendars(Consumer<GreatCalendar> consumer) {
+        Path snapshot = existingSnapshotPath();
+        JournalReplay replay = new JournalReplay();
+        try {
+            lastRevision = Math.max(readRevision(),
+                    Math.max(ChangeJournal.read(mapper, sealedJournalPath(), replay::add),
+                            ChangeJournal.read(mapper, journalPath(), replay::add)));
+            if (replay.getRecordCount() > 0) {
+                System.out.println("Replaying " + replay.getRecordCount() + " journal records");
+            }
+            if (replay.getRecordCount() >= COMPACTION_THRESHOLD) {
+                compactJournalAsync();
+            }
+            if (isSharded()) {
+                migrateToShards();
+                for (String name : shardStore.getCalendarNames()) {
+                    GreatCalendar current = replay.apply(shardStore.loadAll(name));
+                    if (current != null) {
+                        consumer.accept(current);
+                    }
+                }
+            } else if (replay.isEmpty() || Files.exists(snapshot)) {
+                this.streamFromFile(snapshot, calendar -> {
+                    GreatCalendar current = replay.apply(calendar);
+                    if (current != null) {
+                        consumer.accept(current);
+                    }
+                });
+            }
+        } catch (RuntimeException e) {
+            System.out.println(e.getMessage());
+        }
+        replay.forEachRemaining(consumer);
+    }
+
+    protected void saveCalendars(Iterable<GreatCalendar> calendars) {
+        try {
+            Files.createDirectories(DATA_DIR);
+        } catch (IOException e) {
+            System.out.println("Unable to create directory");
+            throw new RuntimeException(e);
+        }
+        this.streamToFile(calendars.iterator(), calendarSnapshotPath(), true);
+        deleteStaleSnapshot();
+    }
+
+    // Import/export of a calendar snapshot file outside the data directory
+    protected void readCalendars(Path file, Consumer<GreatCalendar> consumer) {
+        this.streamFromFile(file, consumer);
+    }
+
+    protected void writeCalendars(Iterable<GreatCalendar> calendars, Path file) {
+        this.streamToFile(calendars.iterator(), file, false);
+    }
+
+    // Binary counterpart of saveCalendars; the JSON snapshot stays the import/export format
+    protected void saveColumnar(Collection<GreatCalendar> calendars) {
+        Path file = columnarPath();
+        Path tmp = file.resolveSibling(file.getFileName() + TMP);
+        try {
+            Files.createDirectories(DATA_DIR);
+            calendarSerializer.toColumnarStore(calendars, tmp);
+            replaceWithBackups(tmp, file);
+        } catch (IOException e) {
+            throw new RuntimeException("Failed to save columnar store", e);
+        }
+        System.out.println("Saved " + calendars.size() + " " + GreatCalendar.class.getSimpleName() + " to " + file);
+    }
+
+    // The caller owns the returned store and must close it; null when no binary store was saved yet
+    protected ColumnarEntryStore openColumnar() {
+        Path file = columnarPath();
+        if (!Files.exists(file)) {
+            return null;
+        }
+        try {
+            return ColumnarEntryStore.open(file);
+        } catch (IOException e) {
+            throw new RuntimeException("Failed to open columnar store " + file, e);
+        }
+    }
+
+    // Keeps the replaced file as target.bak.1, shifting older backups up to calendar.backups copies. tmp must have
+    // been forced to disk, e.g. by writing it through DurableFiles; the move is forced with its directory
+    private static void replaceWithBackups(Path tmp, Path target) throws IOException {
+        if (BACKUPS > 0 && Files.exists(target)) {
+            Files.deleteIfExists(backupPath(target, BACKUPS));
+            for (int i = BACKUPS - 1; i >= 1; i--) {
+                Path older = backupPath(target, i);
+                if (Files.exists(older)) {
+                    Files.move(older, backupPath(target, i + 1), StandardCopyOption.REPLACE_EXISTING);
+                }
+            }
+            // A hard link keeps the target in place until the atomic move; copying is the fallback
+            Path newest = backupPath(target, 1);
+            try {
+                Files.createLink(newest, target);
+            } catch (IOException | UnsupportedOperationException e) {
+                Files.copy(target, newest, StandardCopyOption.REPLACE_EXISTING);
+            }
+        }
+        DurableFiles.move(tmp, target);
+    }
+
+    private static Path backupPath(Path target, int generation) {
+        return target.resolveSibling(target.getFileName() + BACKUP + "." + generation);
+    }
+
+    private Path columnarPath() {
+        return DATA_DIR.resolve(GreatCalendar.class.getSimpleName() + ColumnarEntryStore.EXTENSION);
+    }
+
+    private Path calendarSnapshotPath() {
+        return DATA_DIR.resolve(GreatCalendar.class.getSimpleName() + JSON + (COMPRESSED ? GZIP : ""));
+    }
+
+    // The snapshot in the configured format, or the other one right after the compression setting changed
+    private Path existingSnapshotPath() {
+        Path configured = calendarSnapshotPath();
+        Path other = DATA_DIR.resolve(GreatCalendar.class.getSimpleName() + JSON + (COMPRESSED ? "" : GZIP));
+        return !Files.exists(configured) && Files.exists(other) ? other : configured;
+    }
+
+    private void deleteStaleSnapshot() {
+        Path other = DATA_DIR.resolve(GreatCalendar.class.getSimpleName() + JSON + (COMPRESSED ? "" : GZIP));
+        try {
+            Files.deleteIfExists(other);
+        } catch (IOException e) {
+            System.out.println("Unable to delete " + other + ": " + e.getMessage());
+        }
+    }
+
+    // ---------------------------------------------------------
+    // Compression
+    // ---------------------------------------------------------
+
+    // Buffered input that is transparently decompressed when the file starts with the gzip magic bytes
+    private static InputStream openInput(Path file) throws IOException {
+        InputStream in = new BufferedInputStream(Files.newInputStream(file), STREAM_BUFFER_SIZE);
+        in.mark(2);
+        int magic = in.read() | (in.read() << 8);
+        in.reset();
+        return magic == GZIP_MAGIC ? new BufferedInputStream(new GZIPInputStream(in, STREAM_BUFFER_SIZE), STREAM_BUFFER_SIZE) : in;
+    }
+
+    // Buffered output, gzip compressed at calendar.compressionLevel when the target name ends with .gz; the file
+    // is forced to disk when the stream is closed, so it can be moved over the target right after
+    private static OutputStream openOutput(Path file, Path target) throws IOException {
+        OutputStream out = DurableFiles.newOutputStream(file);
+        if (!target.getFileName().toString().endsWith(GZIP)) {
+            return new BufferedOutputStream(out, STREAM_BUFFER_SIZE);
+        }
+        return new BufferedOutputStream(new GZIPOutputStream(out, STREAM_BUFFER_SIZE) {
+            {
+                def.setLevel(COMPRESSION_LEVEL);
+            }
+        }, STREAM_BUFFER_SIZE);
+    }
+
+    private void streamFromFile(Path filePath, Consumer<GreatCalendar> consumer) {
+        SchedulerEvents.Persistence event = SchedulerEvents.persistence("loadCalendars", filePath);
+        try (InputStream in = openInput(filePath);
+             GreatCalendarReader reader = new GreatCalendarReader(mapper, in)) {
+            event.bytes = Files.size(filePath);
+            reader.forEachRemaining(calendar -> {
+                event.calendars++;
+                event.entries += calendar.getEntries().size();
+                consumer.accept(calendar);
+            });
+        } catch (Exception e) {
+            throw new RuntimeException("Failed to load object", e);
+        } finally {
+            event.finish();
+        }
+    }
+
+    // Writes next to the target and moves the result into place, so a crash never leaves a torn file
+    private void streamToFile(Iterator<GreatCalendar> calendars, Path filePath, boolean keepBackups) {
+        SchedulerEvents.Persistence event = SchedulerEvents.persistence("saveCalendars", filePath);
+        Path tmp = filePath.resolveSibling(filePath.getFileName() + TMP);
+        int count = 0;
+        try {
+            try (OutputStream out = openOutput(tmp, filePath);
+                 GreatCalendarWriter writer = new GreatCalendarWriter(mapper, out)) {
+                while (calendars.hasNext()) {
+                    GreatCalendar calendar = calendars.next();
+                    writer.write(calendar);
+                    event.entries += calendar.getEntries().size();
+                    count++;
+                }
+            }
+            event.calendars = count;
+            event.bytes = Files.size(tmp);
+            if (keepBackups) {
+                replaceWithBackups(tmp, filePath);
+            } else {
+                DurableFiles.move(tmp, filePath);
+            }
+        } catch (Exception e) {
+            throw new RuntimeException("Failed to save object", e);
+        } finally {
+            event.finish();
+        }
+        System.out.println("Saved " + count + " " + GreatCalendar.class.getSimpleName() + " to " + filePath);
+    }
+
+    // ---------------------------------------------------------
+    // Change journal
+    // ---------------------------------------------------------
+
+    // Opening touches the disk, so callers on the FX thread should have it opened in the background first
+    protected synchronized void openJournal() {
+        try {
+            if (journal == null) {
+                Files.createDirectories(DATA_DIR);
+                journal = new ChangeJournal(mapper, journalPath(), lastRevision);
+            }
+        } catch (IOException e) {
+            throw new RuntimeException("Failed to open journal", e);
+        }
+    }
+
+    protected synchronized void recordChange(JournalRecord record) {
+        openJournal();
+        journal.append(record);
+        // Records with an origin came from the sync server and must not be pushed back
+        if (syncClient != null && record.getOrigin() == null) {
+            syncClient.submit(record);
+        }
+        if (isSharded()) {
+            trackResident(record);
+        }
+        if (journal.getActiveRecords() >= COMPACTION_THRESHOLD) {
+            compactJournalAsync();
+        }
+    }
+
+    protected synchronized long getLastRevision() {
+        return journal == null ? lastRevision : journal.getRevision();
+    }
+
+    protected void compactJournalAsync() {
+        if (compactionScheduled.compareAndSet(false, true)) {
+            compactor.execute(() -> {
+                compactionScheduled.set(false);
+                try {
+                    compactJournal();
+                } catch (RuntimeException e) {
+                    System.out.println(e.getMessage());
+                }
+            });
+        }
+    }
+
+    // Autosave checkpoint: flushes the journal, which is all an edit needs to be durable. The snapshot, and with
+    // it its backups, is only rewritten by the record threshold or once per compaction interval
+    protected void checkpoint() {
+        ChangeJournal current;
+        boolean compactionDue;
+        synchronized (this) {
+            current = journal;
+            boolean pending = (journal != null && journal.getActiveRecords() > 0) || Files.exists(sealedJournalPath())
+                    || (journal == null && Files.exists(journalPath()));
+            compactionDue = pending && System.nanoTime() - lastCompactionNanos >= COMPACTION_INTERVAL.toNanos();
+        }
+        if (current != null) {
+            current.flush();
+        }
+        if (compactionDue) {
+            compactJournalAsync();
+        }
+    }
+
+    // Folds the journal into a fresh snapshot; new records keep going to a new active segment meanwhile
+    protected void compactJournal() {
+        synchronized (compactionLock) {
+            Path sealed = sealedJournalPath();
+            try {
+                if (!Files.exists(sealed)) {
+                    // Sealing holds this lock so no journal can be opened on the file being moved
+                    synchronized (this) {
+                        if (journal != null) {
+                            journal.seal();
+                        } else if (Files.exists(journalPath())) {
+                            Files.move(journalPath(), sealed, StandardCopyOption.ATOMIC_MOVE);
+                        } else {
+                            return;
+                        }
+                    }
+                }
+
+                JournalReplay replay = new JournalReplay();
+                long foldedRevision = Math.max(readRevision(), ChangeJournal.read(mapper, sealed, replay::add));
+                int recordCount = replay.getRecordCount();
+                if (isSharded()) {
+                    compactIntoShards(replay);
+                    writeRevision(foldedRevision);
+                    Files.delete(sealed);
+                    lastCompactionNanos = System.nanoTime();
+                    System.out.println("Compacted " + recordCount + " journal records into " + DATA_DIR.resolve(SHARD_DIR));
+                    return;
+                }
+                Path existing = existingSnapshotPath();
+                Path snapshot = calendarSnapshotPath();
+                Path tmp = snapshot.resolveSibling(snapshot.getFileName() + TMP);
+                try (OutputStream out = openOutput(tmp, snapshot);
+                     GreatCalendarWriter writer = new GreatCalendarWriter(mapper, out)) {
+                    if (Files.exists(existing)) {
+                        streamFromFile(existing, calendar -> {
+                            GreatCalendar current = replay.apply(calendar);
+                            if (current != null) {
+                                write(writer, current);
+                            }
+                        });
+                    }
+                    replay.forEachRemaining(calendar -> write(writer, calendar));
+                }
+                replaceWithBackups(tmp, snapshot);
+                deleteStaleSnapshot();
+                writeRevision(foldedRevision);
+                Files.delete(sealed);
+                lastCompactionNanos = System.nanoTime();
+                System.out.println("Compacted " + replay.getRecordCount() + " journal records into " + snapshot);
+            } catch (IOException e) {
+                throw new RuntimeException("Failed to compact journal", e);
+            }
+        }
+    }
+
+    // Only the calendars touched by the journal are rewritten, and within them only the changed shards
+    private void compactIntoShards(JournalReplay replay) {
+        migrateToShards();
+        Set<String> stored = new HashSet<>(shardStore.getCalendarNames());
+        for (String name : new ArrayList<>(replay.getCalendarNames())) {
+            if (!stored.contains(name)) {
+                continue;
+            }
+            GreatCalendar current = replay.apply(shardStore.loadAll(name));
+            if (current == null) {
+                shardStore.delete(name);
+            } else {
+                shardStore.save(current);
+            }
+        }
+        replay.forEachRemaining(shardStore::save);
+    }
+
+    protected void closeJournal() {
+        compactor.shutdown();
+        try {
+            compactor.awaitTermination(1, TimeUnit.MINUTES);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+        synchronized (this) {
+            if (journal == null) {
+                return;
+            }
+            try {
+                journal.close();
+            } catch (IOException e) {
+                System.out.println("Failed to close journal: " + e.getMessage());
+            }
+            lastRevision = journal.getRevision();
+            journal = null;
+        }
+    }
+
+    // ---------------------------------------------------------
+    // Synchronization
+    // ---------------------------------------------------------
+
+    protected boolean isSyncConfigured() {
+        return System.getProperty(SYNC_URL_PROPERTY) != null || syncServer != null;
+    }
+
+    // Serves this data directory to other planners; an empty server is seeded with the local calendars
+    protected SyncServer startSyncServer(int port) {
+        try {
+            Files.createDirectories(DATA_DIR);
+            syncServer = new SyncServer(mapper, DATA_DIR.resolve(SyncServer.class.getSimpleName() + JOURNAL),
+                    new InetSocketAddress(port));
+            if (syncServer.isEmpty()) {
+                List<GreatCalendar> calendars = new ArrayList<>();
+                loadCalendars(calendars::add);
+                // The seed belongs to this data directory's client, which therefore already has it
+                writeSyncRevision(syncServer.seed(syncClientId(), calendars));
+            }
+            syncServer.start();
+            return syncServer;
+        } catch (IOException e) {
+            throw new RuntimeException("Failed to start sync server", e);
+        }
+    }
+
+    // Starts pushing journaled changes and journals the changes of other planners before handing them to listener
+    protected void startSync(SyncClient.Listener listener) {
+        String url = System.getProperty(SYNC_URL_PROPERTY);
+        if (url == null && syncServer != null) {
+            url = "http://localhost:" + syncServer.getPort();
+        }
+        if (url == null) {
+            return;
+        }
+        SyncClient client = new SyncClient(mapper, URI.create(url), syncClientId());
+        synchronized (this) {
+            if (syncClient != null) {
+                return;
+            }
+            syncClient = client;
+        }
+        client.start(readSyncRevision(), new SyncClient.Listener() {
+            @Override
+            public void onRemoteChanges(List<JournalRecord> records, long revision) {
+                recordRemote(records);
+                writeSyncRevision(revision);
+                listener.onRemoteChanges(records, revision);
+            }
+
+            @Override
+            public void onConflicts(List<JournalRecord> serverRecords) {
+                recordRemote(serverRecords);
+                listener.onConflicts(serverRecords);
+            }
+
+            @Override
+            public void onRejected(List<JournalRecord> records, String reason) {
+                listener.onRejected(records, reason);
+            }
+        });
+        System.out.println("Synchronizing with " + url + " from revision " + client.getSyncedRevision());
+    }
+
+    // Called once remote changes up to revision are applied locally, so later local edits are pushed based on them
+    protected void remoteChangesApplied(long revision) {
+        SyncClient client;
+        synchronized (this) {
+            client = syncClient;
+        }
+        if (client != null) {
+            client.applied(revision);
+        }
+    }
+
+    protected void closeSync() {
+        SyncClient client;
+        synchronized (this) {
+            client = syncClient;
+            syncClient = null;
+        }
+        if (client != null) {
+            if (!client.flush(SYNC_FLUSH_TIMEOUT)) {
+                System.out.println("Some changes were not synchronized before exiting");
+            }
+            client.close();
+        }
+        if (syncServer != null) {
+            syncServer.close();
+            syncServer = null;
+        }
+    }
+
+    // Remote records are journaled like local edits, and flushed before the sync revision moves past them
+    private void recordRemote(List<JournalRecord> records) {
+        ChangeJournal current;
+        synchronized (this) {
+            records.forEach(this::recordChange);
+            current = journal;
+        }
+        current.flush();
+    }
+
+    private synchronized String syncClientId() {
+        List<String> state = readSyncState();
+        if (!state.isEmpty()) {
+            return state.getFirst();
+        }
+        String clientId = UUID.randomUUID().toString();
+        writeSyncState(clientId, 0);
+        return clientId;
+    }
+
+    private long readSyncRevision() {
+        List<String> state = readSyncState();
+        try {
+            return state.size() > 1 ? Long.parseLong(state.get(1).trim()) : 0;
+        } catch (NumberFormatException e) {
+            System.out.println("Unable to read sync revision: " + e.getMessage());
+            return 0;
+        }
+    }
+
+    private synchronized void writeSyncRevision(long revision) {
+        writeSyncState(syncClientId(), revision);
+    }
+
+    // The client id on the first line, the last server revision applied locally on the second
+    private List<String> readSyncState() {
+        Path path = syncStatePath();
+        try {
+            return Files.exists(path) ? Files.readAllLines(path, StandardCharsets.UTF_8) : List.of();
+        } catch (IOException e) {
+            System.out.println("Unable to read sync state: " + e.getMessage());
+            return List.of();
+        }
+    }
+
+    private void writeSyncState(String clientId, long revision) {
+        try {
+            Files.createDirectories(DATA_DIR);
+            DurableFiles.write(syncStatePath(), (clientId + "\n" + revision + "\n").getBytes(StandardCharsets.UTF_8));
+        } catch (IOException e) {
+            throw new RuntimeException("Failed to save sync state", e);
+        }
+    }
+
+    private Path syncStatePath() {
+        return DATA_DIR.resolve(GreatCalendar.class.getSimpleName() + SYNC);
+    }
+
+    private static void write(GreatCalendarWriter writer, GreatCalendar calendar) {
+        try {
+            writer.write(calendar);
+        } catch (IOException e) {
+            throw new RuntimeException("Failed to save object", e);
+        }
+    }
+
+    // Replaced durably, since a torn revision file would restart the revision numbering at 0
+    private void writeRevision(long revision) throws IOException {
+        DurableFiles.write(revisionPath(), Long.toString(revision).getBytes(StandardCharsets.UTF_8));
+    }
+
+    private long readRevision() {
+        Path path = revisionPath();
+        try {
+            return Files.exists(path) ? Long.parseLong(Files.readString(path, StandardCharsets.UTF_8).trim()) : 0;
+        } catch (IOException | NumberFormatException e) {
+            System.out.println("Unable to read journal revision: " + e.getMessage());
+            return 0;
+        }
+    }
+
+    private Path journalPath() {
+        return DATA_DIR.resolve(GreatCalendar.class.getSimpleName() + JOURNAL);
+    }
+
+    private Path sealedJournalPath() {
+        return DATA_DIR.resolve(GreatCalendar.class.getSimpleName() + JOURNAL + ChangeJournal.SEALED_SUFFIX);
+    }
+
+    private Path revisionPath() {
+        return DATA_DIR.resolve(GreatCalendar.class.getSimpleName() + REVISION);
+    }
+
+    // ---------------------------------------------------------
+    // Sharded storage
+    // ---------------------------------------------------------
+
+    public boolean isSharded() {
+        return storageMode == StorageMode.SHARDED;
+    }
+
+    // Saving into a data directory that still has its single-file snapshot migrates that snapshot first
+    protected void saveSharded(Collection<GreatCalendar> calendars) {
+        migrateToShards();
+        SchedulerEvents.Persistence event = SchedulerEvents.persistence("saveSharded", DATA_DIR.resolve(SHARD_DIR));
+        int touched;
+        try {
+            touched = calendars.stream().mapToInt(shardStore::save).sum();
+            event.calendars = calendars.size();
+            event.entries = calendars.stream().mapToLong(calendar -> calendar.getEntries().size()).sum();
+        } finally {
+            event.finish();
+        }
+        System.out.println("Saved " + calendars.size() + " calendars, " + touched + " shards changed");
+    }
+
+    // Loads the given calendars (all when null) restricted to the months overlapping [from, to], with the journal applied
+    protected List<GreatCalendar> loadInformation(Collection<String> calendarNames, LocalDate from, LocalDate to) {
+        List<GreatCalendar> result = new ArrayList<>();
+        SchedulerEvents.Persistence event = SchedulerEvents.persistence("loadSharded", DATA_DIR.resolve(SHARD_DIR));
+        try {
+            migrateToShards();
+            JournalReplay replay = new JournalReplay();
+            lastRevision = Math.max(readRevision(),
+                    Math.max(ChangeJournal.read(mapper, sealedJournalPath(), replay::add),
+                            ChangeJournal.read(mapper, journalPath(), replay::add)));
+
+            Set<String> names = new LinkedHashSet<>();
+            if (calendarNames == null) {
+                names.addAll(shardStore.getCalendarNames());
+                names.addAll(replay.getCalendarNames());
+            } else {
+                names.addAll(calendarNames);
+            }
+            // Starting one month early catches entries that begin before the window but run into it
+            YearMonth first = YearMonth.from(from).minusMonths(1);
+            YearMonth last = YearMonth.from(to);
+            Set<String> stored = new HashSet<>(shardStore.getCalendarNames());
+
+            for (String name : names) {
+                List<JournalRecord> records = List.copyOf(replay.getRecords(name));
+                boolean reset = records.stream()
+                        .anyMatch(r -> r.getOperation() == JournalRecord.Operation.CALENDAR_DELETED);
+                GreatCalendar window = reset || !stored.contains(name)
+                        ? null
+                        : shardStore.load(name, first, last);
+                GreatCalendar current;
+                if (window != null) {
+                    current = replay.apply(window);
+                } else {
+                    List<GreatCalendar> created = new ArrayList<>();
+                    JournalReplay single = new JournalReplay();
+                    records.forEach(single::add);
+                    single.forEachRemaining(created::add);
+                    current = created.isEmpty() ? null : created.getFirst();
+                }
+                synchronized (residentLock) {
+                    Set<YearMonth> months = loadedMonths.computeIfAbsent(name, n -> new HashSet<>());
+                    for (YearMonth month = first; !month.isAfter(last); month = month.plusMonths(1)) {
+                        months.add(month);
+                    }
+                    Set<String> ids = residentIds.computeIfAbsent(name, n -> new HashSet<>());
+                    records.forEach(r -> {
+                        if (r.getEntryId() != null) {
+                            ids.add(r.getEntryId());
+                        }
+                    });
+                    if (current != null) {
+                        current.getEntries().forEach(e -> {
+                            if (e.getId() != null) {
+                                ids.add(e.getId());
+                            }
+                        });
+                    }
+                    if (reset) {
+                        resetCalendars.add(name);
+                    }
+                }
+                if (current != null) {
+                    result.add(current);
+                    event.calendars++;
+                    event.entries += current.getEntries().size();
+                }
+            }
+        } catch (RuntimeException e) {
+            System.out.println(e.getMessage());
+        } finally {
+            event.finish();
+        }
+        return result;
+    }
+
+    // Returns the entries of months in [from, to] that were not loaded yet, skipping entries memory already owns
+    protected List<GreatCalendar.GreatEntry> loadMonths(String calendarName, YearMonth from, YearMonth to) {
+        if (!isSharded()) {
+            return List.of();
+        }
+        List<YearMonth> missing = new ArrayList<>();
+        synchronized (residentLock) {
+            if (resetCalendars.contains(calendarName)) {
+                return List.of();
+            }
+            Set<YearMonth> months = loadedMonths.computeIfAbsent(calendarName, n -> new HashSet<>());
+            for (YearMonth month = from; !month.isAfter(to); month = month.plusMonths(1)) {
+                if (months.add(month)) {
+                    missing.add(month);
+                }
+            }
+        }
+        if (missing.isEmpty()) {
+            return List.of();
+        }
+
+        List<GreatCalendar.GreatEntry> loaded = new ArrayList<>();
+        try {
+            missing.forEach(month -> loaded.addAll(shardStore.loadMonth(calendarName, month)));
+        } catch (RuntimeException e) {
+            System.out.println(e.getMessage());
+        }
+        List<GreatCalendar.GreatEntry> result = new ArrayList<>(loaded.size());
+        synchronized (residentLock) {
+            Set<String> ids = residentIds.computeIfAbsent(calendarName, n -> new HashSet<>());
+            loaded.forEach(entry -> {
+                if (entry.getId() == null || ids.add(entry.getId())) {
+                    result.add(entry);
+                }
+            });
+        }
+        return result;
+    }
+
+    private void trackResident(JournalRecord record) {
+        synchronized (residentLock) {
+            if (record.getOperation() == JournalRecord.Operation.CALENDAR_DELETED) {
+                resetCalendars.add(record.getCalendar());
+            } else if (record.getEntryId() != null) {
+                residentIds.computeIfAbsent(record.getCalendar(), n -> new HashSet<>()).add(record.getEntryId());
+            }
+        }
+    }
+
+    // Shards are written to a staging directory that only becomes the shard root once every calendar is in it,
+    // so a migration interrupted by a crash is started over instead of leaving a manifest with calendars missing
+    private void migrateToShards() {
+        synchronized (migrationLock) {
+            Path snapshot = existingSnapshotPath();
+            if (!isSharded() || shardStore.exists() || !Files.exists(snapshot)) {
+                return;
+            }
+            System.out.println("Migrating " + snapshot + " to sharded storage");
+            Path root = DATA_DIR.resolve(SHARD_DIR);
+            Path staging = DATA_DIR.resolve(SHARD_DIR + TMP);
+            try {
+                deleteRecursively(staging);
+                ShardedCalendarStore migrated = new ShardedCalendarStore(mapper, staging);
+                this.streamFromFile(snapshot, migrated::save);
+                // Shard files without a manifest are leftovers no calendar refers to
+                deleteRecursively(root);
+                Files.move(staging, root, StandardCopyOption.ATOMIC_MOVE);
+                DurableFiles.forceDirectory(DATA_DIR);
+            } catch (IOException e) {
+                throw new RuntimeException("Failed to migrate " + snapshot + " to sharded storage", e);
+            }
+            shardStore.reload();
+        }
+    }
+
+    private static void deleteRecursively(Path directory) throws IOException {
+        if (!Files.exists(directory)) {
+            return;
+        }
+        try (Stream<Path> paths = Files.walk(directory)) {
+            for (Path path : paths.sorted(Comparator.reverseOrder()).toList()) {
+                Files.delete(path);
+            }
         }
     }
 }
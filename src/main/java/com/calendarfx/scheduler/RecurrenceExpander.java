@@ -0,0 +1,144 @@
+package com.calendarfx.scheduler;
+
+import net.fortuna.ical4j.model.Recur;
+
+import java.time.Duration;
+import java.time.LocalDateTime;
+import java.time.YearMonth;
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.function.Consumer;
+
+/**
+ * Expands the recurrence rule of a {@link GreatCalendar.GreatEntry} into occurrences on demand.
+ * Rules use the RFC 5545 RRULE syntax CalendarFX stores on its entries. Occurrence starts are
+ * computed one calendar month at a time and kept in an LRU cache of such windows, so repeated
+ * queries over the same weeks do not expand the rule again. Occurrences are plain entries without
+ * a rule that keep the id, title and duration of the recurring entry.
+ */
+public class RecurrenceExpander {
+
+    public static final String CACHE_PROPERTY = "calendar.recurrenceCacheWindows";
+    public static final int DEFAULT_CACHE_WINDOWS = 4096;
+    private static final String RRULE_PREFIX = "RRULE:";
+
+    private final int capacity;
+    private final Map<Window, List<LocalDateTime>> cache;
+    private long hits;
+    private long misses;
+
+    public RecurrenceExpander(int capacity) {
+        this.capacity = capacity;
+        this.cache = new LinkedHashMap<>(16, 0.75f, true) {
+            @Override
+            protected boolean removeEldestEntry(Map.Entry<Window, List<LocalDateTime>> eldest) {
+                return size() > RecurrenceExpander.this.capacity;
+            }
+        };
+    }
+
+    public static int configuredCacheWindows() {
+        return Integer.getInteger(CACHE_PROPERTY, DEFAULT_CACHE_WINDOWS);
+    }
+
+    public static boolean isRecurring(GreatCalendar.GreatEntry entry) {
+        return hasRule(entry.getRecurrenceRule()) && entry.getStart() != null && entry.getEnd() != null;
+    }
+
+    // A blank rule is no rule; shared with PackedEntryTable so packed and loaded entries agree
+    static boolean hasRule(String rule) {
+        return rule != null && !rule.isBlank();
+    }
+
+    // Calls action with every occurrence of entry overlapping [from, to), in start order
+    public void forEachOccurrence(GreatCalendar.GreatEntry entry, LocalDateTime from, LocalDateTime to,
+                                  Consumer<GreatCalendar.GreatEntry> action) {
+        if (!isRecurring(entry) || !from.isBefore(to)) {
+            return;
+        }
+        String rule = entry.getRecurrenceRule();
+        LocalDateTime seed = entry.getStart();
+        Duration length = Duration.between(seed, entry.getEnd());
+        // An occurrence overlaps the range when it starts before to and ends after from
+        LocalDateTime earliestStart = length.isPositive() ? from.minus(length) : from;
+        for (YearMonth month = YearMonth.from(earliestStart); !month.atDay(1).atStartOfDay().isAfter(to);
+             month = month.plusMonths(1)) {
+            for (LocalDateTime start : occurrences(rule, seed, month)) {
+                LocalDateTime end = start.plus(length);
+                if (start.isBefore(to) && (end.isAfter(from) || (start.equals(end) && !start.isBefore(from)))) {
+                    action.accept(occurrence(entry, start, end));
+                }
+            }
+        }
+    }
+
+    public List<GreatCalendar.GreatEntry> expand(GreatCalendar.GreatEntry entry, LocalDateTime from, LocalDateTime to) {
+        List<GreatCalendar.GreatEntry> occurrences = new ArrayList<>();
+        forEachOccurrence(entry, from, to, occurrences::add);
+        return occurrences;
+    }
+
+    public synchronized int size() {
+        return cache.size();
+    }
+
+    public synchronized long getHits() {
+        return hits;
+    }
+
+    public synchronized long getMisses() {
+        return misses;
+    }
+
+    public synchronized void clear() {
+        cache.clear();
+    }
+
+    // ---------------------------------------------------------
+    // Month windows
+    // ---------------------------------------------------------
+
+    private List<LocalDateTime> occurrences(String rule, LocalDateTime seed, YearMonth month) {
+        LocalDateTime monthEnd = month.plusMonths(1).atDay(1).atStartOfDay();
+        if (!seed.isBefore(monthEnd)) {
+            return List.of();
+        }
+        Window window = new Window(rule, seed, month);
+        synchronized (this) {
+            List<LocalDateTime> cached = cache.get(window);
+            if (cached != null) {
+                hits++;
+                return cached;
+            }
+            misses++;
+        }
+        List<LocalDateTime> starts = expandMonth(rule, seed, month.atDay(1).atStartOfDay(), monthEnd);
+        synchronized (this) {
+            cache.put(window, starts);
+        }
+        return starts;
+    }
+
+    private static List<LocalDateTime> expandMonth(String rule, LocalDateTime seed, LocalDateTime from, LocalDateTime to) {
+        String value = rule.startsWith(RRULE_PREFIX) ? rule.substring(RRULE_PREFIX.length()) : rule;
+        try {
+            Recur<LocalDateTime> recur = new Recur<>(value);
+            // getDates includes the period end, the windows are half open
+            return recur.getDates(seed, from, to).stream()
+                    .filter(start -> start.isBefore(to))
+                    .toList();
+        } catch (RuntimeException e) {
+            System.out.println("Ignoring invalid recurrence rule " + rule + ": " + e.getMessage());
+            return List.of();
+        }
+    }
+
+    private static GreatCalendar.GreatEntry occurrence(GreatCalendar.GreatEntry entry, LocalDateTime start, LocalDateTime end) {
+        return new GreatCalendar.GreatEntry(entry.getId(), entry.getTitle(), start, end, entry.isFullDay(), entry.getLocation());
+    }
+
+    private record Window(String rule, LocalDateTime seed, YearMonth month) {
+    }
+}
@@ -0,0 +1,466 @@
+package com.calendarfx.scheduler;
+
+import java.time.Duration;
+import java.time.LocalDate;
+import java.time.LocalDateTime;
+import java.time.LocalTime;
+import java.time.temporal.ChronoUnit;
+import java.util.*;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.ForkJoinTask;
+import java.util.concurrent.RecursiveAction;
+import java.util.concurrent.atomic.AtomicReference;
+import java.util.function.ToIntBiFunction;
+
+/**
+ * Fills a range of days with shifts for a set of {@link Employee}s. Every employee works at most one
+ * shift a day; the roster is scored by uncovered staffing demand, weekly hour conflicts of the active
+ * {@link ConflictRule}s, deviation from the weekly hour target and shifts other than the preferred one.
+ * A portfolio of simulated annealing workers searches in parallel on a {@link ForkJoinPool} until the
+ * time budget runs out and shares the best roster found so far.
+ */
+public class RosterGenerator {
+
+    public static final Duration DEFAULT_TIME_BUDGET = Duration.ofSeconds(3);
+    private static final long COVERAGE_PENALTY = 5_000;
+    private static final long OVERSTAFF_PENALTY = 10;
+    private static final long RULE_PENALTY = 3_000;
+    private static final long MINUTE_DEVIATION_PENALTY = 1;
+    private static final long PREFERENCE_PENALTY = 120;
+    private static final int OFF = -1;
+    private static final int ITERATIONS_PER_CHECK = 20_000;
+    private static final int STALE_CHECKS_BEFORE_RESTART = 25;
+
+    public record Shift(String name, LocalTime start, LocalTime end) {
+
+        private static final List<String> NUMBERS = List.of("zero", "one", "two", "three", "four", "five", "six",
+                "seven", "eight", "nine", "ten", "eleven", "twelve");
+
+        // Reads the names used by the employee form, e.g. "nineToFive" is 09:00 - 17:00
+        public static Shift parse(String name) {
+            String[] parts = name.split("To");
+            if (parts.length != 2) {
+                throw new IllegalArgumentException("Unknown shift " + name);
+            }
+            int start = NUMBERS.indexOf(parts[0].toLowerCase(Locale.ROOT));
+            int end = NUMBERS.indexOf(parts[1].toLowerCase(Locale.ROOT));
+            if (start < 0 || end < 0) {
+                throw new IllegalArgumentException("Unknown shift " + name);
+            }
+            if (end <= start) {
+                end += 12;
+            }
+            return new Shift(name, LocalTime.of(start, 0), LocalTime.of(end % 24, 0));
+        }
+
+        public long minutes() {
+            long minutes = ChronoUnit.MINUTES.between(start, end);
+            return minutes > 0 ? minutes : minutes + 24 * 60;
+        }
+    }
+
+    public record Roster(List<GreatCalendar> calendars, long penalty, int uncoveredShifts, int ruleConflicts,
+                         int offPreferenceShifts, double hoursDeviation) {
+    }
+
+    private final List<Shift> shifts;
+    private final ConflictRuleEngine engine;
+    private final int workers;
+    private final Duration timeBudget;
+
+    public RosterGenerator(List<Shift> shifts, ConflictRuleEngine engine) {
+        this(shifts, engine, Runtime.getRuntime().availableProcessors(), DEFAULT_TIME_BUDGET);
+    }
+
+    public RosterGenerator(List<Shift> shifts, ConflictRuleEngine engine, int workers, Duration timeBudget) {
+        if (shifts.isEmpty()) {
+            throw new IllegalArgumentException("At least one shift is required");
+        }
+        this.shifts = List.copyOf(shifts);
+        this.engine = engine;
+        this.workers = Math.max(1, workers);
+        this.timeBudget = timeBudget;
+    }
+
+    // Uses a demand that spreads the employees' combined weekly hours evenly over every shift of every day
+    public Roster generate(List<Employee> employees, LocalDate from, LocalDate to) {
+        long weeklyMinutes = employees.stream().mapToLong(e -> e.getWorkingHours() * 60L).sum();
+        long shiftMinutes = shifts.stream().mapToLong(Shift::minutes).sum();
+        int perShift = (int) (weeklyMinutes / (7 * shiftMinutes));
+        return generate(employees, from, to, (day, shift) -> perShift);
+    }
+
+    // demand gives the minimum number of employees for a shift on a day
+    public Roster generate(List<Employee> employees, LocalDate from, LocalDate to,
+                           ToIntBiFunction<LocalDate, Shift> demand) {
+        Problem problem = new Problem(employees, from, to, demand);
+        Solution initial = problem.greedy();
+        AtomicReference<Solution> best = new AtomicReference<>(initial);
+        long deadline = System.nanoTime() + timeBudget.toNanos();
+
+        List<Worker> portfolio = new ArrayList<>(workers);
+        for (int i = 0; i < workers; i++) {
+            // Workers differ in seed and starting temperature so they explore differently
+            double temperature = PREFERENCE_PENALTY * Math.pow(2, i % 6);
+            portfolio.add(new Worker(problem, best, deadline, temperature, 31L * i + 7));
+        }
+        ForkJoinPool pool = new ForkJoinPool(workers);
+        try {
+            pool.invoke(new RecursiveAction() {
+                @Override
+                protected void compute() {
+                    ForkJoinTask.invokeAll(portfolio);
+                }
+            });
+        } finally {
+            pool.shutdown();
+        }
+        return problem.toRoster(best.get());
+    }
+
+    // ---------------------------------------------------------
+    // 1. PROBLEM
+    // ---------------------------------------------------------
+
+    private final class Problem {
+        private final List<Employee> employees;
+        private final LocalDate from;
+        private final int days;
+        private final int weeks;
+        private final int[] weekOfDay;
+        private final int[] daysInWeek;
+        private final long[] shiftMinutes;
+        private final int[][] demand;
+        private final int[] preferred;
+        private final long[][] targetMinutes;
+        private final Map<Long, Integer> rulesByMinutes = new ConcurrentHashMap<>();
+
+        private Problem(List<Employee> employees, LocalDate from, LocalDate to, ToIntBiFunction<LocalDate, Shift> demand) {
+            this.employees = List.copyOf(employees);
+            this.from = from;
+            this.days = (int) ChronoUnit.DAYS.between(from, to) + 1;
+            if (days <= 0) {
+                throw new IllegalArgumentException("Empty roster range " + from + " - " + to);
+            }
+            LocalDate firstWeek = ConflictRuleEngine.weekOf(from.atStartOfDay());
+            weekOfDay = new int[days];
+            daysInWeek = new int[days / 7 + 2];
+            for (int d = 0; d < days; d++) {
+                weekOfDay[d] = (int) ChronoUnit.WEEKS.between(firstWeek, ConflictRuleEngine.weekOf(from.plusDays(d).atStartOfDay()));
+                daysInWeek[weekOfDay[d]]++;
+            }
+            weeks = weekOfDay[days - 1] + 1;
+
+            shiftMinutes = shifts.stream().mapToLong(Shift::minutes).toArray();
+            this.demand = new int[days][shifts.size()];
+            for (int d = 0; d < days; d++) {
+                for (int s = 0; s < shifts.size(); s++) {
+                    this.demand[d][s] = demand.applyAsInt(from.plusDays(d), shifts.get(s));
+                }
+            }
+            preferred = new int[employees.size()];
+            targetMinutes = new long[employees.size()][weeks];
+            for (int e = 0; e < employees.size(); e++) {
+                Employee employee = employees.get(e);
+                preferred[e] = indexOfShift(employee.getPreferredShift());
+                for (int w = 0; w < weeks; w++) {
+                    // Weeks cut by the range only get their share of the weekly target
+                    targetMinutes[e][w] = employee.getWorkingHours() * 60L * daysInWeek[w] / 7;
+                }
+            }
+        }
+
+        private int indexOfShift(String name) {
+            for (int s = 0; s < shifts.size(); s++) {
+                if (shifts.get(s).name().equals(name)) {
+                    return s;
+                }
+            }
+            return OFF;
+        }
+
+        // Weeks cut by the range are checked as if the same hours continued on their missing days
+        private int ruleConflicts(int week, long minutes) {
+            if (engine == null) {
+                return 0;
+            }
+            long fullWeekMinutes = minutes * 7 / daysInWeek[week];
+            return rulesByMinutes.computeIfAbsent(fullWeekMinutes,
+                    m -> engine.checkWeek(null, from, ConflictRuleEngine.toHours(m)).size());
+        }
+
+        private long slotPenalty(int staffed, int required) {
+            return staffed < required
+                    ? (required - staffed) * COVERAGE_PENALTY
+                    : (staffed - required) * OVERSTAFF_PENALTY;
+        }
+
+        private long weekPenalty(int employee, int week, long minutes) {
+            return Math.abs(minutes - targetMinutes[employee][week]) * MINUTE_DEVIATION_PENALTY
+                    + ruleConflicts(week, minutes) * RULE_PENALTY;
+        }
+
+        private long preferencePenalty(int employee, int shift) {
+            return shift != OFF && preferred[employee] != OFF && shift != preferred[employee] ? PREFERENCE_PENALTY : 0;
+        }
+
+        // Preferred shifts first, on the days that are still the least covered, until the weekly target is met
+        private Solution greedy() {
+            Solution solution = new Solution(this);
+            for (int e = 0; e < employees.size(); e++) {
+                int shift = preferred[e] == OFF ? e % shifts.size() : preferred[e];
+                for (int w = 0; w < weeks; w++) {
+                    List<Integer> weekDays = new ArrayList<>();
+                    for (int d = 0; d < days; d++) {
+                        if (weekOfDay[d] == w) {
+                            weekDays.add(d);
+                        }
+                    }
+                    weekDays.sort(Comparator.comparingInt(d -> solution.staffed[d][shift] - demand[d][shift]));
+                    for (int d : weekDays) {
+                        if (solution.weekMinutes[e][w] + shiftMinutes[shift] > targetMinutes[e][w]) {
+                            break;
+                        }
+                        solution.assign(e, d, shift);
+                    }
+                }
+            }
+            solution.penalty = solution.evaluate();
+            return solution;
+        }
+
+        private Roster toRoster(Solution solution) {
+            List<GreatCalendar> calendars = new ArrayList<>(employees.size());
+            int offPreference = 0;
+            long deviation = 0;
+            int conflicts = 0;
+            for (int e = 0; e < employees.size(); e++) {
+                List<GreatCalendar.GreatEntry> entries = new ArrayList<>();
+                for (int d = 0; d < days; d++) {
+                    int s = solution.shifts[e][d];
+                    if (s == OFF) {
+                        continue;
+                    }
+                    Shift shift = shifts.get(s);
+                    LocalDateTime start = from.plusDays(d).atTime(shift.start());
+                    entries.add(new GreatCalendar.GreatEntry(UUID.randomUUID().toString(), shift.name(),
+                            start, start.plusMinutes(shift.minutes()), false, null));
+                    if (preferencePenalty(e, s) > 0) {
+                        offPreference++;
+                    }
+                }
+                for (int w = 0; w < weeks; w++) {
+                    deviation += Math.abs(solution.weekMinutes[e][w] - targetMinutes[e][w]);
+                    conflicts += ruleConflicts(w, solution.weekMinutes[e][w]);
+                }
+                calendars.add(new GreatCalendar(employees.get(e).getName(), entries));
+            }
+            int uncovered = 0;
+            for (int d = 0; d < days; d++) {
+                for (int s = 0; s < shifts.size(); s++) {
+                    uncovered += Math.max(0, demand[d][s] - solution.staffed[d][s]);
+                }
+            }
+            return new Roster(calendars, solution.penalty, uncovered, conflicts, offPreference,
+                    ConflictRuleEngine.toHours(deviation));
+        }
+    }
+
+    // ---------------------------------------------------------
+    // 2. SOLUTION AND SEARCH
+    // ---------------------------------------------------------
+
+    private static final class Solution {
+        private final Problem problem;
+        private final int[][] shifts;
+        private final int[][] staffed;
+        private final long[][] weekMinutes;
+        private long penalty;
+
+        private Solution(Problem problem) {
+            this.problem = problem;
+            shifts = new int[problem.employees.size()][problem.days];
+            Arrays.stream(shifts).forEach(row -> Arrays.fill(row, OFF));
+            staffed = new int[problem.days][problem.shiftMinutes.length];
+            weekMinutes = new long[problem.employees.size()][problem.weeks];
+        }
+
+        private Solution(Solution other) {
+            problem = other.problem;
+            shifts = deepCopy(other.shifts);
+            staffed = deepCopy(other.staffed);
+            weekMinutes = new long[other.weekMinutes.length][];
+            for (int i = 0; i < weekMinutes.length; i++) {
+                weekMinutes[i] = other.weekMinutes[i].clone();
+            }
+            penalty = other.penalty;
+        }
+
+        private static int[][] deepCopy(int[][] source) {
+            int[][] copy = new int[source.length][];
+            for (int i = 0; i < source.length; i++) {
+                copy[i] = source[i].clone();
+            }
+            return copy;
+        }
+
+        private void assign(int employee, int day, int shift) {
+            int old = shifts[employee][day];
+            int week = problem.weekOfDay[day];
+            if (old != OFF) {
+                staffed[day][old]--;
+                weekMinutes[employee][week] -= problem.shiftMinutes[old];
+            }
+            if (shift != OFF) {
+                staffed[day][shift]++;
+                weekMinutes[employee][week] += problem.shiftMinutes[shift];
+            }
+            shifts[employee][day] = shift;
+        }
+
+        private long evaluate() {
+            long total = 0;
+            for (int d = 0; d < problem.days; d++) {
+                for (int s = 0; s < staffed[d].length; s++) {
+                    total += problem.slotPenalty(staffed[d][s], problem.demand[d][s]);
+                }
+            }
+            for (int e = 0; e < shifts.length; e++) {
+                for (int w = 0; w < problem.weeks; w++) {
+                    total += problem.weekPenalty(e, w, weekMinutes[e][w]);
+                }
+                for (int d = 0; d < problem.days; d++) {
+                    total += problem.preferencePenalty(e, shifts[e][d]);
+                }
+            }
+            return total;
+        }
+
+        private long reassignDelta(int employee, int day, int shift) {
+            int old = shifts[employee][day];
+            int week = problem.weekOfDay[day];
+            long delta = problem.preferencePenalty(employee, shift) - problem.preferencePenalty(employee, old);
+            long minutes = weekMinutes[employee][week];
+            long changed = minutes;
+            if (old != OFF) {
+                delta += problem.slotPenalty(staffed[day][old] - 1, problem.demand[day][old])
+                        - problem.slotPenalty(staffed[day][old], problem.demand[day][old]);
+                changed -= problem.shiftMinutes[old];
+            }
+            if (shift != OFF) {
+                delta += problem.slotPenalty(staffed[day][shift] + 1, problem.demand[day][shift])
+                        - problem.slotPenalty(staffed[day][shift], problem.demand[day][shift]);
+                changed += problem.shiftMinutes[shift];
+            }
+            return delta + problem.weekPenalty(employee, week, changed) - problem.weekPenalty(employee, week, minutes);
+        }
+
+        // Exchanging the shifts of two employees on one day keeps the coverage unchanged
+        private long swapDelta(int first, int second, int day) {
+            int a = shifts[first][day];
+            int b = shifts[second][day];
+            int week = problem.weekOfDay[day];
+            long delta = problem.preferencePenalty(first, b) - problem.preferencePenalty(first, a)
+                    + problem.preferencePenalty(second, a) - problem.preferencePenalty(second, b);
+            long shiftA = a == OFF ? 0 : problem.shiftMinutes[a];
+            long shiftB = b == OFF ? 0 : problem.shiftMinutes[b];
+            long firstMinutes = weekMinutes[first][week];
+            long secondMinutes = weekMinutes[second][week];
+            return delta
+                    + problem.weekPenalty(first, week, firstMinutes - shiftA + shiftB) - problem.weekPenalty(first, week, firstMinutes)
+                    + problem.weekPenalty(second, week, secondMinutes - shiftB + shiftA) - problem.weekPenalty(second, week, secondMinutes);
+        }
+    }
+
+    private static final class Worker extends RecursiveAction {
+        private final Problem problem;
+        private final AtomicReference<Solution> best;
+        private final long deadline;
+        private final double startTemperature;
+        private final SplittableRandom random;
+
+        private Worker(Problem problem, AtomicReference<Solution> best, long deadline, double startTemperature, long seed) {
+            this.problem = problem;
+            this.best = best;
+            this.deadline = deadline;
+            this.startTemperature = startTemperature;
+            this.random = new SplittableRandom(seed);
+        }
+
+        @Override
+        protected void compute() {
+            int employees = problem.employees.size();
+            int shiftCount = problem.shiftMinutes.length;
+            if (employees == 0) {
+                return;
+            }
+            long started = System.nanoTime();
+            Solution current = new Solution(best.get());
+            long personalBest = current.penalty;
+            int staleChecks = 0;
+            double temperature = startTemperature;
+
+            while (true) {
+                for (int i = 0; i < ITERATIONS_PER_CHECK; i++) {
+                    int day = random.nextInt(problem.days);
+                    int employee = random.nextInt(employees);
+                    if (employees > 1 && random.nextBoolean()) {
+                        int other = random.nextInt(employees);
+                        if (other == employee || current.shifts[employee][day] == current.shifts[other][day]) {
+                            continue;
+                        }
+                        long delta = current.swapDelta(employee, other, day);
+                        if (accept(delta, temperature)) {
+                            int shift = current.shifts[employee][day];
+                            current.assign(employee, day, current.shifts[other][day]);
+                            current.assign(other, day, shift);
+                            current.penalty += delta;
+                        }
+                    } else {
+                        int shift = random.nextInt(shiftCount + 1) - 1;
+                        if (shift == current.shifts[employee][day]) {
+                            continue;
+                        }
+                        long delta = current.reassignDelta(employee, day, shift);
+                        if (accept(delta, temperature)) {
+                            current.assign(employee, day, shift);
+                            current.penalty += delta;
+                        }
+                    }
+                }
+
+                long now = System.nanoTime();
+                if (current.penalty < personalBest) {
+                    personalBest = current.penalty;
+                    staleChecks = 0;
+                    publish(current);
+                } else if (++staleChecks >= STALE_CHECKS_BEFORE_RESTART) {
+                    // Stuck: continue from the best roster any worker has found
+                    current = new Solution(best.get());
+                    personalBest = current.penalty;
+                    staleChecks = 0;
+                }
+                if (now >= deadline) {
+                    return;
+                }
+                double remaining = (double) (deadline - now) / (deadline - started);
+                temperature = startTemperature * remaining * remaining;
+            }
+        }
+
+        private boolean accept(long delta, double temperature) {
+            return delta <= 0 || (temperature > 0 && random.nextDouble() < Math.exp(-delta / temperature));
+        }
+
+        private void publish(Solution candidate) {
+            Solution known = best.get();
+            while (candidate.penalty < known.penalty) {
+                if (best.compareAndSet(known, new Solution(candidate))) {
+                    return;
+                }
+                known = best.get();
+            }
+        }
+    }
+}
@@ -0,0 +1,140 @@
+package com.calendarfx.scheduler;
+
+import jdk.jfr.Category;
+import jdk.jfr.DataAmount;
+import jdk.jfr.Description;
+import jdk.jfr.Event;
+import jdk.jfr.FlightRecorder;
+import jdk.jfr.Label;
+import jdk.jfr.Name;
+import jdk.jfr.Period;
+import jdk.jfr.StackTrace;
+
+import java.nio.file.Path;
+import java.util.concurrent.atomic.AtomicBoolean;
+
+/**
+ * JDK Flight Recorder events for loading, saving, converting and rendering calendars. Every finished
+ * event also feeds {@link Metrics}, so the same numbers are available with or without a recording, e.g.
+ * {@code java -XX:StartFlightRecording=filename=startup.jfr ...}. Registered metrics are also written
+ * to recordings as periodic {@link MetricsSnapshot} events.
+ */
+public final class SchedulerEvents {
+
+    private static final String CATEGORY = "Calendar Scheduler";
+    private static final AtomicBoolean periodicRegistered = new AtomicBoolean();
+
+    private SchedulerEvents() {
+    }
+
+    public static Persistence persistence(String operation, Path file) {
+        Persistence event = new Persistence();
+        event.operation = operation;
+        event.file = file == null ? null : file.toString();
+        event.start("persistence." + operation);
+        return event;
+    }
+
+    public static Conversion conversion(String operation, String calendar) {
+        Conversion event = new Conversion();
+        event.operation = operation;
+        event.calendar = calendar;
+        event.start("conversion." + operation);
+        return event;
+    }
+
+    public static Render render(String operation, String calendar) {
+        Render event = new Render();
+        event.operation = operation;
+        event.calendar = calendar;
+        event.start("render." + operation);
+        return event;
+    }
+
+    public static void registerPeriodic() {
+        if (periodicRegistered.compareAndSet(false, true)) {
+            FlightRecorder.addPeriodicEvent(MetricsSnapshot.class, () -> {
+                MetricsSnapshot event = new MetricsSnapshot();
+                event.metrics = Metrics.snapshot();
+                event.commit();
+            });
+        }
+    }
+
+    // ---------------------------------------------------------
+    // Events
+    // ---------------------------------------------------------
+
+    @StackTrace(false)
+    public abstract static class Timed extends Event {
+        @Label("Operation")
+        protected String operation;
+
+        @Label("Calendars")
+        public int calendars;
+
+        @Label("Entries")
+        public long entries;
+
+        @Label("Bytes")
+        @DataAmount
+        public long bytes;
+
+        private transient String metric;
+        private transient long startNanos;
+
+        void start(String metric) {
+            this.metric = metric;
+            this.startNanos = System.nanoTime();
+            begin();
+        }
+
+        // Commits the event when recording and always records the duration and sizes as metrics
+        public void finish() {
+            end();
+            commit();
+            Metrics.histogram(metric).record(System.nanoTime() - startNanos);
+            Metrics.counter(metric + ".calendars").add(calendars);
+            Metrics.counter(metric + ".entries").add(entries);
+            Metrics.counter(metric + ".bytes").add(bytes);
+        }
+    }
+
+    @Name("com.calendarfx.scheduler.Persistence")
+    @Label("Persistence")
+    @Description("Reading or writing calendar data files")
+    @Category({CATEGORY, "Persistence"})
+    public static class Persistence extends Timed {
+        @Label("File")
+        protected String file;
+    }
+
+    @Name("com.calendarfx.scheduler.Conversion")
+    @Label("Conversion")
+    @Description("Converting between GreatCalendar and CalendarFX calendars")
+    @Category({CATEGORY, "Conversion"})
+    public static class Conversion extends Timed {
+        @Label("Calendar")
+        protected String calendar;
+    }
+
+    @Name("com.calendarfx.scheduler.Render")
+    @Label("Render")
+    @Description("Creating calendars and setting up the scene on the FX thread")
+    @Category({CATEGORY, "Render"})
+    public static class Render extends Timed {
+        @Label("Calendar")
+        protected String calendar;
+    }
+
+    @Name("com.calendarfx.scheduler.MetricsSnapshot")
+    @Label("Metrics Snapshot")
+    @Description("Counters and latency histograms of the in-process metrics registry")
+    @Category(CATEGORY)
+    @Period("endChunk")
+    @StackTrace(false)
+    public static class MetricsSnapshot extends Event {
+        @Label("Metrics")
+        protected String metrics;
+    }
+}
@@ -0,0 +1,57 @@
+package com.calendarfx.scheduler;
+
+import com.fasterxml.jackson.annotation.JsonCreator;
+import com.fasterxml.jackson.annotation.JsonProperty;
+
+import java.util.Map;
+import java.util.TreeMap;
+
+public class ShardManifest {
+    private final Map<String, CalendarShards> calendars;
+
+    @JsonCreator
+    public ShardManifest(@JsonProperty("calendars") Map<String, CalendarShards> calendars) {
+        this.calendars = calendars == null ? new TreeMap<>() : new TreeMap<>(calendars);
+    }
+
+    @JsonProperty
+    public Map<String, CalendarShards> getCalendars() {
+        return calendars;
+    }
+
+    public static class CalendarShards {
+        private final String directory;
+        private final Map<String, Shard> shards;
+
+        @JsonCreator
+        public CalendarShards(@JsonProperty("directory") String directory,
+                              @JsonProperty("shards") Map<String, Shard> shards) {
+            this.directory = directory;
+            this.shards = shards == null ? new TreeMap<>() : new TreeMap<>(shards);
+        }
+
+        @JsonProperty
+        public String getDirectory() { return directory; }
+
+        @JsonProperty
+        public Map<String, Shard> getShards() { return shards; }
+    }
+
+    public static class Shard {
+        private final int entries;
+        private final long checksum;
+
+        @JsonCreator
+        public Shard(@JsonProperty("entries") int entries,
+                     @JsonProperty("checksum") long checksum) {
+            this.entries = entries;
+            this.checksum = checksum;
+        }
+
+        @JsonProperty
+        public int getEntries() { return entries; }
+
+        @JsonProperty
+        public long getChecksum() { return checksum; }
+    }
+}
@@ -0,0 +1,226 @@
+package com.calendarfx.scheduler;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.databind.ObjectReader;
+import com.fasterxml.jackson.databind.ObjectWriter;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.time.YearMonth;
+import java.util.*;
+import java.util.zip.CRC32;
+
+/**
+ * Stores every calendar in its own directory with one JSON shard per start month of its entries
+ * ({@code yyyy-MM.json}, plus {@code undated.json} and {@code recurring.json}), described by a small manifest. Saving only
+ * rewrites shards whose content checksum changed; loading can be limited to a range of months.
+ */
+public class ShardedCalendarStore {
+
+    public static final String MANIFEST = "manifest.json";
+    public static final String UNDATED = "undated";
+    public static final String RECURRING = "recurring";
+    private static final String JSON = ".json";
+
+    private final ObjectMapper mapper;
+    private final ObjectWriter shardWriter;
+    private final ObjectReader shardReader;
+    private final Path root;
+    private ShardManifest manifest;
+
+    public ShardedCalendarStore(ObjectMapper mapper, Path root) {
+        this.mapper = mapper;
+        this.root = root;
+        this.shardWriter = mapper.writerFor(mapper.getTypeFactory()
+                .constructCollectionType(List.class, GreatCalendar.GreatEntry.class));
+        this.shardReader = mapper.readerFor(mapper.getTypeFactory()
+                .constructCollectionType(List.class, GreatCalendar.GreatEntry.class));
+    }
+
+    public boolean exists() {
+        return Files.exists(root.resolve(MANIFEST));
+    }
+
+    // Forgets the cached manifest, e.g. after the shard root was replaced on disk
+    public synchronized void reload() {
+        manifest = null;
+    }
+
+    public synchronized List<String> getCalendarNames() {
+        return new ArrayList<>(manifest().getCalendars().keySet());
+    }
+
+    public synchronized NavigableSet<YearMonth> getMonths(String calendar) {
+        NavigableSet<YearMonth> months = new TreeSet<>();
+        ShardManifest.CalendarShards shards = manifest().getCalendars().get(calendar);
+        if (shards != null) {
+            shards.getShards().keySet().stream()
+                    .filter(key -> !UNDATED.equals(key) && !RECURRING.equals(key))
+                    .map(YearMonth::parse)
+                    .forEach(months::add);
+        }
+        return months;
+    }
+
+    // ---------------------------------------------------------
+    // 1. LOADING
+    // ---------------------------------------------------------
+
+    public synchronized GreatCalendar loadAll(String calendar) {
+        List<GreatCalendar.GreatEntry> entries = new ArrayList<>();
+        ShardManifest.CalendarShards shards = manifest().getCalendars().get(calendar);
+        if (shards != null) {
+            for (String key : shards.getShards().keySet()) {
+                entries.addAll(readShard(shards, key));
+            }
+        }
+        return new GreatCalendar(calendar, entries);
+    }
+
+    // Loads the shards of the months in [from, to] together with the undated and recurring shards
+    public synchronized GreatCalendar load(String calendar, YearMonth from, YearMonth to) {
+        List<GreatCalendar.GreatEntry> entries = new ArrayList<>(loadUndated(calendar));
+        entries.addAll(loadRecurring(calendar));
+        getMonths(calendar).subSet(from, true, to, true)
+                .forEach(month -> entries.addAll(loadMonth(calendar, month)));
+        return new GreatCalendar(calendar, entries);
+    }
+
+    public synchronized List<GreatCalendar.GreatEntry> loadMonth(String calendar, YearMonth month) {
+        ShardManifest.CalendarShards shards = manifest().getCalendars().get(calendar);
+        return shards == null ? List.of() : readShard(shards, month.toString());
+    }
+
+    public synchronized List<GreatCalendar.GreatEntry> loadUndated(String calendar) {
+        ShardManifest.CalendarShards shards = manifest().getCalendars().get(calendar);
+        return shards == null ? List.of() : readShard(shards, UNDATED);
+    }
+
+    // Recurring entries can have occurrences in any month, so they are not sharded by start
+    public synchronized List<GreatCalendar.GreatEntry> loadRecurring(String calendar) {
+        ShardManifest.CalendarShards shards = manifest().getCalendars().get(calendar);
+        return shards == null ? List.of() : readShard(shards, RECURRING);
+    }
+
+    private List<GreatCalendar.GreatEntry> readShard(ShardManifest.CalendarShards shards, String key) {
+        if (!shards.getShards().containsKey(key)) {
+            return List.of();
+        }
+        Path file = root.resolve(shards.getDirectory()).resolve(key + JSON);
+        try {
+            return shardReader.readValue(file.toFile());
+        } catch (IOException e) {
+            throw new RuntimeException("Failed to load shard " + file, e);
+        }
+    }
+
+    // ---------------------------------------------------------
+    // 2. SAVING
+    // ---------------------------------------------------------
+
+    // Returns the number of shard files that were (re)written or removed
+    public synchronized int save(GreatCalendar calendar) {
+        Map<String, List<GreatCalendar.GreatEntry>> byShard = new TreeMap<>();
+        calendar.getEntries().forEach(entry ->
+                byShard.computeIfAbsent(shardKey(entry), key -> new ArrayList<>()).add(entry));
+
+        ShardManifest.CalendarShards shards = manifest().getCalendars().get(calendar.getName());
+        boolean created = shards == null;
+        if (created) {
+            shards = new ShardManifest.CalendarShards(directoryFor(calendar.getName()), null);
+            manifest().getCalendars().put(calendar.getName(), shards);
+        }
+        Path directory = root.resolve(shards.getDirectory());
+        int touched = 0;
+        try {
+            Files.createDirectories(directory);
+            for (Map.Entry<String, List<GreatCalendar.GreatEntry>> shard : byShard.entrySet()) {
+                byte[] bytes = shardWriter.writeValueAsBytes(shard.getValue());
+                CRC32 crc = new CRC32();
+                crc.update(bytes);
+                ShardManifest.Shard previous = shards.getShards().get(shard.getKey());
+                if (previous != null && previous.getChecksum() == crc.getValue()
+                        && previous.getEntries() == shard.getValue().size()) {
+                    continue;
+                }
+                writeAtomically(directory.resolve(shard.getKey() + JSON), bytes);
+                shards.getShards().put(shard.getKey(), new ShardManifest.Shard(shard.getValue().size(), crc.getValue()));
+                touched++;
+            }
+            for (String stale : new ArrayList<>(shards.getShards().keySet())) {
+                if (!byShard.containsKey(stale)) {
+                    Files.deleteIfExists(directory.resolve(stale + JSON));
+                    shards.getShards().remove(stale);
+                    touched++;
+                }
+            }
+            if (touched > 0 || created) {
+                writeManifest();
+            }
+        } catch (IOException e) {
+            throw new RuntimeException("Failed to save shards of " + calendar.getName(), e);
+        }
+        return touched;
+    }
+
+    public synchronized void delete(String calendar) {
+        ShardManifest.CalendarShards shards = manifest().getCalendars().remove(calendar);
+        if (shards == null) {
+            return;
+        }
+        Path directory = root.resolve(shards.getDirectory());
+        try {
+            for (String key : shards.getShards().keySet()) {
+                Files.deleteIfExists(directory.resolve(key + JSON));
+            }
+            Files.deleteIfExists(directory);
+            writeManifest();
+        } catch (IOException e) {
+            throw new RuntimeException("Failed to delete shards of " + calendar, e);
+        }
+    }
+
+    static String shardKey(GreatCalendar.GreatEntry entry) {
+        if (RecurrenceExpander.isRecurring(entry)) {
+            return RECURRING;
+        }
+        return entry.getStart() == null ? UNDATED : YearMonth.from(entry.getStart()).toString();
+    }
+
+    private String directoryFor(String name) {
+        String safe = name == null ? "calendar" : name.replaceAll("[^A-Za-z0-9_-]", "_");
+        String directory = safe + "-" + Integer.toHexString(Objects.hashCode(name));
+        Set<String> used = new HashSet<>();
+        manifest().getCalendars().values().forEach(shards -> used.add(shards.getDirectory()));
+        String candidate = directory;
+        for (int i = 1; used.contains(candidate); i++) {
+            candidate = directory + "-" + i;
+        }
+        return candidate;
+    }
+
+    private ShardManifest manifest() {
+        if (manifest == null) {
+            Path file = root.resolve(MANIFEST);
+            try {
+                manifest = Files.exists(file)
+                        ? mapper.readValue(file.toFile(), ShardManifest.class)
+                        : new ShardManifest(null);
+            } catch (IOException e) {
+                throw new RuntimeException("Failed to load shard manifest " + file, e);
+            }
+        }
+        return manifest;
+    }
+
+    private void writeManifest() throws IOException {
+        Files.createDirectories(root);
+        writeAtomically(root.resolve(MANIFEST), mapper.writeValueAsBytes(manifest()));
+    }
+
+    // Forced to disk with its directory, since the journal records it replaces are deleted right after
+    private static void writeAtomically(Path file, byte[] bytes) throws IOException {
+        DurableFiles.write(file, bytes);
+    }
+}
@@ -0,0 +1,88 @@
+package com.calendarfx.scheduler;
+
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * Canonical instances of the strings entries repeat thousands of times, e.g. shift titles and
+ * locations. Entries built from JSON, iCalendar feeds, the columnar store or CalendarFX all share one
+ * instance per distinct value instead of holding a copy each. The pool is bounded: once it holds
+ * calendar.stringPoolSize values, further new values are returned as they are, and long values are
+ * never pooled. Sizes are estimated for a 64-bit JVM with compressed pointers and compact strings;
+ * the statistics are also registered as gauges in {@link Metrics}.
+ */
+public final class StringPool {
+
+    public static final String SIZE_PROPERTY = "calendar.stringPoolSize";
+    public static final int DEFAULT_SIZE = 65_536;
+    public static final int MAX_LENGTH = 256;
+    private static final int STRING_HEADER_BYTES = 24;
+    private static final int ARRAY_HEADER_BYTES = 16;
+
+    private static final int capacity = Integer.getInteger(SIZE_PROPERTY, DEFAULT_SIZE);
+    private static final ConcurrentHashMap<String, String> pool = new ConcurrentHashMap<>();
+    private static final LongAdder lookups = new LongAdder();
+    private static final LongAdder hits = new LongAdder();
+    private static final LongAdder savedBytes = new LongAdder();
+    private static final LongAdder retainedBytes = new LongAdder();
+
+    static {
+        Metrics.gauge("strings.pool.distinct", pool::size);
+        Metrics.gauge("strings.pool.lookups", lookups::sum);
+        Metrics.gauge("strings.pool.duplicates", hits::sum);
+        Metrics.gauge("strings.pool.retainedBytes", retainedBytes::sum);
+        Metrics.gauge("strings.pool.savedBytes", savedBytes::sum);
+    }
+
+    private StringPool() {
+    }
+
+    public static String canonical(String value) {
+        if (value == null || value.length() > MAX_LENGTH || capacity <= 0) {
+            return value;
+        }
+        lookups.increment();
+        String canonical = pool.get(value);
+        if (canonical == null) {
+            if (pool.size() >= capacity) {
+                return value;
+            }
+            canonical = pool.putIfAbsent(value, value);
+            if (canonical == null) {
+                retainedBytes.add(sizeOf(value));
+                return value;
+            }
+        }
+        if (canonical != value) {
+            hits.increment();
+            savedBytes.add(sizeOf(value));
+        }
+        return canonical;
+    }
+
+    public static Stats stats() {
+        return new Stats(pool.size(), lookups.sum(), hits.sum(), retainedBytes.sum(), savedBytes.sum());
+    }
+
+    public static void clear() {
+        pool.clear();
+        lookups.reset();
+        hits.reset();
+        savedBytes.reset();
+        retainedBytes.reset();
+    }
+
+    // Shallow size of a String and its value array
+    static long sizeOf(String value) {
+        boolean latin1 = true;
+        for (int i = 0; i < value.length() && latin1; i++) {
+            latin1 = value.charAt(i) < 256;
+        }
+        long array = ARRAY_HEADER_BYTES + (long) value.length() * (latin1 ? 1 : 2);
+        return STRING_HEADER_BYTES + ((array + 7) & ~7L);
+    }
+
+    // savedBytes are held by duplicates that became garbage once the canonical instance replaced them
+    public record Stats(int distinct, long lookups, long duplicates, long retainedBytes, long savedBytes) {
+    }
+}
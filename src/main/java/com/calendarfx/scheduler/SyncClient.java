@@ -0,0 +1,285 @@
+package com.calendarfx.scheduler;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+
+import java.io.Closeable;
+import java.io.IOException;
+import java.io.InputStream;
+import java.net.URI;
+import java.net.URLEncoder;
+import java.net.http.HttpClient;
+import java.net.http.HttpRequest;
+import java.net.http.HttpResponse;
+import java.nio.charset.StandardCharsets;
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.TimeUnit;
+import java.util.zip.GZIPInputStream;
+
+/**
+ * Talks to a {@link SyncServer}. Once started, one thread pushes local changes as they are submitted
+ * and another long-polls for the changes of other clients, so both directions usually take a single
+ * round trip. While the server is unreachable or failing pushes are kept in order and retried; a batch
+ * the server refuses as malformed is reported and dropped, so it cannot hold up the rest. Every change is
+ * pushed with the revision it was made against: the last revision whose remote changes had been
+ * applied locally, as reported through {@link #applied(long)}, when the change was submitted.
+ */
+public class SyncClient implements Closeable {
+
+    public interface Listener {
+        // Called on a sync thread with the changes of other clients up to revision; once they are applied
+        // locally the listener must call applied(revision), so later local changes are based on them
+        void onRemoteChanges(List<JournalRecord> records, long revision);
+
+        // Called on a sync thread with the server's versions of entries whose pushed changes were rejected
+        void onConflicts(List<JournalRecord> serverRecords);
+
+        // Called on a sync thread with local changes the server refused to take at all; they are not retried
+        void onRejected(List<JournalRecord> records, String reason);
+    }
+
+    private static final int MAX_BATCH = 512;
+    private static final Duration POLL_WAIT = Duration.ofSeconds(25);
+    private static final Duration REQUEST_TIMEOUT = POLL_WAIT.plusSeconds(10);
+    private static final long MAX_BACKOFF_MS = 10_000;
+
+    private final ObjectMapper mapper;
+    private final URI server;
+    private final String clientId;
+    private final HttpClient http = HttpClient.newBuilder().connectTimeout(Duration.ofSeconds(5)).build();
+    private final BlockingQueue<Outgoing> outgoing = new LinkedBlockingQueue<>();
+    private final Object pushedLock = new Object();
+    private long submitted;
+    private long pushed;
+    // Pulled up to syncedRevision, applied locally up to appliedRevision
+    private volatile long syncedRevision;
+    private volatile long appliedRevision;
+    private volatile boolean closed;
+    private Thread pusher;
+    private Thread puller;
+
+    public SyncClient(ObjectMapper mapper, URI server, String clientId) {
+        this.mapper = mapper;
+        this.server = server;
+        this.clientId = clientId;
+    }
+
+    public String getClientId() {
+        return clientId;
+    }
+
+    public long getSyncedRevision() {
+        return syncedRevision;
+    }
+
+    public long getAppliedRevision() {
+        return appliedRevision;
+    }
+
+    public void start(long revision, Listener listener) {
+        syncedRevision = revision;
+        appliedRevision = revision;
+        pusher = Thread.ofVirtual().name("sync-push").start(() -> pushLoop(listener));
+        puller = Thread.ofVirtual().name("sync-pull").start(() -> pullLoop(listener));
+    }
+
+    // Call on the thread that applies remote changes, so the record is based on exactly what it was made against
+    public void submit(JournalRecord record) {
+        synchronized (pushedLock) {
+            submitted++;
+        }
+        outgoing.add(new Outgoing(record, appliedRevision));
+    }
+
+    // Remote changes up to revision are applied locally; changes submitted from now on are based on them
+    public void applied(long revision) {
+        synchronized (pushedLock) {
+            appliedRevision = Math.max(appliedRevision, revision);
+        }
+    }
+
+    // Waits until every record submitted so far has been pushed, or the timeout passed
+    public boolean flush(Duration timeout) {
+        long deadline = System.nanoTime() + timeout.toNanos();
+        synchronized (pushedLock) {
+            long target = submitted;
+            while (pushed < target) {
+                long remaining = TimeUnit.NANOSECONDS.toMillis(deadline - System.nanoTime());
+                if (remaining <= 0) {
+                    return false;
+                }
+                try {
+                    pushedLock.wait(remaining);
+                } catch (InterruptedException e) {
+                    Thread.currentThread().interrupt();
+                    return false;
+                }
+            }
+            return true;
+        }
+    }
+
+    @Override
+    public void close() {
+        closed = true;
+        if (pusher != null) {
+            pusher.interrupt();
+            puller.interrupt();
+        }
+    }
+
+    // ---------------------------------------------------------
+    // Requests
+    // ---------------------------------------------------------
+
+    public SyncServer.Delta pull(long since, Duration wait) throws IOException, InterruptedException {
+        URI uri = server.resolve(SyncServer.CHANGES_PATH + "?since=" + since + "&waitMs=" + wait.toMillis()
+                + "&client=" + URLEncoder.encode(clientId, StandardCharsets.UTF_8));
+        HttpRequest request = HttpRequest.newBuilder(uri)
+                .timeout(REQUEST_TIMEOUT.plus(wait))
+                .header("Accept-Encoding", "gzip")
+                .GET()
+                .build();
+        return send(request, SyncServer.Delta.class);
+    }
+
+    public SyncServer.PushResult push(long baseRevision, List<JournalRecord> records) throws IOException, InterruptedException {
+        byte[] body = mapper.writeValueAsBytes(new SyncServer.Push(clientId, baseRevision, records));
+        HttpRequest request = HttpRequest.newBuilder(server.resolve(SyncServer.PUSH_PATH))
+                .timeout(REQUEST_TIMEOUT)
+                .header("Accept-Encoding", "gzip")
+                .header("Content-Type", "application/json")
+                .POST(HttpRequest.BodyPublishers.ofByteArray(body))
+                .build();
+        Metrics.counter("sync.client.bytesSent").add(body.length);
+        return send(request, SyncServer.PushResult.class);
+    }
+
+    private <T> T send(HttpRequest request, Class<T> type) throws IOException, InterruptedException {
+        HttpResponse<InputStream> response = http.send(request, HttpResponse.BodyHandlers.ofInputStream());
+        try (InputStream body = response.body()) {
+            if (response.statusCode() >= 400 && response.statusCode() < 500) {
+                throw new RejectedException("Sync server refused " + request.uri().getPath() + " with "
+                        + response.statusCode() + ": " + new String(body.readAllBytes(), StandardCharsets.UTF_8));
+            }
+            if (response.statusCode() != 200) {
+                throw new IOException("Sync server answered " + response.statusCode() + " for " + request.uri().getPath()
+                        + ": " + new String(body.readAllBytes(), StandardCharsets.UTF_8));
+            }
+            Metrics.counter("sync.client.bytesReceived").add(response.headers().firstValueAsLong("Content-Length").orElse(0));
+            boolean gzip = response.headers().firstValue("Content-Encoding").filter("gzip"::equalsIgnoreCase).isPresent();
+            return mapper.readValue(gzip ? new GZIPInputStream(body) : body, type);
+        }
+    }
+
+    // ---------------------------------------------------------
+    // Background loops
+    // ---------------------------------------------------------
+
+    private void pushLoop(Listener listener) {
+        List<JournalRecord> batch = new ArrayList<>(MAX_BATCH);
+        long baseRevision = 0;
+        long backoff = 0;
+        while (!closed) {
+            try {
+                // A failed batch is retried as it is, so records stay in order
+                if (batch.isEmpty()) {
+                    baseRevision = takeBatch(batch);
+                }
+                long started = System.nanoTime();
+                SyncServer.PushResult result = push(baseRevision, batch);
+                Metrics.histogram("sync.client.push").record(System.nanoTime() - started);
+                synchronized (pushedLock) {
+                    pushed += batch.size();
+                    pushedLock.notifyAll();
+                }
+                batch.clear();
+                backoff = 0;
+                if (!result.conflicts().isEmpty()) {
+                    Metrics.counter("sync.client.conflicts").add(result.conflicts().size());
+                    listener.onConflicts(result.conflicts());
+                }
+            } catch (InterruptedException e) {
+                return;
+            } catch (RejectedException e) {
+                // Sending the same batch again would be refused again and hold up every later push
+                System.out.println(e.getMessage() + ", dropping " + batch.size() + " changes");
+                Metrics.counter("sync.client.rejected").add(batch.size());
+                List<JournalRecord> rejected = List.copyOf(batch);
+                synchronized (pushedLock) {
+                    pushed += batch.size();
+                    pushedLock.notifyAll();
+                }
+                batch.clear();
+                backoff = 0;
+                listener.onRejected(rejected, e.getMessage());
+            } catch (IOException | RuntimeException e) {
+                backoff = sleepAfterFailure("push", e, backoff);
+            }
+        }
+    }
+
+    // Bases only grow in submission order, so a batch of records sharing the first one's base is pushed with it
+    private long takeBatch(List<JournalRecord> batch) throws InterruptedException {
+        Outgoing first = outgoing.take();
+        batch.add(first.record());
+        Outgoing next;
+        while (batch.size() < MAX_BATCH && (next = outgoing.peek()) != null && next.baseRevision() == first.baseRevision()) {
+            batch.add(outgoing.poll().record());
+        }
+        return first.baseRevision();
+    }
+
+    private void pullLoop(Listener listener) {
+        long deliveredRevision = syncedRevision;
+        long backoff = 0;
+        while (!closed) {
+            try {
+                long started = System.nanoTime();
+                SyncServer.Delta delta = pull(syncedRevision, POLL_WAIT);
+                if (!delta.records().isEmpty()) {
+                    Metrics.histogram("sync.client.pull").record(System.nanoTime() - started);
+                    Metrics.counter("sync.client.pulled").add(delta.records().size());
+                    deliveredRevision = delta.revision();
+                    listener.onRemoteChanges(delta.records(), delta.revision());
+                } else if (appliedRevision >= deliveredRevision) {
+                    // Only our own changes in between, nothing left to apply
+                    applied(delta.revision());
+                }
+                syncedRevision = Math.max(syncedRevision, delta.revision());
+                backoff = 0;
+            } catch (InterruptedException e) {
+                return;
+            } catch (IOException | RuntimeException e) {
+                backoff = sleepAfterFailure("pull", e, backoff);
+            }
+        }
+    }
+
+    private record Outgoing(JournalRecord record, long baseRevision) {
+    }
+
+    // A 4xx answer: the request itself is wrong, unlike transport errors and 5xx answers, which are retried
+    private static final class RejectedException extends IOException {
+        RejectedException(String message) {
+            super(message);
+        }
+    }
+
+    private long sleepAfterFailure(String operation, Exception e, long backoff) {
+        long next = Math.min(MAX_BACKOFF_MS, backoff == 0 ? 250 : backoff * 2);
+        if (!closed) {
+            System.out.println("Sync " + operation + " failed, retrying in " + next + " ms: " + e.getMessage());
+        }
+        try {
+            Thread.sleep(next);
+        } catch (InterruptedException interrupted) {
+            Thread.currentThread().interrupt();
+            closed = true;
+        }
+        return next;
+    }
+}
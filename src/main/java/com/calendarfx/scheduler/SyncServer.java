@@ -0,0 +1,345 @@
+package com.calendarfx.scheduler;
+
+import com.fasterxml.jackson.core.JsonProcessingException;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.sun.net.httpserver.HttpExchange;
+import com.sun.net.httpserver.HttpServer;
+
+import java.io.BufferedOutputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.Closeable;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.net.InetSocketAddress;
+import java.net.URLDecoder;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Path;
+import java.time.Duration;
+import java.util.*;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.locks.Condition;
+import java.util.concurrent.locks.ReentrantLock;
+import java.util.zip.GZIPOutputStream;
+
+/**
+ * Shares calendar changes between several planners. Clients push {@link JournalRecord}s and pull the
+ * records of other clients newer than the last revision they have seen, waiting up to a timeout when
+ * there are none yet. Only the latest record per entry is kept, so a delta never grows beyond the
+ * number of entries changed since that revision. A pushed change to an entry that another client
+ * changed after the pusher's base revision is rejected and the server's version is returned instead.
+ * Records are stored in a {@link ChangeJournal}, so revisions survive restarts.
+ */
+public class SyncServer implements Closeable {
+
+    public static final int DEFAULT_PORT = 8765;
+    public static final String CHANGES_PATH = "/sync/changes";
+    public static final String PUSH_PATH = "/sync/push";
+    public static final Duration MAX_WAIT = Duration.ofSeconds(30);
+    private static final int GZIP_THRESHOLD = 1024;
+    private static final String JSON_TYPE = "application/json";
+
+    private final ObjectMapper mapper;
+    private final Path journalFile;
+    private final HttpServer server;
+    private final ExecutorService executor = Executors.newVirtualThreadPerTaskExecutor();
+    // Long polls park virtual threads, which a ReentrantLock allows without pinning their carriers
+    private final ReentrantLock lock = new ReentrantLock();
+    private final Condition changed = lock.newCondition();
+    private final TreeMap<Long, JournalRecord> live = new TreeMap<>();
+    private final Map<String, Map<String, Long>> entryRevisions = new HashMap<>();
+    private final Map<String, JournalRecord> latestById = new HashMap<>();
+    private ChangeJournal journal;
+    private long revision;
+    private volatile boolean closed;
+
+    public SyncServer(ObjectMapper mapper, Path journalFile, InetSocketAddress address) throws IOException {
+        this.mapper = mapper;
+        this.journalFile = journalFile;
+        this.server = HttpServer.create(address, 0);
+        server.createContext(CHANGES_PATH, exchange -> handle(exchange, this::changes));
+        server.createContext(PUSH_PATH, exchange -> handle(exchange, this::push));
+        server.setExecutor(executor);
+        load();
+    }
+
+    public void start() {
+        server.start();
+        System.out.println("Sync server listening on port " + getPort() + " at revision " + getRevision());
+    }
+
+    public int getPort() {
+        return server.getAddress().getPort();
+    }
+
+    public boolean isEmpty() {
+        lock.lock();
+        try {
+            return revision == 0;
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    public long getRevision() {
+        lock.lock();
+        try {
+            return revision;
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    // Seeds an empty server with existing calendars on behalf of the client that owns them
+    public long seed(String origin, Iterable<GreatCalendar> calendars) {
+        List<JournalRecord> records = new ArrayList<>();
+        for (GreatCalendar calendar : calendars) {
+            records.add(JournalRecord.calendarCreated(calendar.getName()));
+            calendar.getEntries().forEach(entry -> records.add(JournalRecord.entryCreated(calendar.getName(), entry)));
+        }
+        return accept(new Push(origin, 0, records)).revision();
+    }
+
+    @Override
+    public void close() {
+        closed = true;
+        server.stop(0);
+        executor.shutdownNow();
+        try {
+            journal.close();
+        } catch (IOException e) {
+            System.out.println("Failed to close sync journal: " + e.getMessage());
+        }
+    }
+
+    // ---------------------------------------------------------
+    // Deltas and conflicts
+    // ---------------------------------------------------------
+
+    public Delta changesSince(long since, String client, Duration wait) throws InterruptedException {
+        long deadline = System.nanoTime() + Math.min(wait.toNanos(), MAX_WAIT.toNanos());
+        lock.lock();
+        try {
+            while (true) {
+                List<JournalRecord> records = new ArrayList<>();
+                for (JournalRecord record : live.tailMap(since, false).values()) {
+                    if (!Objects.equals(client, record.getOrigin())) {
+                        records.add(record);
+                    }
+                }
+                long remaining = deadline - System.nanoTime();
+                if (!records.isEmpty() || remaining <= 0) {
+                    return new Delta(revision, records);
+                }
+                // Changes by the waiting client itself wake it too, but it then waits for the rest of the timeout
+                since = revision;
+                changed.awaitNanos(remaining);
+            }
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    public PushResult accept(Push push) {
+        List<JournalRecord> conflicts = new ArrayList<>();
+        int accepted = 0;
+        lock.lock();
+        try {
+            for (JournalRecord record : push.records()) {
+                JournalRecord latest = record.getEntryId() == null ? null : latestById.get(record.getEntryId());
+                if (latest != null && latest.getRevision() > push.baseRevision()
+                        && !Objects.equals(latest.getOrigin(), push.client())) {
+                    conflicts.add(latest);
+                    continue;
+                }
+                JournalRecord stored = record.withOrigin(push.client());
+                journal.append(stored);
+                index(stored);
+                accepted++;
+            }
+            if (accepted > 0) {
+                // The client forgets acknowledged records, so they are on disk before anyone hears of them
+                journal.flush();
+                changed.signalAll();
+            }
+            return new PushResult(revision, accepted, conflicts);
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    private void index(JournalRecord record) {
+        revision = Math.max(revision, record.getRevision());
+        switch (record.getOperation()) {
+            // Calendar records stay, so a client that saw a deletion never misses the recreation and vice versa
+            case CALENDAR_CREATED -> live.put(record.getRevision(), record);
+            case CALENDAR_DELETED -> {
+                Map<String, Long> deleted = entryRevisions.remove(record.getCalendar());
+                if (deleted != null) {
+                    deleted.values().forEach(live::remove);
+                }
+                live.put(record.getRevision(), record);
+            }
+            case ENTRY_CREATED, ENTRY_UPDATED, ENTRY_DELETED -> {
+                if (record.getEntryId() == null) {
+                    live.put(record.getRevision(), record);
+                    return;
+                }
+                Long previous = entryRevisions.computeIfAbsent(record.getCalendar(), name -> new HashMap<>())
+                        .put(record.getEntryId(), record.getRevision());
+                if (previous != null) {
+                    live.remove(previous);
+                }
+                live.put(record.getRevision(), record);
+                latestById.put(record.getEntryId(), record);
+            }
+        }
+    }
+
+    // ---------------------------------------------------------
+    // Storage
+    // ---------------------------------------------------------
+
+    private void load() throws IOException {
+        long[] total = {0};
+        ChangeJournal.read(mapper, journalFile, record -> {
+            index(record);
+            total[0]++;
+        });
+        // Superseded records are dropped from the file once they make up most of it
+        if (total[0] > 2L * live.size()) {
+            Path tmp = journalFile.resolveSibling(journalFile.getFileName() + ".tmp");
+            try (OutputStream out = new BufferedOutputStream(DurableFiles.newOutputStream(tmp))) {
+                for (JournalRecord record : live.values()) {
+                    out.write(mapper.writeValueAsBytes(record));
+                    out.write('\n');
+                }
+            }
+            DurableFiles.move(tmp, journalFile);
+            System.out.println("Compacted sync journal from " + total[0] + " to " + live.size() + " records");
+        }
+        journal = new ChangeJournal(mapper, journalFile, revision);
+    }
+
+    // ---------------------------------------------------------
+    // HTTP
+    // ---------------------------------------------------------
+
+    private interface Handler {
+        Object handle(HttpExchange exchange) throws IOException, InterruptedException;
+    }
+
+    private void handle(HttpExchange exchange, Handler handler) throws IOException {
+        try (exchange) {
+            Object response;
+            try {
+                response = handler.handle(exchange);
+            } catch (IllegalArgumentException | JsonProcessingException e) {
+                // The request itself is wrong, so the client must not send it again
+                send(exchange, 400, String.valueOf(e.getMessage()).getBytes(StandardCharsets.UTF_8), "text/plain");
+                return;
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+                send(exchange, 503, new byte[0], "text/plain");
+                return;
+            } catch (IOException | RuntimeException e) {
+                System.out.println("Sync request failed: " + e.getMessage());
+                send(exchange, 500, String.valueOf(e.getMessage()).getBytes(StandardCharsets.UTF_8), "text/plain");
+                return;
+            }
+            send(exchange, 200, mapper.writeValueAsBytes(response), JSON_TYPE);
+        } catch (IOException | RuntimeException e) {
+            // Long polls still waiting when the server stops fail to answer, which is expected
+            if (!closed) {
+                System.out.println("Sync answer failed: " + e.getMessage());
+            }
+        }
+    }
+
+    private Delta changes(HttpExchange exchange) throws InterruptedException {
+        requireMethod(exchange, "GET");
+        Map<String, String> query = query(exchange);
+        long since = Long.parseLong(query.getOrDefault("since", "0"));
+        Duration wait = Duration.ofMillis(Long.parseLong(query.getOrDefault("waitMs", "0")));
+        Delta delta = changesSince(since, query.get("client"), wait);
+        Metrics.counter("sync.server.pulled").add(delta.records().size());
+        return delta;
+    }
+
+    private PushResult push(HttpExchange exchange) throws IOException {
+        requireMethod(exchange, "POST");
+        Push push;
+        try (InputStream in = exchange.getRequestBody()) {
+            push = mapper.readValue(in, Push.class);
+        }
+        if (push.client() == null || push.records() == null) {
+            throw new IllegalArgumentException("A push needs a client and records");
+        }
+        for (JournalRecord record : push.records()) {
+            if (record == null || record.getOperation() == null || record.getCalendar() == null) {
+                throw new IllegalArgumentException("Every pushed record needs an operation and a calendar");
+            }
+        }
+        PushResult result = accept(push);
+        Metrics.counter("sync.server.pushed").add(result.accepted());
+        Metrics.counter("sync.server.conflicts").add(result.conflicts().size());
+        return result;
+    }
+
+    private static void requireMethod(HttpExchange exchange, String method) {
+        if (!method.equals(exchange.getRequestMethod())) {
+            throw new IllegalArgumentException(exchange.getRequestURI().getPath() + " expects " + method);
+        }
+    }
+
+    private static Map<String, String> query(HttpExchange exchange) {
+        Map<String, String> parameters = new HashMap<>();
+        String raw = exchange.getRequestURI().getRawQuery();
+        if (raw == null) {
+            return parameters;
+        }
+        for (String pair : raw.split("&")) {
+            int split = pair.indexOf('=');
+            if (split > 0) {
+                parameters.put(URLDecoder.decode(pair.substring(0, split), StandardCharsets.UTF_8),
+                        URLDecoder.decode(pair.substring(split + 1), StandardCharsets.UTF_8));
+            }
+        }
+        return parameters;
+    }
+
+    // Larger bodies are gzipped for clients that accept it; deltas of JSON records shrink several times
+    private static void send(HttpExchange exchange, int status, byte[] body, String contentType) throws IOException {
+        String acceptEncoding = exchange.getRequestHeaders().getFirst("Accept-Encoding");
+        if (body.length >= GZIP_THRESHOLD && acceptEncoding != null && acceptEncoding.contains("gzip")) {
+            ByteArrayOutputStream compressed = new ByteArrayOutputStream(body.length / 4);
+            try (OutputStream gzip = new GZIPOutputStream(compressed)) {
+                gzip.write(body);
+            }
+            body = compressed.toByteArray();
+            exchange.getResponseHeaders().set("Content-Encoding", "gzip");
+        }
+        exchange.getResponseHeaders().set("Content-Type", contentType);
+        exchange.sendResponseHeaders(status, body.length == 0 ? -1 : body.length);
+        if (body.length > 0) {
+            try (OutputStream out = exchange.getResponseBody()) {
+                out.write(body);
+            }
+        }
+        Metrics.counter("sync.server.bytes").add(body.length);
+    }
+
+    // ---------------------------------------------------------
+    // Messages
+    // ---------------------------------------------------------
+
+    public record Push(String client, long baseRevision, List<JournalRecord> records) {
+    }
+
+    public record PushResult(long revision, int accepted, List<JournalRecord> conflicts) {
+    }
+
+    public record Delta(long revision, List<JournalRecord> records) {
+    }
+}
@@ -0,0 +1,349 @@
+package com.calendarfx.scheduler;
+
+import com.calendarfx.model.Calendar;
+import com.calendarfx.model.CalendarEvent;
+import com.calendarfx.model.Entry;
+import com.calendarfx.model.LoadEvent;
+import javafx.application.Platform;
+import javafx.event.EventHandler;
+
+import java.time.LocalDateTime;
+import java.util.*;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.FutureTask;
+import java.util.function.Consumer;
+
+/**
+ * Creates CalendarFX {@link Entry}s only for the date ranges the views currently request through
+ * {@link LoadEvent}s, widened by a prefetch margin, and releases them again once they are more than
+ * twice that margin out of view. Each bound {@link Calendar} is backed by a {@link GreatCalendar}
+ * whose interval index answers the range queries; user edits are written back to it. Entries
+ * without start or end cannot be shown by CalendarFX and stay in the backing calendar only.
+ * Entries coming and going with the viewport are no edits; components that need every entry, not
+ * just the materialized ones, follow the backing calendars through a {@link BackingListener}.
+ */
+public class ViewportEntryMaterializer {
+
+    public static final String LAZY_PROPERTY = "calendar.lazy";
+    public static final String PREFETCH_PROPERTY = "calendar.prefetchDays";
+    public static final int DEFAULT_PREFETCH_DAYS = 7;
+
+    private final CalendarSerializer serializer;
+    private final int prefetchDays;
+    private final Consumer<Runnable> mutationScope;
+    private final EventHandler<CalendarEvent> entryHandler = this::onCalendarEvent;
+    private final Map<Calendar, Binding> bindings = new IdentityHashMap<>();
+    // Visible range per requesting view, keyed by the loader name of the LoadEvent
+    private final Map<String, Viewport> viewports = new HashMap<>();
+    private final List<BackingListener> listeners = new ArrayList<>();
+    private boolean materializing;
+
+    /**
+     * Told on the FX thread about every change of the backing calendars, whether it came from a user
+     * edit, from disk or from another planner. Changed entries are the backing instances, updated in place.
+     */
+    public interface BackingListener {
+        void bound(Calendar calendar, GreatCalendar backing);
+
+        void unbound(Calendar calendar);
+
+        void entryChanged(Calendar calendar, GreatCalendar.GreatEntry entry);
+
+        void entryRemoved(Calendar calendar, GreatCalendar.GreatEntry entry);
+    }
+
+    // mutationScope wraps every add/remove done here, e.g. to keep them out of the change journal
+    public ViewportEntryMaterializer(CalendarSerializer serializer, int prefetchDays, Consumer<Runnable> mutationScope) {
+        this.serializer = serializer;
+        this.prefetchDays = prefetchDays;
+        this.mutationScope = mutationScope;
+    }
+
+    public void addBackingListener(BackingListener listener) {
+        listeners.add(listener);
+    }
+
+    public static boolean isEnabled() {
+        return Boolean.getBoolean(LAZY_PROPERTY);
+    }
+
+    public static int configuredPrefetchDays() {
+        return Integer.getInteger(PREFETCH_PROPERTY, DEFAULT_PREFETCH_DAYS);
+    }
+
+    public void bind(Calendar calendar, GreatCalendar backing) {
+        Binding binding = new Binding(calendar, backing);
+        bindings.put(calendar, binding);
+        calendar.addEventHandler(entryHandler);
+        listeners.forEach(listener -> listener.bound(calendar, backing));
+        refresh(binding);
+    }
+
+    public void unbind(Calendar calendar) {
+        Binding binding = bindings.remove(calendar);
+        if (binding != null) {
+            calendar.removeEventHandler(entryHandler);
+            listeners.forEach(listener -> listener.unbound(calendar));
+        }
+    }
+
+    public GreatCalendar getBacking(Calendar calendar) {
+        Binding binding = bindings.get(calendar);
+        return binding == null ? null : binding.backing;
+    }
+
+    public int getMaterializedCount() {
+        return bindings.values().stream().mapToInt(binding -> binding.toGreat.size()).sum();
+    }
+
+    public void onLoad(LoadEvent evt) {
+        Viewport viewport = new Viewport(evt.getStartDate().atStartOfDay(), evt.getEndDate().plusDays(1).atStartOfDay());
+        if (!viewport.equals(viewports.put(evt.getSourceName(), viewport))) {
+            refresh();
+        }
+    }
+
+    // Adds entries that entered the backing calendar outside of the UI, e.g. months loaded from disk
+    public void addBacked(Calendar calendar, Collection<GreatCalendar.GreatEntry> entries) {
+        Binding binding = bindings.get(calendar);
+        if (binding == null) {
+            return;
+        }
+        entries.forEach(entry -> {
+            binding.backing.addEntry(entry);
+            binding.changed(entry);
+        });
+        refresh(binding);
+    }
+
+    // Removes entries with these ids that are in the backing calendar but not materialized
+    public void removeBacked(Calendar calendar, Set<String> ids) {
+        Binding binding = bindings.get(calendar);
+        if (binding == null || ids.isEmpty()) {
+            return;
+        }
+        binding.backing.getEntries().stream()
+                .filter(entry -> ids.contains(entry.getId()) && !binding.toEntry.containsKey(entry))
+                .toList()
+                .forEach(entry -> {
+                    binding.backing.removeEntry(entry);
+                    binding.removed(entry);
+                });
+    }
+
+    // Returns the CalendarFX entries of backing entries found some other way, e.g. by a search, materializing
+    // them on the FX thread if needed; entries that left the backing calendar in the meantime are left out
+    public List<Entry<?>> materialize(Calendar calendar, Collection<GreatCalendar.GreatEntry> entries) {
+        if (!Platform.isFxApplicationThread()) {
+            FutureTask<List<Entry<?>>> task = new FutureTask<>(() -> materialize(calendar, entries));
+            Platform.runLater(task);
+            try {
+                return task.get();
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+            } catch (ExecutionException e) {
+                System.out.println("Failed to materialize entries of " + calendar.getName() + ": " + e.getMessage());
+            }
+            return List.of();
+        }
+        Binding binding = bindings.get(calendar);
+        if (binding == null) {
+            return List.of();
+        }
+        List<Entry<?>> found = new ArrayList<>();
+        List<Entry<?>> added = new ArrayList<>();
+        for (GreatCalendar.GreatEntry great : entries) {
+            Entry<?> entry = binding.toEntry.get(great);
+            if (entry == null && binding.isBacked(great)) {
+                entry = binding.materialize(great);
+                added.add(entry);
+            }
+            if (entry != null) {
+                found.add(entry);
+            }
+        }
+        if (!added.isEmpty()) {
+            mutate(() -> binding.calendar.addEntries(added));
+        }
+        return found;
+    }
+
+    public void refresh() {
+        bindings.values().forEach(this::refresh);
+    }
+
+    private void refresh(Binding binding) {
+        if (viewports.isEmpty()) {
+            return;
+        }
+        Set<GreatCalendar.GreatEntry> wanted = Collections.newSetFromMap(new IdentityHashMap<>());
+        for (Viewport viewport : viewports.values()) {
+            binding.backing.intervalIndex().forEachOverlapping(viewport.from.minusDays(prefetchDays),
+                    viewport.to.plusDays(prefetchDays), wanted::add);
+        }
+        // CalendarFX expands recurring entries itself, so they stay materialized
+        wanted.addAll(binding.backing.getRecurringEntries());
+
+        List<Entry<?>> released = new ArrayList<>();
+        binding.toEntry.forEach((great, entry) -> {
+            if (!wanted.contains(great) && !isNearViewport(great)) {
+                released.add(entry);
+            }
+        });
+        List<Entry<?>> added = new ArrayList<>();
+        wanted.forEach(great -> {
+            if (!binding.toEntry.containsKey(great)) {
+                added.add(binding.materialize(great));
+            }
+        });
+        if (released.isEmpty() && added.isEmpty()) {
+            return;
+        }
+        released.forEach(binding::release);
+        mutate(() -> {
+            binding.calendar.removeEntries(released);
+            binding.calendar.addEntries(added);
+        });
+    }
+
+    private boolean isNearViewport(GreatCalendar.GreatEntry entry) {
+        int releaseDays = 2 * prefetchDays;
+        for (Viewport viewport : viewports.values()) {
+            if (entry.getStart().isBefore(viewport.to.plusDays(releaseDays))
+                    && entry.getEnd().isAfter(viewport.from.minusDays(releaseDays))) {
+                return true;
+            }
+        }
+        return false;
+    }
+
+    private void mutate(Runnable action) {
+        materializing = true;
+        try {
+            mutationScope.accept(action);
+        } finally {
+            materializing = false;
+        }
+    }
+
+    // ---------------------------------------------------------
+    // Writing user edits back to the backing calendars
+    // ---------------------------------------------------------
+
+    private void onCalendarEvent(CalendarEvent evt) {
+        Entry<?> entry = evt.getEntry();
+        if (materializing || entry == null || entry.isRecurrence()
+                || !evt.getEventType().getSuperType().equals(CalendarEvent.ENTRY_CHANGED)) {
+            return;
+        }
+        if (evt.getEventType() == CalendarEvent.ENTRY_CALENDAR_CHANGED) {
+            Binding old = evt.getOldCalendar() == null ? null : bindings.get(evt.getOldCalendar());
+            Binding current = entry.getCalendar() == null ? null : bindings.get(entry.getCalendar());
+            if (old != null && old != current) {
+                old.forget(entry);
+            }
+            if (current != null && current != old) {
+                current.adopt(entry);
+            }
+            return;
+        }
+        Binding binding = entry.getCalendar() == null ? null : bindings.get(entry.getCalendar());
+        if (binding != null) {
+            binding.update(entry);
+        }
+    }
+
+    private record Viewport(LocalDateTime from, LocalDateTime to) {
+    }
+
+    private final class Binding {
+        private final Calendar calendar;
+        private final GreatCalendar backing;
+        private final Map<GreatCalendar.GreatEntry, Entry<?>> toEntry = new IdentityHashMap<>();
+        private final Map<Entry<?>, GreatCalendar.GreatEntry> toGreat = new IdentityHashMap<>();
+
+        private Binding(Calendar calendar, GreatCalendar backing) {
+            this.calendar = calendar;
+            this.backing = backing;
+        }
+
+        private Entry<?> materialize(GreatCalendar.GreatEntry great) {
+            Entry<?> entry = serializer.toEntry(great);
+            toEntry.put(great, entry);
+            toGreat.put(entry, great);
+            return entry;
+        }
+
+        private boolean isBacked(GreatCalendar.GreatEntry great) {
+            if (great.getStart() == null || great.getEnd() == null) {
+                return false;
+            }
+            // Recurring entries are kept apart; every other one covers its start, among the few overlapping that point
+            List<GreatCalendar.GreatEntry> candidates = RecurrenceExpander.isRecurring(great)
+                    ? backing.getRecurringEntries()
+                    : backing.intervalIndex().at(great.getStart());
+            return candidates.stream().anyMatch(candidate -> candidate == great);
+        }
+
+        private void release(Entry<?> entry) {
+            GreatCalendar.GreatEntry great = toGreat.remove(entry);
+            if (great != null) {
+                toEntry.remove(great);
+            }
+        }
+
+        private void adopt(Entry<?> entry) {
+            if (toGreat.containsKey(entry)) {
+                return;
+            }
+            GreatCalendar.GreatEntry great = serializer.fromEntry(entry);
+            backing.addEntry(great);
+            toEntry.put(great, entry);
+            toGreat.put(entry, great);
+            changed(great);
+        }
+
+        private void forget(Entry<?> entry) {
+            GreatCalendar.GreatEntry great = toGreat.remove(entry);
+            if (great != null) {
+                toEntry.remove(great);
+                backing.removeEntry(great);
+                removed(great);
+            }
+        }
+
+        private void update(Entry<?> entry) {
+            GreatCalendar.GreatEntry great = toGreat.get(entry);
+            if (great == null) {
+                return;
+            }
+            LocalDateTime start = entry.getStartAsLocalDateTime();
+            LocalDateTime end = entry.getEndAsLocalDateTime();
+            String rule = serializer.fromEntry(entry).getRecurrenceRule();
+            // Full day entries block their whole days, so toggling it re-adds the entry like a new rule does
+            if (!Objects.equals(rule, great.getRecurrenceRule()) || entry.isFullDay() != great.isFullDay()) {
+                backing.removeEntry(great);
+                great.setRecurrenceRule(rule);
+                great.setStart(start);
+                great.setEnd(end);
+                great.setFullDay(entry.isFullDay());
+                backing.addEntry(great);
+            } else if (!Objects.equals(start, great.getStart()) || !Objects.equals(end, great.getEnd())) {
+                backing.rescheduleEntry(great, start, end);
+            }
+            great.setId(entry.getId());
+            great.setTitle(entry.getTitle());
+            great.setFullDay(entry.isFullDay());
+            great.setLocation(entry.getLocation());
+            changed(great);
+        }
+
+        private void changed(GreatCalendar.GreatEntry great) {
+            listeners.forEach(listener -> listener.entryChanged(calendar, great));
+        }
+
+        private void removed(GreatCalendar.GreatEntry great) {
+            listeners.forEach(listener -> listener.entryRemoved(calendar, great));
+        }
+    }
+}
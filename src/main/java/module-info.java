@@ -7,6 +7,10 @@ module com.calendarfx.scheduler {
     requires com.fasterxml.jackson.databind;
     opens com.calendarfx.scheduler to com.fasterxml.jackson.databind;
     requires com.fasterxml.jackson.datatype.jsr310;
+    requires ical4j.core;
+    requires jdk.jfr;
+    requires jdk.httpserver;
+    requires java.net.http;
     requires javafx.base;
 
     exports com.calendarfx.scheduler;
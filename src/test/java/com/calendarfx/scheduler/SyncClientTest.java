@@ -0,0 +1,173 @@
+package com.calendarfx.scheduler;
+
+import com.fasterxml.jackson.databind.DeserializationFeature;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.datatype.jsr310.JavaTimeModule;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import java.io.IOException;
+import java.net.InetAddress;
+import java.net.InetSocketAddress;
+import java.net.URI;
+import java.nio.file.Path;
+import java.time.Duration;
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.TimeUnit;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+/**
+ * Two clients sharing a {@link SyncServer} on localhost.
+ */
+class SyncClientTest {
+
+    private static final String CALENDAR = "Shifts";
+    private static final String ENTRY_ID = "shift-1";
+    private static final Duration TIMEOUT = Duration.ofSeconds(10);
+
+    @TempDir
+    Path dir;
+
+    private final ObjectMapper mapper = new ObjectMapper();
+    private final List<SyncClient> clients = new ArrayList<>();
+    private SyncServer server;
+
+    @BeforeEach
+    void startServer() throws IOException {
+        mapper.registerModule(new JavaTimeModule());
+        mapper.configure(DeserializationFeature.FAIL_ON_UNKNOWN_PROPERTIES, false);
+        server = new SyncServer(mapper, dir.resolve("SyncServer.journal"),
+                new InetSocketAddress(InetAddress.getLoopbackAddress(), 0));
+        server.start();
+    }
+
+    @AfterEach
+    void stop() {
+        clients.forEach(SyncClient::close);
+        server.close();
+    }
+
+    @Test
+    void editBasedOnUnappliedChangeConflicts() throws Exception {
+        Recorder alice = new Recorder();
+        Recorder bob = new Recorder();
+        SyncClient aliceClient = connect("alice", alice);
+        SyncClient bobClient = connect("bob", bob);
+
+        aliceClient.submit(JournalRecord.entryCreated(CALENDAR, shift("Morning")));
+        assertTrue(aliceClient.flush(TIMEOUT));
+        bob.applyNext(bobClient);
+
+        // Bob pulls Alice's second edit but edits the shift before it reached his calendar
+        aliceClient.submit(JournalRecord.entryUpdated(CALENDAR, shift("Alice's shift")));
+        assertTrue(aliceClient.flush(TIMEOUT));
+        assertNotNull(bob.remote.poll(TIMEOUT.toMillis(), TimeUnit.MILLISECONDS));
+        bobClient.submit(JournalRecord.entryUpdated(CALENDAR, shift("Bob's shift")));
+        assertTrue(bobClient.flush(TIMEOUT));
+
+        List<JournalRecord> conflicts = bob.conflicts.poll(TIMEOUT.toMillis(), TimeUnit.MILLISECONDS);
+        assertNotNull(conflicts, "Bob's edit should have been rejected");
+        assertEquals(1, conflicts.size());
+        assertEquals("Alice's shift", conflicts.get(0).getEntry().getTitle());
+        assertEquals("Alice's shift", latestTitle());
+    }
+
+    @Test
+    void editBasedOnAppliedChangeIsAccepted() throws Exception {
+        Recorder alice = new Recorder();
+        Recorder bob = new Recorder();
+        SyncClient aliceClient = connect("alice", alice);
+        SyncClient bobClient = connect("bob", bob);
+
+        aliceClient.submit(JournalRecord.entryCreated(CALENDAR, shift("Morning")));
+        assertTrue(aliceClient.flush(TIMEOUT));
+        bob.applyNext(bobClient);
+
+        aliceClient.submit(JournalRecord.entryUpdated(CALENDAR, shift("Alice's shift")));
+        assertTrue(aliceClient.flush(TIMEOUT));
+        bob.applyNext(bobClient);
+        bobClient.submit(JournalRecord.entryUpdated(CALENDAR, shift("Bob's shift")));
+        assertTrue(bobClient.flush(TIMEOUT));
+
+        assertNull(bob.conflicts.poll(500, TimeUnit.MILLISECONDS));
+        assertEquals("Bob's shift", latestTitle());
+        List<JournalRecord> pulled = alice.remote.poll(TIMEOUT.toMillis(), TimeUnit.MILLISECONDS);
+        assertNotNull(pulled, "Alice should receive Bob's edit");
+        assertEquals("Bob's shift", pulled.get(pulled.size() - 1).getEntry().getTitle());
+    }
+
+    @Test
+    void refusedBatchIsDroppedInsteadOfBlockingLaterPushes() throws Exception {
+        Recorder alice = new Recorder();
+        SyncClient aliceClient = connect("alice", alice);
+
+        // A record without an operation is malformed, so the server answers 400 for the whole batch
+        aliceClient.submit(new JournalRecord(0, null, CALENDAR, ENTRY_ID, shift("Broken")));
+        assertTrue(aliceClient.flush(TIMEOUT), "A refused batch must not hold up flush");
+        List<JournalRecord> refused = alice.rejected.poll(TIMEOUT.toMillis(), TimeUnit.MILLISECONDS);
+        assertNotNull(refused);
+        assertEquals(1, refused.size());
+
+        aliceClient.submit(JournalRecord.entryCreated(CALENDAR, shift("Morning")));
+        assertTrue(aliceClient.flush(TIMEOUT));
+        assertEquals("Morning", latestTitle());
+    }
+
+    private SyncClient connect(String clientId, Recorder recorder) {
+        SyncClient client = new SyncClient(mapper, URI.create("http://localhost:" + server.getPort()), clientId);
+        clients.add(client);
+        client.start(0, recorder);
+        return client;
+    }
+
+    private String latestTitle() throws InterruptedException {
+        List<JournalRecord> records = server.changesSince(0, null, Duration.ZERO).records();
+        return records.stream()
+                .filter(record -> ENTRY_ID.equals(record.getEntryId()))
+                .reduce((first, second) -> second)
+                .map(record -> record.getEntry().getTitle())
+                .orElse(null);
+    }
+
+    private static GreatCalendar.GreatEntry shift(String title) {
+        LocalDateTime start = LocalDateTime.of(2026, 3, 2, 9, 0);
+        return new GreatCalendar.GreatEntry(ENTRY_ID, title, start, start.plusHours(8), false, null);
+    }
+
+    // Keeps what the sync threads hand over, applying remote changes only when the test says so
+    private static class Recorder implements SyncClient.Listener {
+
+        private final BlockingQueue<List<JournalRecord>> remote = new LinkedBlockingQueue<>();
+        private final BlockingQueue<Long> revisions = new LinkedBlockingQueue<>();
+        private final BlockingQueue<List<JournalRecord>> conflicts = new LinkedBlockingQueue<>();
+        private final BlockingQueue<List<JournalRecord>> rejected = new LinkedBlockingQueue<>();
+
+        @Override
+        public void onRemoteChanges(List<JournalRecord> records, long revision) {
+            revisions.add(revision);
+            remote.add(records);
+        }
+
+        @Override
+        public void onConflicts(List<JournalRecord> serverRecords) {
+            conflicts.add(serverRecords);
+        }
+
+        @Override
+        public void onRejected(List<JournalRecord> records, String reason) {
+            rejected.add(records);
+        }
+
+        void applyNext(SyncClient client) throws InterruptedException {
+            assertNotNull(remote.poll(TIMEOUT.toMillis(), TimeUnit.MILLISECONDS), "No remote changes arrived");
+            client.applied(revisions.take());
+        }
+    }
+}